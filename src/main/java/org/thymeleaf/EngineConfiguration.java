@@ -27,6 +27,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.thymeleaf.cache.ICacheManager;
 import org.thymeleaf.context.IEngineContextFactory;
@@ -36,6 +37,7 @@
 import org.thymeleaf.engine.StandardModelFactory;
 import org.thymeleaf.engine.TemplateManager;
 import org.thymeleaf.expression.IExpressionObjectFactory;
+import org.thymeleaf.flushpolicy.IFlushPolicy;
 import org.thymeleaf.linkbuilder.ILinkBuilder;
 import org.thymeleaf.messageresolver.IMessageResolver;
 import org.thymeleaf.model.IModelFactory;
@@ -75,6 +77,17 @@ public class EngineConfiguration implements IEngineConfiguration {
     private final ICacheManager cacheManager;
     private final IEngineContextFactory engineContextFactory;
     private final IDecoupledTemplateLogicResolver decoupledTemplateLogicResolver;
+    private final boolean useHandlerPooling;
+    private final Executor parallelRenderingExecutor;
+    private final Executor lazyVariablePrefetchExecutor;
+    private final long lazyVariablePrefetchTimeout;
+    private final IFlushPolicy flushPolicy;
+    private final boolean minifyTemplates;
+    private final boolean linkStaticFragments;
+    private final boolean compactCachedTemplates;
+    private final boolean internCachedTemplateEvents;
+    private final boolean coalesceCachedTemplateTexts;
+    private final boolean revalidateNonCacheableTemplates;
     private TemplateManager templateManager;
     private final ConcurrentHashMap<TemplateMode,IModelFactory> modelFactories;
 
@@ -89,7 +102,18 @@ public class EngineConfiguration implements IEngineConfiguration {
             final Set<DialectConfiguration> dialectConfigurations,
             final ICacheManager cacheManager,
             final IEngineContextFactory engineContextFactory,
-            final IDecoupledTemplateLogicResolver decoupledTemplateLogicResolver) {
+            final IDecoupledTemplateLogicResolver decoupledTemplateLogicResolver,
+            final boolean useHandlerPooling,
+            final Executor parallelRenderingExecutor,
+            final Executor lazyVariablePrefetchExecutor,
+            final long lazyVariablePrefetchTimeout,
+            final IFlushPolicy flushPolicy,
+            final boolean minifyTemplates,
+            final boolean linkStaticFragments,
+            final boolean compactCachedTemplates,
+            final boolean internCachedTemplateEvents,
+            final boolean coalesceCachedTemplateTexts,
+            final boolean revalidateNonCacheableTemplates) {
 
         super();
 
@@ -120,6 +144,27 @@ public class EngineConfiguration implements IEngineConfiguration {
 
         this.decoupledTemplateLogicResolver = decoupledTemplateLogicResolver;
 
+        this.useHandlerPooling = useHandlerPooling;
+
+        this.parallelRenderingExecutor = parallelRenderingExecutor; // Can be null (= no parallel rendering)
+
+        this.lazyVariablePrefetchExecutor = lazyVariablePrefetchExecutor; // Can be null (= no prefetching)
+        this.lazyVariablePrefetchTimeout = lazyVariablePrefetchTimeout;
+
+        this.flushPolicy = flushPolicy; // Can be null (= only flush at the end)
+
+        this.minifyTemplates = minifyTemplates;
+
+        this.linkStaticFragments = linkStaticFragments;
+
+        this.compactCachedTemplates = compactCachedTemplates;
+
+        this.internCachedTemplateEvents = internCachedTemplateEvents;
+
+        this.coalesceCachedTemplateTexts = coalesceCachedTemplateTexts;
+
+        this.revalidateNonCacheableTemplates = revalidateNonCacheableTemplates;
+
         this.dialectSetConfiguration = DialectSetConfiguration.build(dialectConfigurations);
 
         // NOTE we are NOT initializing the templateManager here, but in #initialize()
@@ -269,6 +314,126 @@ public IModelFactory getModelFactory(final TemplateMode templateMode) {
 
 
 
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * determines whether the handlers used for (non-throttled) template processing should be reused between
+     * executions. See TemplateEngine#setUseHandlerPooling(boolean).
+     */
+    public boolean getUseHandlerPooling() {
+        return this.useHandlerPooling;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns the executor to be used for rendering fragments in parallel, or null if parallel rendering has not
+     * been enabled. See TemplateEngine#setParallelRenderingExecutor(Executor).
+     */
+    public Executor getParallelRenderingExecutor() {
+        return this.parallelRenderingExecutor;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns the executor to be used for prefetching the lazy variables referenced by templates, or null if
+     * prefetching has not been enabled. See TemplateEngine#setLazyVariablePrefetchExecutor(Executor).
+     */
+    public Executor getLazyVariablePrefetchExecutor() {
+        return this.lazyVariablePrefetchExecutor;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns the maximum time (in milliseconds) to wait for the prefetching of each lazy variable.
+     */
+    public long getLazyVariablePrefetchTimeout() {
+        return this.lazyVariablePrefetchTimeout;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns the flush policy to be applied to non-throttled executions, or null if output should only be flushed
+     * at the end. See TemplateEngine#setFlushPolicy(IFlushPolicy).
+     */
+    public IFlushPolicy getFlushPolicy() {
+        return this.flushPolicy;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns whether template sources should be minified while being parsed.
+     * See TemplateEngine#setMinifyTemplates(boolean).
+     */
+    public boolean getMinifyTemplates() {
+        return this.minifyTemplates;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns whether static fragment references should be linked to the cached templates containing them.
+     * See TemplateEngine#setLinkStaticFragments(boolean).
+     */
+    public boolean getLinkStaticFragments() {
+        return this.linkStaticFragments;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns whether the textual contents of cached templates should be stored in compact form.
+     * See TemplateEngine#setCompactCachedTemplates(boolean).
+     */
+    public boolean getCompactCachedTemplates() {
+        return this.compactCachedTemplates;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns whether repeated events of cached templates should be shared among templates.
+     * See TemplateEngine#setInternCachedTemplateEvents(boolean).
+     */
+    public boolean getInternCachedTemplateEvents() {
+        return this.internCachedTemplateEvents;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns whether adjacent texts of cached templates should be merged into single text events.
+     * See TemplateEngine#setCoalesceCachedTemplateTexts(boolean).
+     */
+    public boolean getCoalesceCachedTemplateTexts() {
+        return this.coalesceCachedTemplateTexts;
+    }
+
+
+
+    /*
+     * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It
+     * returns whether templates not cacheable according to their resolvers should be cached and re-validated
+     * by the version of their resources. See TemplateEngine#setRevalidateNonCacheableTemplates(boolean).
+     */
+    public boolean getRevalidateNonCacheableTemplates() {
+        return this.revalidateNonCacheableTemplates;
+    }
+
+
+
     /*
      * This method is NOT a part of the IEngineConfiguration interface. It is only meant for internal usage. It's
      * aim is to determine if the template engine has been configured any processing structures that might be harmed
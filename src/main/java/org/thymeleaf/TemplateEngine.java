@@ -20,27 +20,44 @@
 package org.thymeleaf;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.thymeleaf.cache.ICacheManager;
 import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.FutureContextVariable;
+import org.thymeleaf.context.IAsyncLazyContextVariable;
 import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IEngineContext;
 import org.thymeleaf.context.IEngineContextFactory;
+import org.thymeleaf.context.IWebContext;
 import org.thymeleaf.context.StandardEngineContextFactory;
+import org.thymeleaf.context.WebContext;
 import org.thymeleaf.dialect.IDialect;
 import org.thymeleaf.engine.TemplateManager;
 import org.thymeleaf.exceptions.TemplateEngineException;
 import org.thymeleaf.exceptions.TemplateOutputException;
 import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.flushpolicy.IFlushPolicy;
 import org.thymeleaf.linkbuilder.ILinkBuilder;
 import org.thymeleaf.linkbuilder.StandardLinkBuilder;
 import org.thymeleaf.messageresolver.IMessageResolver;
@@ -50,6 +67,10 @@
 import org.thymeleaf.templateparser.markup.decoupled.StandardDecoupledTemplateLogicResolver;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 import org.thymeleaf.templateresolver.StringTemplateResolver;
+import org.thymeleaf.util.ByteBufferPool;
+import org.thymeleaf.util.ByteChannelWriter;
+import org.thymeleaf.util.DeflaterPool;
+import org.thymeleaf.util.DeflatingOutputStream;
 import org.thymeleaf.util.FastStringWriter;
 import org.thymeleaf.util.LoggingUtils;
 import org.thymeleaf.util.Validate;
@@ -241,6 +262,15 @@ public class TemplateEngine implements ITemplateEngine {
 
     private static final int NANOS_IN_SECOND = 1000000;
 
+    /**
+     * <p>
+     *   Default maximum time (in milliseconds) to wait for each lazy variable being prefetched: {@value}
+     * </p>
+     *
+     * @since 3.0.8
+     */
+    public static final long DEFAULT_LAZY_VARIABLE_PREFETCH_TIMEOUT = 10000L;
+
     private volatile boolean initialized = false;
 
     private final Set<DialectConfiguration> dialectConfigurations = new LinkedHashSet<DialectConfiguration>(3);
@@ -250,6 +280,19 @@ public class TemplateEngine implements ITemplateEngine {
     private ICacheManager cacheManager = null;
     private IEngineContextFactory engineContextFactory = null;
     private IDecoupledTemplateLogicResolver decoupledTemplateLogicResolver = null;
+    private boolean useHandlerPooling = false;
+    private Executor parallelRenderingExecutor = null;
+    private Executor lazyVariablePrefetchExecutor = null;
+    private long lazyVariablePrefetchTimeout = DEFAULT_LAZY_VARIABLE_PREFETCH_TIMEOUT;
+    private ByteBufferPool outputBufferPool = new ByteBufferPool();
+    private DeflaterPool deflaterPool = new DeflaterPool();
+    private IFlushPolicy flushPolicy = null;
+    private boolean minifyTemplates = false;
+    private boolean linkStaticFragments = false;
+    private boolean compactCachedTemplates = false;
+    private boolean internCachedTemplateEvents = false;
+    private boolean coalesceCachedTemplateTexts = false;
+    private boolean revalidateNonCacheableTemplates = false;
 
 
     private IEngineConfiguration configuration = null;
@@ -337,7 +380,12 @@ final void initialize() {
                             new EngineConfiguration(
                                     this.templateResolvers, this.messageResolvers, this.linkBuilders,
                                     this.dialectConfigurations, this.cacheManager, this.engineContextFactory,
-                                    this.decoupledTemplateLogicResolver);
+                                    this.decoupledTemplateLogicResolver, this.useHandlerPooling,
+                                    this.parallelRenderingExecutor,
+                                    this.lazyVariablePrefetchExecutor, this.lazyVariablePrefetchTimeout,
+                                    this.flushPolicy, this.minifyTemplates, this.linkStaticFragments,
+                                    this.compactCachedTemplates, this.internCachedTemplateEvents,
+                                    this.coalesceCachedTemplateTexts, this.revalidateNonCacheableTemplates);
                     ((EngineConfiguration)this.configuration).initialize();
 
                     this.initialized = true;
@@ -816,24 +864,41 @@ public void setDecoupledTemplateLogicResolver(final IDecoupledTemplateLogicResol
         this.decoupledTemplateLogicResolver = decoupledTemplateLogicResolver;
     }
 
-    
+
     /**
      * <p>
-     *   Returns the set of Message Resolvers configured for this Template Engine.
+     *   Returns whether the template handlers used for processing templates are reused between executions.
      * </p>
-     * 
-     * @return the set of message resolvers.
+     * <p>
+     *   By default, handler pooling is disabled.
+     * </p>
+     *
+     * @return whether template handlers are pooled or not.
+     *
+     * @since 3.0.8
      */
-    public final Set<IMessageResolver> getMessageResolvers() {
-        if (this.initialized) {
-            return this.configuration.getMessageResolvers();
-        }
-        return Collections.unmodifiableSet(this.messageResolvers);
+    public final boolean getUseHandlerPooling() {
+        return this.useHandlerPooling;
     }
 
     /**
      * <p>
-     *   Sets the message resolvers to be used by this template engine.
+     *   Sets whether the template handlers used for processing templates (as well as their internal
+     *   structure handlers, model controllers, processor arrays and output handlers) should be kept in a
+     *   per-thread pool and reused between executions instead of being created for each of them. This reduces
+     *   the amount of objects allocated per template execution.
+     * </p>
+     * <p>
+     *   Handlers for configured pre- and post-processors are never reused, as they are instances of user-provided
+     *   classes that offer no way of being reset. Engine contexts are not reused either.
+     * </p>
+     * <p>
+     *   Pooling only applies to non-throttled executions. Pools are bound to the threads executing the
+     *   engine, so this should only be enabled when templates are processed by a bounded set of (pooled)
+     *   threads.
+     * </p>
+     * <p>
+     *   By default, handler pooling is disabled.
      * </p>
      * <p>
      *   This operation can only be executed before processing templates for the first
@@ -841,22 +906,52 @@ public final Set<IMessageResolver> getMessageResolvers() {
      *   <i>initialized</i>, and from then on any attempt to change its configuration
      *   will result in an exception.
      * </p>
-     * 
-     * @param messageResolvers the Set of template resolvers.
+     *
+     * @param useHandlerPooling whether template handlers should be pooled or not.
+     *
+     * @since 3.0.8
      */
-    public void setMessageResolvers(final Set<IMessageResolver> messageResolvers) {
-        Validate.notNull(messageResolvers, "Message Resolver set cannot be null");
+    public void setUseHandlerPooling(final boolean useHandlerPooling) {
         checkNotInitialized();
-        this.messageResolvers.clear();
-        for (final IMessageResolver messageResolver : messageResolvers)  {
-            addMessageResolver(messageResolver);
-        }
+        this.useHandlerPooling = useHandlerPooling;
     }
-    
+
+
     /**
      * <p>
-     *   Adds a message resolver to the set of message resolvers to be used
-     *   by the template engine.
+     *   Returns the executor that will be used for rendering in parallel the fragments marked for
+     *   parallel insertion (<tt>th:parallel</tt>), if any.
+     * </p>
+     * <p>
+     *   By default, no executor is set and therefore parallel rendering is disabled.
+     * </p>
+     *
+     * @return the parallel rendering executor, or <tt>null</tt> if parallel rendering is disabled.
+     *
+     * @since 3.0.8
+     */
+    public final Executor getParallelRenderingExecutor() {
+        return this.parallelRenderingExecutor;
+    }
+
+    /**
+     * <p>
+     *   Sets the executor to be used for rendering in parallel the fragments inserted by means of
+     *   <tt>th:insert</tt> or <tt>th:replace</tt> on elements also marked with <tt>th:parallel</tt>.
+     * </p>
+     * <p>
+     *   Each of these fragments will be processed by the executor on a copy of the context variables
+     *   existing at the moment of insertion, while the rest of the template keeps being processed.
+     *   Output will be written in document order, and if more than one fragment fails, the exception
+     *   reported will always be the one raised by the first of them in document order.
+     * </p>
+     * <p>
+     *   Fragments inserted from a fragment that is already being rendered in parallel will be processed
+     *   synchronously. If the executor rejects a fragment, that fragment will also be processed
+     *   synchronously.
+     * </p>
+     * <p>
+     *   By default, no executor is set and therefore parallel rendering is disabled.
      * </p>
      * <p>
      *   This operation can only be executed before processing templates for the first
@@ -864,22 +959,53 @@ public void setMessageResolvers(final Set<IMessageResolver> messageResolvers) {
      *   <i>initialized</i>, and from then on any attempt to change its configuration
      *   will result in an exception.
      * </p>
-     * 
-     * @param messageResolver the new message resolver to be added.
+     *
+     * @param parallelRenderingExecutor the executor to be used, or <tt>null</tt> for disabling parallel rendering.
+     *
+     * @since 3.0.8
      */
-    public void addMessageResolver(final IMessageResolver messageResolver) {
-        Validate.notNull(messageResolver, "Message Resolver cannot be null");
+    public void setParallelRenderingExecutor(final Executor parallelRenderingExecutor) {
         checkNotInitialized();
-        this.messageResolvers.add(messageResolver);
+        this.parallelRenderingExecutor = parallelRenderingExecutor;
     }
 
+
     /**
      * <p>
-     *   Sets a single message resolver for this template engine.
+     *   Returns the executor that will be used for prefetching the lazy context variables referenced
+     *   by templates, if any.
      * </p>
      * <p>
-     *   Calling this method is equivalent to calling {@link #setMessageResolvers(Set)}
-     *   passing a Set with only one message resolver.
+     *   By default, no executor is set and therefore prefetching is disabled.
+     * </p>
+     *
+     * @return the prefetch executor, or <tt>null</tt> if prefetching is disabled.
+     *
+     * @since 3.0.8
+     */
+    public final Executor getLazyVariablePrefetchExecutor() {
+        return this.lazyVariablePrefetchExecutor;
+    }
+
+    /**
+     * <p>
+     *   Sets the executor to be used for prefetching lazy context variables
+     *   ({@link org.thymeleaf.context.ILazyContextVariable}).
+     * </p>
+     * <p>
+     *   When set, and before processing a template, the engine will look for the names of the variables
+     *   referenced from the variable expressions in the template and in the fragments it statically inserts
+     *   (e.g. <tt>th:insert="~{footer :: copy}"</tt>), and will load in parallel all the lazy variables
+     *   in the context that match any of those names. Each of them will be waited for at most the time
+     *   specified by {@link #setLazyVariablePrefetchTimeout(long)}, after which processing will simply go on
+     *   (and the variable will be resolved again on first use if its load has not finished by then).
+     * </p>
+     * <p>
+     *   Lazy variables not referenced from the template will not be loaded. Note that templates
+     *   which are not cacheable are never analyzed, and therefore never prefetched.
+     * </p>
+     * <p>
+     *   By default, no executor is set and therefore prefetching is disabled.
      * </p>
      * <p>
      *   This operation can only be executed before processing templates for the first
@@ -887,34 +1013,35 @@ public void addMessageResolver(final IMessageResolver messageResolver) {
      *   <i>initialized</i>, and from then on any attempt to change its configuration
      *   will result in an exception.
      * </p>
-     * 
-     * @param messageResolver the message resolver to be set.
+     *
+     * @param lazyVariablePrefetchExecutor the executor to be used, or <tt>null</tt> for disabling prefetching.
+     *
+     * @since 3.0.8
      */
-    public void setMessageResolver(final IMessageResolver messageResolver) {
-        Validate.notNull(messageResolver, "Message Resolver cannot be null");
+    public void setLazyVariablePrefetchExecutor(final Executor lazyVariablePrefetchExecutor) {
         checkNotInitialized();
-        this.messageResolvers.clear();
-        this.messageResolvers.add(messageResolver);
+        this.lazyVariablePrefetchExecutor = lazyVariablePrefetchExecutor;
     }
 
 
     /**
      * <p>
-     *   Returns the set of Link Builders configured for this Template Engine.
+     *   Returns the maximum time (in milliseconds) that will be waited for each lazy variable being prefetched.
      * </p>
      *
-     * @return the set of link builders.
+     * @return the prefetch timeout, in milliseconds.
+     *
+     * @since 3.0.8
      */
-    public final Set<ILinkBuilder> getLinkBuilders() {
-        if (this.initialized) {
-            return this.configuration.getLinkBuilders();
-        }
-        return Collections.unmodifiableSet(this.linkBuilders);
+    public final long getLazyVariablePrefetchTimeout() {
+        return this.lazyVariablePrefetchTimeout;
     }
 
     /**
      * <p>
-     *   Sets the link builders to be used by this template engine.
+     *   Sets the maximum time (in milliseconds) that will be waited for each lazy variable being prefetched
+     *   (see {@link #setLazyVariablePrefetchExecutor(Executor)}). Default is
+     *   {@link #DEFAULT_LAZY_VARIABLE_PREFETCH_TIMEOUT}.
      * </p>
      * <p>
      *   This operation can only be executed before processing templates for the first
@@ -923,21 +1050,37 @@ public final Set<ILinkBuilder> getLinkBuilders() {
      *   will result in an exception.
      * </p>
      *
-     * @param linkBuilders the Set of link builders.
+     * @param lazyVariablePrefetchTimeout the timeout, in milliseconds.
+     *
+     * @since 3.0.8
      */
-    public void setLinkBuilders(final Set<ILinkBuilder> linkBuilders) {
-        Validate.notNull(linkBuilders, "Link Builder set cannot be null");
+    public void setLazyVariablePrefetchTimeout(final long lazyVariablePrefetchTimeout) {
         checkNotInitialized();
-        this.linkBuilders.clear();
-        for (final ILinkBuilder linkBuilder : linkBuilders)  {
-            addLinkBuilder(linkBuilder);
-        }
+        Validate.isTrue(lazyVariablePrefetchTimeout >= 0, "Lazy variable prefetch timeout cannot be negative");
+        this.lazyVariablePrefetchTimeout = lazyVariablePrefetchTimeout;
     }
 
+
     /**
      * <p>
-     *   Adds a link builder to the set of link builders to be used
-     *   by the template engine.
+     *   Returns the pool of {@link java.nio.ByteBuffer} objects used for writing output to channels (see
+     *   {@link #process(TemplateSpec, IContext, WritableByteChannel, Charset)}).
+     * </p>
+     *
+     * @return the output buffer pool.
+     *
+     * @since 3.0.8
+     */
+    public final ByteBufferPool getOutputBufferPool() {
+        return this.outputBufferPool;
+    }
+
+    /**
+     * <p>
+     *   Sets the pool of {@link java.nio.ByteBuffer} objects to be used for writing output to channels (see
+     *   {@link #process(TemplateSpec, IContext, WritableByteChannel, Charset)}). By default, a pool of
+     *   {@link ByteBufferPool#DEFAULT_BUFFER_SIZE}-byte heap buffers is used. Pools creating <em>direct</em>
+     *   buffers can avoid further copies of the output when writing to some channel implementations.
      * </p>
      * <p>
      *   This operation can only be executed before processing templates for the first
@@ -946,21 +1089,37 @@ public void setLinkBuilders(final Set<ILinkBuilder> linkBuilders) {
      *   will result in an exception.
      * </p>
      *
-     * @param linkBuilder the new link builder to be added.
+     * @param outputBufferPool the pool to be used (cannot be null).
+     *
+     * @since 3.0.8
      */
-    public void addLinkBuilder(final ILinkBuilder linkBuilder) {
-        Validate.notNull(linkBuilder, "Link Builder cannot be null");
+    public void setOutputBufferPool(final ByteBufferPool outputBufferPool) {
         checkNotInitialized();
-        this.linkBuilders.add(linkBuilder);
+        Validate.notNull(outputBufferPool, "Output buffer pool cannot be null");
+        this.outputBufferPool = outputBufferPool;
     }
 
+
     /**
      * <p>
-     *   Sets a single link builder for this template engine.
+     *   Returns the pool of {@link java.util.zip.Deflater} objects used for compressing output (see
+     *   {@link #processDeflated(TemplateSpec, IContext, OutputStream, Charset, boolean)}).
      * </p>
+     *
+     * @return the deflater pool.
+     *
+     * @since 3.0.8
+     */
+    public final DeflaterPool getDeflaterPool() {
+        return this.deflaterPool;
+    }
+
+    /**
      * <p>
-     *   Calling this method is equivalent to calling {@link #setLinkBuilders(Set)}
-     *   passing a Set with only one link builder.
+     *   Sets the pool of {@link java.util.zip.Deflater} objects to be used for compressing output (see
+     *   {@link #processDeflated(TemplateSpec, IContext, OutputStream, Charset, boolean)}), which also
+     *   determines the compression level. By default, a pool of deflaters using the default compression
+     *   level is used.
      * </p>
      * <p>
      *   This operation can only be executed before processing templates for the first
@@ -969,100 +1128,625 @@ public void addLinkBuilder(final ILinkBuilder linkBuilder) {
      *   will result in an exception.
      * </p>
      *
-     * @param linkBuilder the message resolver to be set.
+     * @param deflaterPool the pool to be used (cannot be null).
+     *
+     * @since 3.0.8
      */
-    public void setLinkBuilder(final ILinkBuilder linkBuilder) {
-        Validate.notNull(linkBuilder, "Link Builder cannot be null");
+    public void setDeflaterPool(final DeflaterPool deflaterPool) {
         checkNotInitialized();
-        this.linkBuilders.clear();
-        this.linkBuilders.add(linkBuilder);
+        Validate.notNull(deflaterPool, "Deflater pool cannot be null");
+        this.deflaterPool = deflaterPool;
     }
 
-    
-    
-    
 
-    
-    
     /**
      * <p>
-     *   Completely clears the Template Cache.
+     *   Returns the flush policy to be applied when processing templates, if any.
+     * </p>
+     *
+     * @return the flush policy, or <tt>null</tt> if output is only flushed once processing finishes.
+     *
+     * @since 3.0.8
+     */
+    public final IFlushPolicy getFlushPolicy() {
+        return this.flushPolicy;
+    }
+
+    /**
+     * <p>
+     *   Sets the flush policy to be applied when processing templates, which will determine the points at which
+     *   output is flushed during processing (e.g. after <tt>&lt;/head&gt;</tt>, or every time a certain amount
+     *   of output has been written), instead of only once processing finishes. See the implementations of
+     *   {@link IFlushPolicy} for the available policies.
      * </p>
      * <p>
-     *   If this method is called before the TemplateEngine has been initialized,
-     *   it causes its initialization.
+     *   Flush policies are not applied to throttled executions, and will have no effect at all if any
+     *   post-processors have been configured.
+     * </p>
+     * <p>
+     *   By default, no flush policy is set and output is only flushed once processing finishes.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
      * </p>
+     *
+     * @param flushPolicy the flush policy, or <tt>null</tt> for only flushing once processing finishes.
+     *
+     * @since 3.0.8
      */
-    public void clearTemplateCache() {
-        if (!this.initialized) {
-            initialize();
-        }
-        this.configuration.getTemplateManager().clearCaches();
+    public void setFlushPolicy(final IFlushPolicy flushPolicy) {
+        checkNotInitialized();
+        this.flushPolicy = flushPolicy;
     }
 
 
     /**
      * <p>
-     *   Clears the entry in the Template Cache for the specified
-     *   template, if it is currently cached.
-     * </p>
-     * <p>
-     *   If this method is called before the TemplateEngine has been initialized,
-     *   it causes its initialization.
+     *   Returns whether the sources of <tt>HTML</tt>, <tt>JAVASCRIPT</tt> and <tt>CSS</tt> templates are
+     *   minified while being parsed.
      * </p>
-     * 
-     * @param templateName the name of the template to be cleared from cache.
+     *
+     * @return <tt>true</tt> if templates are minified, <tt>false</tt> if not.
+     *
+     * @since 3.0.8
      */
-    public void clearTemplateCacheFor(final String templateName) {
-        Validate.notNull(templateName, "Template name cannot be null");
-        if (!this.initialized) {
-            initialize();
-        }
-        this.configuration.getTemplateManager().clearCachesFor(templateName);
+    public final boolean getMinifyTemplates() {
+        return this.minifyTemplates;
     }
-    
-    
-    
 
-    
-    
     /**
      * <p>
-     *   Internal method that retrieves the thread name/index for the
-     *   current template execution. 
+     *   Sets whether the sources of <tt>HTML</tt>, <tt>JAVASCRIPT</tt> and <tt>CSS</tt> templates should be
+     *   minified while being parsed, removing the whitespace and comments which would otherwise be directly
+     *   sent to output.
      * </p>
      * <p>
-     *   THIS METHOD IS INTERNAL AND SHOULD <b>NEVER</b> BE CALLED DIRECTLY.
+     *   For <tt>HTML</tt> templates, whitespace sequences in texts are collapsed into a single whitespace
+     *   char, and comments are removed (except conditional comments and comments containing inlined expressions).
+     *   The contents of <tt>&lt;pre&gt;</tt>, <tt>&lt;textarea&gt;</tt>, <tt>&lt;script&gt;</tt> and
+     *   <tt>&lt;style&gt;</tt> elements are never modified. For <tt>JAVASCRIPT</tt> and <tt>CSS</tt> templates,
+     *   only indentation and blank lines are removed.
      * </p>
-     * 
-     * @return the index of the current execution.
+     * <p>
+     *   Minification is performed in a streaming fashion while templates are parsed, so cached templates are
+     *   minified only once. Output produced during processing (e.g. by <tt>th:text</tt>) is never modified.
+     * </p>
+     * <p>
+     *   By default, templates are not minified.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param minifyTemplates whether templates should be minified or not.
+     *
+     * @since 3.0.8
      */
-    public static String threadIndex() {
-        return Thread.currentThread().getName();
+    public void setMinifyTemplates(final boolean minifyTemplates) {
+        checkNotInitialized();
+        this.minifyTemplates = minifyTemplates;
     }
 
 
-
-
-    public final String process(final String template, final IContext context) {
-        return process(new TemplateSpec(template, null, null, null,null), context);
+    /**
+     * <p>
+     *   Returns whether static fragment references in <tt>th:insert</tt>, <tt>th:replace</tt> and
+     *   <tt>th:include</tt> attributes are linked to the cached templates that contain them.
+     * </p>
+     *
+     * @return <tt>true</tt> if static fragment references are linked, <tt>false</tt> if not.
+     *
+     * @since 3.0.8
+     */
+    public final boolean getLinkStaticFragments() {
+        return this.linkStaticFragments;
     }
 
-
-    public final String process(final String template, final Set<String> templateSelectors, final IContext context) {
-        return process(new TemplateSpec(template, templateSelectors, null, null,null), context);
+    /**
+     * <p>
+     *   Sets whether static fragment references in <tt>th:insert</tt>, <tt>th:replace</tt> and
+     *   <tt>th:include</tt> attributes should be linked to the cached templates that contain them.
+     * </p>
+     * <p>
+     *   A fragment reference is considered static when it only contains a template name and, optionally,
+     *   fragment selectors, without any expressions or parameters (e.g. <tt>~{footer :: copy}</tt>). Once
+     *   such a reference has been resolved for the first time in a cached template, the resolved fragment
+     *   is linked to the cached template, and subsequent executions will insert it without evaluating the
+     *   fragment expression or looking it up at the template cache again.
+     * </p>
+     * <p>
+     *   Clearing the cache entries for a template (see {@link #clearTemplateCacheFor(String)}) also clears
+     *   the cache entries for every template that linked any of its fragments. Linking is not performed if pre-processors have been configured for
+     *   the template mode of the inserted fragments.
+     * </p>
+     * <p>
+     *   By default, static fragment references are not linked.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param linkStaticFragments whether static fragment references should be linked or not.
+     *
+     * @since 3.0.8
+     */
+    public void setLinkStaticFragments(final boolean linkStaticFragments) {
+        checkNotInitialized();
+        this.linkStaticFragments = linkStaticFragments;
     }
 
 
-    public final String process(final TemplateSpec templateSpec, final IContext context) {
-        final Writer stringWriter = new FastStringWriter(100);
-        process(templateSpec, context, stringWriter);
-        return stringWriter.toString();
+    /**
+     * <p>
+     *   Returns whether the textual contents of cached templates are stored in compact form.
+     * </p>
+     *
+     * @return <tt>true</tt> if cached templates are compacted, <tt>false</tt> if not.
+     *
+     * @since 3.0.8
+     */
+    public final boolean getCompactCachedTemplates() {
+        return this.compactCachedTemplates;
     }
 
+    /**
+     * <p>
+     *   Sets whether the textual contents (texts, comments and CDATA sections) of cached templates should be
+     *   stored in compact form.
+     * </p>
+     * <p>
+     *   When enabled, the textual contents of each template are copied into a single character array before
+     *   the template is put into the template cache, and its events reference slices of this array instead of
+     *   holding a separate <tt>String</tt> each. This reduces the memory footprint of the template cache when
+     *   many templates are cached. Slices are written directly to output, so no <tt>String</tt> objects are
+     *   created for them during processing unless needed (e.g. for texts containing inlined expressions).
+     * </p>
+     * <p>
+     *   By default, cached templates are not compacted.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param compactCachedTemplates whether cached templates should be compacted or not.
+     *
+     * @since 3.0.8
+     */
+    public void setCompactCachedTemplates(final boolean compactCachedTemplates) {
+        checkNotInitialized();
+        this.compactCachedTemplates = compactCachedTemplates;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether repeated immutable events and attributes of cached templates are shared among templates.
+     * </p>
+     *
+     * @return <tt>true</tt> if events are shared, <tt>false</tt> if not.
+     *
+     * @since 3.0.8
+     */
+    public final boolean getInternCachedTemplateEvents() {
+        return this.internCachedTemplateEvents;
+    }
+
+    /**
+     * <p>
+     *   Sets whether repeated immutable events and attributes of cached templates should be shared among
+     *   templates by means of an engine-wide, weakly referenced interning table.
+     * </p>
+     * <p>
+     *   When enabled, short texts (e.g. whitespace), close tags, and element tags and attributes without any
+     *   associated processors are replaced by shared instances while cacheable templates are being parsed,
+     *   reducing the memory footprint of the template cache. Shared instances do not contain location
+     *   information (template name, line and column), so errors happening while writing them to output will
+     *   be reported without location. Processable events and attributes are never shared.
+     * </p>
+     * <p>
+     *   By default, events are not shared.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param internCachedTemplateEvents whether events of cached templates should be shared or not.
+     *
+     * @since 3.0.8
+     */
+    public void setInternCachedTemplateEvents(final boolean internCachedTemplateEvents) {
+        checkNotInitialized();
+        this.internCachedTemplateEvents = internCachedTemplateEvents;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether adjacent texts (and comments) of cached templates are merged into single text events.
+     * </p>
+     *
+     * @return <tt>true</tt> if texts are merged, <tt>false</tt> if not.
+     *
+     * @since 3.0.8
+     */
+    public final boolean getCoalesceCachedTemplateTexts() {
+        return this.coalesceCachedTemplateTexts;
+    }
+
+    /**
+     * <p>
+     *   Sets whether sequences of adjacent texts of cached templates should be merged into single text events
+     *   before the templates are put into the template cache, so that less events have to be handled each time
+     *   they are processed. Comments are merged along with texts if they are output verbatim.
+     * </p>
+     * <p>
+     *   Merging never changes output: texts and comments are only merged if they cannot be subject to inlining
+     *   and no processors other than those of the Standard Dialect apply to them, and whitespace texts that
+     *   might be repeated between the iterations of a following element are left apart. Note however that
+     *   merged texts are reported as being located at the position of their first component.
+     * </p>
+     * <p>
+     *   By default, texts are not merged.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param coalesceCachedTemplateTexts whether adjacent texts of cached templates should be merged or not.
+     *
+     * @since 3.0.8
+     */
+    public void setCoalesceCachedTemplateTexts(final boolean coalesceCachedTemplateTexts) {
+        checkNotInitialized();
+        this.coalesceCachedTemplateTexts = coalesceCachedTemplateTexts;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether templates that are not cacheable according to their template resolvers will be cached
+     *   anyway, and re-validated by checking the version of their resources each time they are used.
+     * </p>
+     * <p>
+     *   See {@link #setRevalidateNonCacheableTemplates(boolean)}.
+     * </p>
+     *
+     * @return whether non-cacheable templates will be cached and re-validated or not.
+     *
+     * @since 3.0.8
+     */
+    public final boolean getRevalidateNonCacheableTemplates() {
+        return this.revalidateNonCacheableTemplates;
+    }
+
+    /**
+     * <p>
+     *   Sets whether templates that are not cacheable according to their template resolvers (as usually
+     *   configured during development) should be cached anyway, as long as the
+     *   {@link org.thymeleaf.templateresource.ITemplateResource} they are read from is able to compute a
+     *   version of its contents (see {@link org.thymeleaf.templateresource.IVersionedTemplateResource}).
+     * </p>
+     * <p>
+     *   Such templates are re-validated each time they are obtained from the template cache by comparing the
+     *   current version of their resources (and that of their decoupled logic resources, if used) with the one
+     *   they were parsed from, which for file-based resources only requires checking their modification
+     *   timestamps and sizes. This way, only those templates that have actually been modified are parsed again.
+     *   Fragments linked from other templates (see {@link #setLinkStaticFragments(boolean)}) are re-validated
+     *   in the same way, so that modifying a fragment does not require parsing the templates that insert it.
+     * </p>
+     * <p>
+     *   This has no effect if no Cache Manager has been configured. By default, non-cacheable templates are
+     *   parsed again each time they are used.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param revalidateNonCacheableTemplates whether non-cacheable templates should be cached and re-validated
+     *                                        or not.
+     *
+     * @since 3.0.8
+     */
+    public void setRevalidateNonCacheableTemplates(final boolean revalidateNonCacheableTemplates) {
+        checkNotInitialized();
+        this.revalidateNonCacheableTemplates = revalidateNonCacheableTemplates;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the set of Message Resolvers configured for this Template Engine.
+     * </p>
+     * 
+     * @return the set of message resolvers.
+     */
+    public final Set<IMessageResolver> getMessageResolvers() {
+        if (this.initialized) {
+            return this.configuration.getMessageResolvers();
+        }
+        return Collections.unmodifiableSet(this.messageResolvers);
+    }
+
+    /**
+     * <p>
+     *   Sets the message resolvers to be used by this template engine.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     * 
+     * @param messageResolvers the Set of template resolvers.
+     */
+    public void setMessageResolvers(final Set<IMessageResolver> messageResolvers) {
+        Validate.notNull(messageResolvers, "Message Resolver set cannot be null");
+        checkNotInitialized();
+        this.messageResolvers.clear();
+        for (final IMessageResolver messageResolver : messageResolvers)  {
+            addMessageResolver(messageResolver);
+        }
+    }
+    
+    /**
+     * <p>
+     *   Adds a message resolver to the set of message resolvers to be used
+     *   by the template engine.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     * 
+     * @param messageResolver the new message resolver to be added.
+     */
+    public void addMessageResolver(final IMessageResolver messageResolver) {
+        Validate.notNull(messageResolver, "Message Resolver cannot be null");
+        checkNotInitialized();
+        this.messageResolvers.add(messageResolver);
+    }
+
+    /**
+     * <p>
+     *   Sets a single message resolver for this template engine.
+     * </p>
+     * <p>
+     *   Calling this method is equivalent to calling {@link #setMessageResolvers(Set)}
+     *   passing a Set with only one message resolver.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     * 
+     * @param messageResolver the message resolver to be set.
+     */
+    public void setMessageResolver(final IMessageResolver messageResolver) {
+        Validate.notNull(messageResolver, "Message Resolver cannot be null");
+        checkNotInitialized();
+        this.messageResolvers.clear();
+        this.messageResolvers.add(messageResolver);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the set of Link Builders configured for this Template Engine.
+     * </p>
+     *
+     * @return the set of link builders.
+     */
+    public final Set<ILinkBuilder> getLinkBuilders() {
+        if (this.initialized) {
+            return this.configuration.getLinkBuilders();
+        }
+        return Collections.unmodifiableSet(this.linkBuilders);
+    }
+
+    /**
+     * <p>
+     *   Sets the link builders to be used by this template engine.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param linkBuilders the Set of link builders.
+     */
+    public void setLinkBuilders(final Set<ILinkBuilder> linkBuilders) {
+        Validate.notNull(linkBuilders, "Link Builder set cannot be null");
+        checkNotInitialized();
+        this.linkBuilders.clear();
+        for (final ILinkBuilder linkBuilder : linkBuilders)  {
+            addLinkBuilder(linkBuilder);
+        }
+    }
+
+    /**
+     * <p>
+     *   Adds a link builder to the set of link builders to be used
+     *   by the template engine.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param linkBuilder the new link builder to be added.
+     */
+    public void addLinkBuilder(final ILinkBuilder linkBuilder) {
+        Validate.notNull(linkBuilder, "Link Builder cannot be null");
+        checkNotInitialized();
+        this.linkBuilders.add(linkBuilder);
+    }
+
+    /**
+     * <p>
+     *   Sets a single link builder for this template engine.
+     * </p>
+     * <p>
+     *   Calling this method is equivalent to calling {@link #setLinkBuilders(Set)}
+     *   passing a Set with only one link builder.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param linkBuilder the message resolver to be set.
+     */
+    public void setLinkBuilder(final ILinkBuilder linkBuilder) {
+        Validate.notNull(linkBuilder, "Link Builder cannot be null");
+        checkNotInitialized();
+        this.linkBuilders.clear();
+        this.linkBuilders.add(linkBuilder);
+    }
+
+    
+    
+    
+
+    
+    
+    /**
+     * <p>
+     *   Completely clears the Template Cache.
+     * </p>
+     * <p>
+     *   If this method is called before the TemplateEngine has been initialized,
+     *   it causes its initialization.
+     * </p>
+     */
+    public void clearTemplateCache() {
+        if (!this.initialized) {
+            initialize();
+        }
+        this.configuration.getTemplateManager().clearCaches();
+    }
+
+
+    /**
+     * <p>
+     *   Clears the entry in the Template Cache for the specified
+     *   template, if it is currently cached.
+     * </p>
+     * <p>
+     *   If this method is called before the TemplateEngine has been initialized,
+     *   it causes its initialization.
+     * </p>
+     * 
+     * @param templateName the name of the template to be cleared from cache.
+     */
+    public void clearTemplateCacheFor(final String templateName) {
+        Validate.notNull(templateName, "Template name cannot be null");
+        if (!this.initialized) {
+            initialize();
+        }
+        this.configuration.getTemplateManager().clearCachesFor(templateName);
+    }
+    
+    
+    
+
+    
+    
+    /**
+     * <p>
+     *   Internal method that retrieves the thread name/index for the
+     *   current template execution. 
+     * </p>
+     * <p>
+     *   THIS METHOD IS INTERNAL AND SHOULD <b>NEVER</b> BE CALLED DIRECTLY.
+     * </p>
+     * 
+     * @return the index of the current execution.
+     */
+    public static String threadIndex() {
+        return Thread.currentThread().getName();
+    }
+
+
+
+
+    public final String process(final String template, final IContext context) {
+        return process(new TemplateSpec(template, null, null, null,null), context);
+    }
+
+
+    public final String process(final String template, final Set<String> templateSelectors, final IContext context) {
+        return process(new TemplateSpec(template, templateSelectors, null, null,null), context);
+    }
+
+
+    public final String process(final TemplateSpec templateSpec, final IContext context) {
+        // Initial size is small, but the buffer will be presized by the TemplateManager for cached templates
+        final Writer stringWriter = new FastStringWriter(100);
+        process(templateSpec, context, stringWriter);
+        return stringWriter.toString();
+    }
+
+
+    /**
+     * <p>
+     *   Process the specified template and return the result as a {@link CharSequence}, avoiding the copy of
+     *   the whole output that is needed for creating a {@link String}.
+     * </p>
+     * <p>
+     *   This is useful when output is going to be consumed as a sequence of chars (e.g. written to a
+     *   {@link Writer} by means of {@link Writer#append(CharSequence)}, or encoded by a
+     *   {@link java.nio.charset.CharsetEncoder}) and then discarded. In the same way as with
+     *   {@link #process(TemplateSpec, IContext)}, the buffer output is written into is presized according
+     *   to the output produced by previous executions of the same (cached) template.
+     * </p>
+     *
+     * @param templateSpec the template spec containing the template to be resolved and processed.
+     * @param context the context to be used for processing.
+     * @return the result of processing the template, as a read-only sequence of chars.
+     *
+     * @since 3.0.8
+     */
+    public final CharSequence processToCharSequence(final TemplateSpec templateSpec, final IContext context) {
+        final FastStringWriter stringWriter = new FastStringWriter(100);
+        process(templateSpec, context, stringWriter);
+        return stringWriter.toCharSequence();
+    }
+
+
 
 
-
     public final void process(final String template, final IContext context, final Writer writer) {
         process(new TemplateSpec(template, null, null, null,null), context, writer);
     }
@@ -1148,6 +1832,306 @@ public final void process(final TemplateSpec templateSpec, final IContext contex
 
 
 
+    /**
+     * <p>
+     *   Process the specified template and write the result directly to the specified channel, encoded using
+     *   the specified charset.
+     * </p>
+     * <p>
+     *   Output is encoded into buffers obtained from the pool set at {@link #setOutputBufferPool(ByteBufferPool)}
+     *   (which might be configured to create <em>direct</em> buffers), and these buffers are directly written
+     *   to the channel once they are full, avoiding any intermediate copies of the output. The channel is
+     *   expected to be in <em>blocking mode</em>, and will not be closed.
+     * </p>
+     *
+     * @param templateSpec the template spec containing the template to be resolved and processed.
+     * @param context the context to be used for processing.
+     * @param channel the channel the result will be written to.
+     * @param charset the charset to be used for encoding the result.
+     *
+     * @since 3.0.8
+     */
+    public final void process(
+            final TemplateSpec templateSpec, final IContext context,
+            final WritableByteChannel channel, final Charset charset) {
+
+        Validate.notNull(channel, "Channel cannot be null");
+        Validate.notNull(charset, "Charset cannot be null");
+
+        if (!this.initialized) {
+            initialize();
+        }
+
+        final ByteChannelWriter writer = new ByteChannelWriter(channel, charset, this.outputBufferPool);
+
+        try {
+
+            process(templateSpec, context, writer);
+
+            try {
+                writer.finish();
+            } catch (final IOException e) {
+                throw new TemplateOutputException("An error happened while writing output to channel", templateSpec.getTemplate(), -1, -1, e);
+            }
+
+        } finally {
+            // Will do nothing if output was correctly finished
+            writer.discard();
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Process the specified template and write the result to the specified output stream, encoded using
+     *   the specified charset and compressed in <tt>gzip</tt> or <tt>zlib</tt> (HTTP's <tt>deflate</tt>
+     *   content coding) format.
+     * </p>
+     * <p>
+     *   Compression is performed by a {@link DeflatingOutputStream} using a {@link java.util.zip.Deflater}
+     *   obtained from the pool set at {@link #setDeflaterPool(DeflaterPool)}, so there is no need to compress
+     *   the output again afterwards (e.g. in a servlet filter). If a flush policy has been configured (see
+     *   {@link #setFlushPolicy(IFlushPolicy)}), compressed output is <em>sync-flushed</em> at the points
+     *   established by the policy, so that clients can start decompressing it before processing finishes. The
+     *   output stream will not be closed.
+     * </p>
+     * <p>
+     *   Throttled processors can produce compressed output in a similar way by writing to a
+     *   {@link DeflatingOutputStream} (which is flushed at the end of each throttled step), and calling
+     *   {@link DeflatingOutputStream#finish()} once processing finishes.
+     * </p>
+     *
+     * @param templateSpec the template spec containing the template to be resolved and processed.
+     * @param context the context to be used for processing.
+     * @param outputStream the stream the compressed result will be written to.
+     * @param charset the charset to be used for encoding the result.
+     * @param gzip <tt>true</tt> for <tt>gzip</tt> format, <tt>false</tt> for <tt>zlib</tt> format.
+     *
+     * @since 3.0.8
+     */
+    public final void processDeflated(
+            final TemplateSpec templateSpec, final IContext context,
+            final OutputStream outputStream, final Charset charset, final boolean gzip) {
+
+        Validate.notNull(outputStream, "Output stream cannot be null");
+        Validate.notNull(charset, "Charset cannot be null");
+
+        if (!this.initialized) {
+            initialize();
+        }
+
+        final DeflatingOutputStream deflatingOutputStream =
+                new DeflatingOutputStream(outputStream, this.deflaterPool, gzip);
+        final ByteChannelWriter writer = new ByteChannelWriter(deflatingOutputStream, charset, this.outputBufferPool);
+
+        try {
+
+            process(templateSpec, context, writer);
+
+            try {
+                writer.finish();
+                deflatingOutputStream.finish();
+            } catch (final IOException e) {
+                throw new TemplateOutputException("An error happened while writing compressed output", templateSpec.getTemplate(), -1, -1, e);
+            }
+
+        } finally {
+            // Will do nothing if output was correctly finished
+            writer.discard();
+            deflatingOutputStream.discard();
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Process the specified template asynchronously, using the specified executor, and return a
+     *   {@link Future} that will contain the result.
+     * </p>
+     * <p>
+     *   See {@link #processAsync(TemplateSpec, IContext, Writer, Executor)} for details on asynchronous processing.
+     * </p>
+     *
+     * @param templateSpec the template spec containing the template to be resolved and processed.
+     * @param context the context to be used for processing.
+     * @param executor the executor that will process the template and load asynchronous variables.
+     * @return a future that will contain the result of processing the template.
+     *
+     * @since 3.0.8
+     */
+    public final Future<String> processAsync(final TemplateSpec templateSpec, final IContext context, final Executor executor) {
+
+        Validate.notNull(templateSpec, "Template Specification cannot be null");
+        Validate.notNull(context, "Context cannot be null");
+        Validate.notNull(executor, "Executor cannot be null");
+
+        final IContext asyncContext = prepareAsyncContext(context, executor);
+
+        final FutureTask<String> task =
+                new FutureTask<String>(new Callable<String>() {
+                    public String call() throws Exception {
+                        return process(templateSpec, asyncContext);
+                    }
+                });
+        executor.execute(task);
+
+        return task;
+
+    }
+
+
+    /**
+     * <p>
+     *   Process the specified template asynchronously, using the specified executor, and write the result to
+     *   the specified output stream using the specified charset.
+     * </p>
+     * <p>
+     *   See {@link #processAsync(TemplateSpec, IContext, Writer, Executor)} for details on asynchronous processing.
+     * </p>
+     *
+     * @param templateSpec the template spec containing the template to be resolved and processed.
+     * @param context the context to be used for processing.
+     * @param outputStream the output stream the result will be written to.
+     * @param charset the charset to be used for writing the result.
+     * @param executor the executor that will process the template and load asynchronous variables.
+     * @return a future that will be done once processing has finished and all output has been flushed.
+     *
+     * @since 3.0.8
+     */
+    public final Future<Void> processAsync(
+            final TemplateSpec templateSpec, final IContext context,
+            final OutputStream outputStream, final Charset charset, final Executor executor) {
+        Validate.notNull(outputStream, "Output Stream cannot be null");
+        Validate.notNull(charset, "Charset cannot be null");
+        return processAsync(templateSpec, context, new OutputStreamWriter(outputStream, charset), executor);
+    }
+
+
+    /**
+     * <p>
+     *   Process the specified template asynchronously, using the specified executor, and write the result to
+     *   the specified writer.
+     * </p>
+     * <p>
+     *   Before processing starts, the context variables are examined so that slow loads can overlap instead
+     *   of being performed one after the other, in the order in which the template uses them:
+     * </p>
+     * <ul>
+     *   <li>Variables containing {@link Future} objects will be wrapped into {@link FutureContextVariable}
+     *       objects, so that templates can directly use the results of these futures, only waiting for them
+     *       when they are actually needed.</li>
+     *   <li>Lazy variables implementing {@link IAsyncLazyContextVariable} will start being loaded on the
+     *       specified executor.</li>
+     * </ul>
+     * <p>
+     *   The specified context object will not be modified. Note these operations are not performed on
+     *   {@link org.thymeleaf.context.IEngineContext} implementations, which will be used as they are.
+     * </p>
+     * <p>
+     *   The writer will be flushed once processing finishes. Any exception raised during processing will be
+     *   reported by the returned future (wrapped into an {@link java.util.concurrent.ExecutionException}).
+     * </p>
+     * <p>
+     *   No monitors are held by the engine while waiting for variable values to be loaded, so asynchronous
+     *   processing is safe to be used with executors running tasks on lightweight threads.
+     * </p>
+     *
+     * @param templateSpec the template spec containing the template to be resolved and processed.
+     * @param context the context to be used for processing.
+     * @param writer the writer the result will be written to.
+     * @param executor the executor that will process the template and load asynchronous variables.
+     * @return a future that will be done once processing has finished and all output has been flushed.
+     *
+     * @since 3.0.8
+     */
+    public final Future<Void> processAsync(
+            final TemplateSpec templateSpec, final IContext context, final Writer writer, final Executor executor) {
+
+        Validate.notNull(templateSpec, "Template Specification cannot be null");
+        Validate.notNull(context, "Context cannot be null");
+        Validate.notNull(writer, "Writer cannot be null");
+        Validate.notNull(executor, "Executor cannot be null");
+
+        final IContext asyncContext = prepareAsyncContext(context, executor);
+
+        final FutureTask<Void> task =
+                new FutureTask<Void>(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        process(templateSpec, asyncContext, writer);
+                        return null;
+                    }
+                });
+        executor.execute(task);
+
+        return task;
+
+    }
+
+
+    /*
+     * Creates a copy of the context in which Future variables are wrapped so that they can be transparently used
+     * from templates, and starts loading the asynchronous lazy variables.
+     */
+    @SuppressWarnings("unchecked")
+    private static IContext prepareAsyncContext(final IContext context, final Executor executor) {
+
+        if (context instanceof IEngineContext) {
+            // These are internal contexts that will be directly used for processing, so we cannot copy them
+            return context;
+        }
+
+        final Set<String> variableNames = context.getVariableNames();
+        final Map<String,Object> variables = new HashMap<String, Object>(variableNames.size() + 1, 1.0f);
+        for (final String variableName : variableNames) {
+
+            final Object value = context.getVariable(variableName);
+
+            if (value instanceof Future<?>) {
+                variables.put(variableName, new FutureContextVariable<Object>((Future<Object>) value));
+                continue;
+            }
+
+            if (value instanceof IAsyncLazyContextVariable<?>) {
+                final IAsyncLazyContextVariable<?> asyncVariable = (IAsyncLazyContextVariable<?>) value;
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                asyncVariable.getValue();
+                            } catch (final Exception e) {
+                                // Nothing to do: the template will try to load it again if needed, and fail then
+                                logger.trace(String.format("[THYMELEAF][%s] Asynchronous load of context variable failed", new Object[] {TemplateEngine.threadIndex()}), e);
+                            }
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    // Nothing to do: the variable will be loaded by the template if needed
+                }
+            }
+
+            variables.put(variableName, value);
+
+        }
+
+        if (context instanceof IWebContext) {
+            final IWebContext webContext = (IWebContext) context;
+            return new WebContext(
+                    webContext.getRequest(), webContext.getResponse(), webContext.getServletContext(),
+                    context.getLocale(), variables);
+        }
+
+        return new Context(context.getLocale(), variables);
+
+    }
+
+
+
 
     public final IThrottledTemplateProcessor processThrottled(final String template, final IContext context) {
         return processThrottled(new TemplateSpec(template, null, null, null, null), context);
@@ -221,6 +221,36 @@ public Set<String> getVariableNames() {
     }
 
 
+
+    /*
+     * Returns a flat copy of all the variables currently visible at this context, without resolving any lazy
+     * variables. Only meant for internal use when forking contexts (see EngineContextForkUtils).
+     */
+    Map<String,Object> getVariablesSnapshot() {
+
+        final Map<String,Object> snapshot = new HashMap<String, Object>(DEFAULT_MAP_SIZE * (this.index + 1) + 1, 1.0f);
+        int n = this.index + 1;
+        int i = 0;
+        while (n-- != 0) {
+            if (this.maps[i] != null) {
+                for (final Map.Entry<String,Object> mapEntry : this.maps[i].entrySet()) {
+                    final Object value = mapEntry.getValue();
+                    if (value == NON_EXISTING) {
+                        snapshot.remove(mapEntry.getKey());
+                    } else if (value == NULL) {
+                        snapshot.put(mapEntry.getKey(), null);
+                    } else {
+                        snapshot.put(mapEntry.getKey(), value);
+                    }
+                }
+            }
+            i++;
+        }
+        return snapshot;
+
+    }
+
+
     public void setVariable(final String name, final Object value) {
 
         ensureLevelInitialized(DEFAULT_MAP_SIZE);
@@ -0,0 +1,202 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.context;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.engine.TemplateData;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Utility class for creating copies (<em>forks</em>) of {@link IEngineContext} objects, so that part of a
+ *   template can be processed on a different thread than the one processing the rest of it.
+ * </p>
+ * <p>
+ *   Forked contexts contain a copy of all the variables visible at the original context at the moment of
+ *   forking (including local variables), as well as its selection target and inliner. Changes made to the
+ *   variables of a forked context are never visible at the original one, and vice versa.
+ * </p>
+ * <p>
+ *   Lazy variables ({@link ILazyContextVariable}) are copied without being resolved if the original context is
+ *   an {@link EngineContext} or {@link WebEngineContext}, which means both contexts might end up resolving them.
+ *   For any other implementations, variables will be resolved at the moment of forking.
+ * </p>
+ * <p>
+ *   In web environments, the forked context will work on a wrapper of the original request, containing an
+ *   isolated copy of the request attributes. Session and servlet context attributes, as well as request
+ *   parameters, will still be shared.
+ * </p>
+ * <p>
+ *   This is mostly an <strong>internal class</strong>, and its use is not recommended from user's code.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class EngineContextForkUtils {
+
+
+
+    /**
+     * <p>
+     *   Creates a fork of the specified context, which will be able to be used for processing templates
+     *   with the specified template data.
+     * </p>
+     * <p>
+     *   This method must be called from the thread currently using the original context.
+     * </p>
+     *
+     * @param context the context to be forked.
+     * @param templateData the template data to be set at the forked context.
+     * @return the forked context.
+     */
+    public static IEngineContext forkEngineContext(final IEngineContext context, final TemplateData templateData) {
+
+        Validate.notNull(context, "Context cannot be null");
+        Validate.notNull(templateData, "Template Data cannot be null");
+
+        final IEngineConfiguration configuration = context.getConfiguration();
+        final Map<String,Object> templateResolutionAttributes = context.getTemplateResolutionAttributes();
+
+        final IEngineContext forkedContext;
+        if (context instanceof EngineContext) {
+
+            forkedContext =
+                    new EngineContext(
+                            configuration, templateData, templateResolutionAttributes,
+                            context.getLocale(), ((EngineContext) context).getVariablesSnapshot());
+
+        } else if (context instanceof WebEngineContext) {
+
+            // Request attributes are the variables in web contexts (including local variables), so a copy of them
+            // will be the variables of our forked context. Request attributes are read raw, lazy ones not resolved.
+            final WebEngineContext webContext = (WebEngineContext) context;
+            forkedContext =
+                    new WebEngineContext(
+                            configuration, templateData, templateResolutionAttributes,
+                            new IsolatedAttributesRequestWrapper(webContext.getRequest()),
+                            webContext.getResponse(), webContext.getServletContext(),
+                            webContext.getLocale(), Collections.<String,Object>emptyMap());
+
+        } else {
+
+            // Unknown implementation, so the only thing we can do is copy (resolved) variables and ask the
+            // configured factory to create a new engine context for us
+            final Set<String> variableNames = context.getVariableNames();
+            final Map<String,Object> variables = new HashMap<String, Object>(variableNames.size() + 1, 1.0f);
+            for (final String variableName : variableNames) {
+                variables.put(variableName, context.getVariable(variableName));
+            }
+            final IContext contextCopy;
+            if (context instanceof IWebContext) {
+                final IWebContext webContext = (IWebContext) context;
+                contextCopy =
+                        new WebContext(
+                                new IsolatedAttributesRequestWrapper(webContext.getRequest()),
+                                webContext.getResponse(), webContext.getServletContext(),
+                                context.getLocale(), variables);
+            } else {
+                contextCopy = new Context(context.getLocale(), variables);
+            }
+            forkedContext =
+                    configuration.getEngineContextFactory().createEngineContext(
+                            configuration, templateData, templateResolutionAttributes, contextCopy);
+
+        }
+
+        if (context.hasSelectionTarget()) {
+            forkedContext.setSelectionTarget(context.getSelectionTarget());
+        }
+        if (context.getInliner() != null) {
+            forkedContext.setInliner(context.getInliner());
+        }
+
+        return forkedContext;
+
+    }
+
+
+
+
+    private EngineContextForkUtils() {
+        super();
+    }
+
+
+
+
+    /*
+     * Request wrapper that contains a copy of the request attributes existing at the moment of creation, so that
+     * the processing of forked contexts does not modify (and is not affected by) the attributes of the original
+     * request. Everything else is delegated to the wrapped request.
+     */
+    private static final class IsolatedAttributesRequestWrapper extends HttpServletRequestWrapper {
+
+        private final Map<String,Object> attributes;
+
+        IsolatedAttributesRequestWrapper(final HttpServletRequest request) {
+            super(request);
+            this.attributes = new HashMap<String, Object>(20, 1.0f);
+            final Enumeration<?> attributeNames = request.getAttributeNames();
+            while (attributeNames.hasMoreElements()) {
+                final String attributeName = (String) attributeNames.nextElement();
+                this.attributes.put(attributeName, request.getAttribute(attributeName));
+            }
+        }
+
+        @Override
+        public Object getAttribute(final String name) {
+            return this.attributes.get(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            return Collections.enumeration(this.attributes.keySet());
+        }
+
+        @Override
+        public void setAttribute(final String name, final Object value) {
+            if (value == null) {
+                this.attributes.remove(name);
+                return;
+            }
+            this.attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(final String name) {
+            this.attributes.remove(name);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,86 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.context;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Lazy context variable ({@link ILazyContextVariable}) that wraps a {@link Future}, so that the result of an
+ *   asynchronous computation can be used from templates just like any other variable. Its value will be waited
+ *   for the first time it is needed during template processing.
+ * </p>
+ * <p>
+ *   Variables of type {@link Future} are automatically wrapped into objects of this class when templates are
+ *   processed by means of any of the <tt>processAsync(...)</tt> methods at {@link org.thymeleaf.TemplateEngine}.
+ * </p>
+ *
+ * @param <T> the type of the value being returned by this variable
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class FutureContextVariable<T> implements ILazyContextVariable<T> {
+
+    private final Future<T> future;
+
+
+    public FutureContextVariable(final Future<T> future) {
+        super();
+        Validate.notNull(future, "Future cannot be null");
+        this.future = future;
+    }
+
+
+    public Future<T> getFuture() {
+        return this.future;
+    }
+
+
+    public T getValue() {
+        // No need to cache anything here: futures already do that for us
+        try {
+            return this.future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TemplateProcessingException("Interrupted while waiting for the value of a context variable", e);
+        } catch (final CancellationException e) {
+            throw new TemplateProcessingException("Computation of the value of a context variable was cancelled", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new TemplateProcessingException("Exception computing the value of a context variable", cause);
+        }
+    }
+
+
+}
@@ -0,0 +1,52 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.context;
+
+/**
+ * <p>
+ *   Marker interface for lazy context variables ({@link ILazyContextVariable}) whose value should be loaded
+ *   asynchronously, as soon as template processing starts, when the template is processed by means of
+ *   any of the <tt>processAsync(...)</tt> methods at {@link org.thymeleaf.TemplateEngine}.
+ * </p>
+ * <p>
+ *   This allows several slow loads (e.g. database or remote calls) to be performed concurrently instead of
+ *   one after the other, in the order in which the template uses the variables. If the template needs the
+ *   value of the variable before its asynchronous load finishes, it will wait for it (or load it itself,
+ *   depending on the implementation).
+ * </p>
+ * <p>
+ *   Given {@link ILazyContextVariable#getValue()} might be called more than once (even concurrently) for
+ *   variables implementing this interface, implementations should make sure loads are performed only once. The
+ *   {@link LazyContextVariable} abstract class already does so, and therefore is the recommended base class
+ *   for implementing this interface.
+ * </p>
+ *
+ * @param <T> the type of the value being returned by this variable
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public interface IAsyncLazyContextVariable<T> extends ILazyContextVariable<T> {
+
+    // Nothing to add, just a marker interface
+
+}
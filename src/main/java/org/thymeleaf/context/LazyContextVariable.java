@@ -19,6 +19,8 @@
  */
 package org.thymeleaf.context;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * <p>
  *   Basic abstract implementation for the {@link ILazyContextVariable} interface.
@@ -57,6 +59,10 @@
     private volatile boolean initialized = false;
     private T value;
 
+    // A lock is used instead of synchronizing on this object because loading the value will typically block
+    // (e.g. database calls), which should not pin the carrier of the thread waiting for the load to finish.
+    private final ReentrantLock lock = new ReentrantLock();
+
     protected LazyContextVariable() {
         super();
     }
@@ -79,11 +85,14 @@ protected LazyContextVariable() {
      */
     public final T getValue() {
         if (!this.initialized) {
-            synchronized (this) {
+            this.lock.lock();
+            try {
                 if (!this.initialized) {
                     this.value = loadValue();
                     this.initialized = true;
                 }
+            } finally {
+                this.lock.unlock();
             }
         }
         return this.value;
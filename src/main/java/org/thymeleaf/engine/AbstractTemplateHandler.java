@@ -113,6 +113,16 @@ public void setContext(final ITemplateContext context) {
     }
 
 
+    /*
+     * Internal: drops the references to the next handler and the context, so that handlers reused between
+     * executions (see ProcessorTemplateHandlerPool) do not retain them while not in use.
+     */
+    void clearNextAndContext() {
+        this.next = null;
+        this.context = null;
+    }
+
+
     /**
      * <p>
      *   Return the next handler in the chain, so that events can be delegated to it.
@@ -49,6 +49,10 @@ abstract class AbstractTextualTemplateEvent extends AbstractTemplateEvent implem
         if (content != null && content instanceof String) {
             this.contentStr = (String)content;
             this.contentLength = content.length();
+        } else if (content instanceof TemplateTextArena.Slice) {
+            // Length of compact contents is known, and better not computed lazily (avoids a volatile read)
+            this.contentStr = null;
+            this.contentLength = content.length();
         } else {
             this.contentStr = null;
             this.contentLength = -1;
@@ -62,6 +66,10 @@ abstract class AbstractTextualTemplateEvent extends AbstractTemplateEvent implem
         if (content != null && content instanceof String) {
             this.contentStr = (String)content;
             this.contentLength = content.length();
+        } else if (content instanceof TemplateTextArena.Slice) {
+            // Length of compact contents is known, and better not computed lazily (avoids a volatile read)
+            this.contentStr = null;
+            this.contentLength = content.length();
         } else {
             this.contentStr = null;
             this.contentLength = -1;
@@ -71,6 +79,26 @@ abstract class AbstractTextualTemplateEvent extends AbstractTemplateEvent implem
 
 
 
+    /*
+     * Used when the inlineable flag is already known at creation time (normally because it has been computed at
+     * parse time, directly on the parser's buffer), so that it never needs to be computed during processing.
+     * Cached templates will keep this flag along with their events.
+     */
+    AbstractTextualTemplateEvent(final CharSequence content, final boolean inlineable) {
+        this(content);
+        this.computedContentIsInlineable = Boolean.valueOf(inlineable);
+    }
+
+
+    AbstractTextualTemplateEvent(
+            final CharSequence content, final String templateName, final int line, final int col, final boolean inlineable) {
+        this(content, templateName, line, col);
+        this.computedContentIsInlineable = Boolean.valueOf(inlineable);
+    }
+
+
+
+
     protected final String getContentText() {
 
         if (this.contentStr != null || this.contentCharSeq == null) {
@@ -101,6 +129,20 @@ protected final int getContentLength() {
     }
 
 
+    final boolean hasCompactContent() {
+        return this.contentCharSeq instanceof TemplateTextArena.Slice;
+    }
+
+
+    final void appendContent(final StringBuilder builder) {
+        if (this.contentStr != null) {
+            builder.append(this.contentStr);
+        } else if (this.contentCharSeq != null) {
+            builder.append(this.contentCharSeq);
+        }
+    }
+
+
     protected final char charAtContent(final int index) {
         // no need to perform index bounds checking: it would slow down traversing operations a lot, and
         // it would be exactly the same exception we'd obtain by basically trying to access that index, so let's do
@@ -185,6 +227,13 @@ private Boolean computeInlineable() {
             return Boolean.FALSE;
         }
 
+        // Fail fast: most texts contain no '[[' or '[(' at all, and String#indexOf is a much faster way of
+        // scanning for the '[' chars than a char-by-char loop
+        final String content = (this.contentStr != null ? this.contentStr : this.computedContentStr);
+        if (content != null && !mightBeInlineable(content)) {
+            return Boolean.FALSE;
+        }
+
         char c0, c1;
         c0 = 0x0;
         int inline = 0;
@@ -211,6 +260,86 @@ private Boolean computeInlineable() {
     }
 
 
+    /*
+     * Computes whether a text would be considered inlineable, directly on a char[] buffer. This is the
+     * equivalent of computeInlineable(), meant to be used at parse time.
+     */
+    static boolean computeInlineable(final char[] buffer, final int offset, final int len) {
+
+        if (len == 0 || !mightBeInlineable(buffer, offset, len)) {
+            return false;
+        }
+
+        int n = len;
+        char c0, c1;
+        c0 = 0x0;
+        int inline = 0;
+        while (n-- != 0) {
+            c1 = buffer[offset + n];
+            if (n > 0 && c1 == ']' && c0 == ']') {
+                inline = 1;
+                n--;
+                c1 = buffer[offset + n];
+            } else if (n > 0 && c1 == ')' && c0 == ']') {
+                inline = 2;
+                n--;
+                c1 = buffer[offset + n];
+            } else if (inline == 1 && c1 == '[' && c0 == '[') {
+                return true;
+            } else if (inline == 2 && c1 == '[' && c0 == '(') {
+                return true;
+            }
+            c0 = c1;
+        }
+
+        return false;
+
+    }
+
+
+    /*
+     * Equivalent of computeInlineable(char[],int,int) for texts already converted into Strings at parse time
+     */
+    static boolean computeInlineable(final String content) {
+        if (!mightBeInlineable(content)) {
+            return false;
+        }
+        return computeInlineable(content.toCharArray(), 0, content.length());
+    }
+
+
+    /*
+     * A text can only be inlineable if it contains '[[' or '[(' (necessary, but not sufficient condition)
+     */
+    private static boolean mightBeInlineable(final String content) {
+        final int maxi = content.length() - 1;
+        int i = content.indexOf('[');
+        while (i != -1 && i < maxi) {
+            final char c = content.charAt(i + 1);
+            if (c == '[' || c == '(') {
+                return true;
+            }
+            i = content.indexOf('[', i + 1);
+        }
+        return false;
+    }
+
+
+    private static boolean mightBeInlineable(final char[] buffer, final int offset, final int len) {
+        final int maxi = offset + len - 1;
+        char c;
+        for (int i = offset; i < maxi; i++) {
+            if (buffer[i] == '[') {
+                c = buffer[i + 1];
+                if (c == '[' || c == '(') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
 
 
     public final void writeContent(final Writer writer) throws IOException {
@@ -0,0 +1,61 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * OutputStream writing directly into a ByteBuffer, used as output for throttled processors when their output
+ * is wanted in the form of ByteBuffer objects. Throttled processors guarantee they will never write more bytes
+ * than allowed, so this stream never needs to check the remaining space in the buffer (an overflow would raise
+ * a BufferOverflowException).
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class ByteBufferOutputStream extends OutputStream {
+
+    private ByteBuffer buffer = null;
+
+
+    ByteBufferOutputStream() {
+        super();
+    }
+
+
+    void setBuffer(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    @Override
+    public void write(final int b) {
+        this.buffer.put((byte) b);
+    }
+
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        this.buffer.put(b, off, len);
+    }
+
+}
@@ -69,6 +69,14 @@ final class CDATASection extends AbstractTextualTemplateEvent implements ICDATAS
     }
 
 
+    CDATASection(final String prefix, final CharSequence content, final String suffix, final String templateName, final int line, final int col,
+            final boolean inlineable) {
+        super(content, templateName, line, col, inlineable);
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+
 
 
 
@@ -20,6 +20,7 @@
 package org.thymeleaf.engine;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -39,6 +40,25 @@
  *   containing that part of the data.
  * </p>
  * <p>
+ *   Several data-driven iterators can be used in the same template execution, either independently (e.g. one
+ *   per page section) or nested (e.g. iterated for each element of another data-driven iterator). Besides the
+ *   <em>main</em> iterator (the one controlled by the integration: head, tail, writer control, SSE event IDs),
+ *   these additional iterators must be created by means of {@link #DataDrivenTemplateIterator(DataDrivenTemplateIterator)}
+ *   so that they share that configuration with the main one (which should be the outermost one if nested). Each iterator keeps its own buffer of data
+ *   (see {@link #getBufferedElementCount()}), and processing will pause whenever the iterator being currently
+ *   iterated runs out of data. When producing SSE output, an SSE event is only started for an iteration if
+ *   no other iterator in the group is already in the middle of an event (i.e. iterations of nested iterators
+ *   are part of the event of the enclosing iteration).
+ * </p>
+ * <p>
+ *   When nested, the same additional iterator is iterated once for each element of the enclosing iteration,
+ *   so its data has to be fed as a series of <em>sequences</em>, one per enclosing element: after feeding all
+ *   the data for an element, {@link #feedingSequenceComplete()} has to be called so that the nested iteration
+ *   for that element finishes (instead of waiting for more data), and the data fed afterwards is iterated for
+ *   the next element. {@link #feedingComplete()} should only be called once there is no more data for any of
+ *   the enclosing elements.
+ * </p>
+ * <p>
  *   This class is meant for <strong>internal use only</strong> from the diverse integrations of Thymeleaf in
  *   reactive architectures. There is normally no reason why a user would have to use this class directly.
  * </p>
@@ -55,54 +75,142 @@ public final class DataDrivenTemplateIterator implements Iterator<Object> {
     private static final String SSE_TAIL_EVENT_TYPE = "tail";
 
 
+    // The main iterator of the group this iterator belongs to (might be this same one)
+    private final DataDrivenTemplateIterator main;
+
     private final List<Object> values;
-    private IThrottledTemplateWriterControl writerControl;
-    private ISSEThrottledTemplateWriterControl sseControl;
-    private long sseEventID;
+    private int valuesOffset;
+
+    // Only used for nested iterators fed one sequence per element of the enclosing iteration (see
+    // #feedingSequenceComplete()): total amounts of elements fed and consumed, and the (absolute) positions at
+    // which the sequences that have not been completely iterated yet end.
+    private long fedCount;
+    private long consumedCount;
+    private final ArrayDeque<Long> sequenceEnds;
     private boolean inStep;
     private boolean feedingComplete;
     private boolean queried;
 
+    // These are only used at the main iterator, and shared by all the iterators in its group
+    private IThrottledTemplateWriterControl writerControl;
+    private ISSEThrottledTemplateWriterControl sseControl;
+    private long sseEventID;
+    private DataDrivenTemplateIterator sseEventOwner;
+    private DataDrivenTemplateIterator pausedIterator;
+
 
     public DataDrivenTemplateIterator() {
+        this(null);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new data-driven iterator which will share writer control and SSE event IDs with the
+     *   specified main iterator, so that it can be used along with it (independently or nested) in the same
+     *   template execution.
+     * </p>
+     *
+     * @param main the main data-driven iterator of the template execution (or null for creating a main one).
+     *
+     * @since 3.0.8
+     */
+    public DataDrivenTemplateIterator(final DataDrivenTemplateIterator main) {
 
         super();
+        this.main = (main == null? this : main.main);
         this.values = new ArrayList<Object>(10);
-        this.writerControl = null;
-        this.sseControl = null;
-        this.sseEventID = 0L;
+        this.valuesOffset = 0;
+        this.fedCount = 0L;
+        this.consumedCount = 0L;
+        this.sequenceEnds = new ArrayDeque<Long>(4);
         this.inStep = false;
         this.feedingComplete = false;
         this.queried = false;
 
+        this.writerControl = null;
+        this.sseControl = null;
+        this.sseEventID = 0L;
+        this.sseEventOwner = null;
+        this.pausedIterator = null;
+
     }
 
 
     public void setWriterControl(final IThrottledTemplateWriterControl writerControl) {
-        this.writerControl = writerControl;
+        final DataDrivenTemplateIterator mainIterator = this.main;
+        mainIterator.writerControl = writerControl;
         if (writerControl instanceof ISSEThrottledTemplateWriterControl) {
-            this.sseControl = (ISSEThrottledTemplateWriterControl) this.writerControl;
+            mainIterator.sseControl = (ISSEThrottledTemplateWriterControl) writerControl;
         } else {
-            this.sseControl = null;
+            mainIterator.sseControl = null;
         }
     }
 
 
     public void setFirstSSEEventID(final long firstSSEEventID) {
-        this.sseEventID = firstSSEEventID;
+        this.main.sseEventID = firstSSEEventID;
     }
 
     public void takeBackLastEventID() {
-        if (this.sseEventID > 0L) {
-            this.sseEventID--;
+        if (this.main.sseEventID > 0L) {
+            this.main.sseEventID--;
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether this iterator is the main one of its group.
+     * </p>
+     *
+     * @return <tt>true</tt> if this is a main iterator, <tt>false</tt> if it was created for a main one.
+     *
+     * @since 3.0.8
+     */
+    public boolean isMain() {
+        return this.main == this;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of elements that have been fed to this iterator and not yet iterated. This can be used
+     *   for applying backpressure on the source of the data.
+     * </p>
+     *
+     * @return the number of buffered elements.
+     *
+     * @since 3.0.8
+     */
+    public int getBufferedElementCount() {
+        return this.values.size() - this.valuesOffset;
+    }
+
+
+    /*
+     * Elements that can be iterated for the current sequence (the whole buffer if no sequences are being fed)
+     */
+    private int getSequenceElementCount() {
+        final int bufferedCount = getBufferedElementCount();
+        final Long sequenceEnd = this.sequenceEnds.peek();
+        if (sequenceEnd == null) {
+            return bufferedCount;
         }
+        return (int) Math.min(bufferedCount, sequenceEnd.longValue() - this.consumedCount);
+    }
+
+
+    private boolean isAtSequenceEnd() {
+        final Long sequenceEnd = this.sequenceEnds.peek();
+        return sequenceEnd != null && sequenceEnd.longValue() == this.consumedCount;
     }
 
 
     @Override
     public boolean hasNext() {
         this.queried = true;
-        return !this.values.isEmpty();
+        return getSequenceElementCount() > 0;
     }
 
 
@@ -111,23 +219,27 @@ public Object next() {
 
         this.queried = true;
 
-        if (this.values.isEmpty()) {
+        if (getSequenceElementCount() == 0) {
             throw new NoSuchElementException();
         }
 
-        final Object value = this.values.get(0);
-        this.values.remove(0);
+        // Elements are not removed one by one (that would shift the whole list each time): we just move an
+        // offset forward and clear the list once all its elements have been consumed
+        final Object value = this.values.get(this.valuesOffset);
+        this.values.set(this.valuesOffset, null);
+        this.valuesOffset++;
+        if (this.valuesOffset == this.values.size()) {
+            this.values.clear();
+            this.valuesOffset = 0;
+        }
+        this.consumedCount++;
         return value;
 
     }
 
 
     public void startIteration() {
-        this.inStep = true;
-        if (this.sseControl != null) {
-            this.sseControl.startEvent(Long.toString(this.sseEventID), SSE_MESSAGE_EVENT_TYPE);
-            this.sseEventID++;
-        }
+        startStep(SSE_MESSAGE_EVENT_TYPE);
     }
 
 
@@ -164,27 +276,59 @@ public void remove() {
 
     boolean isPaused() {
         this.queried = true;
-        return this.values.isEmpty() && !this.feedingComplete;
+        final boolean paused = isWaitingForData();
+        if (paused) {
+            this.main.pausedIterator = this;
+        }
+        return paused;
+    }
+
+
+    private boolean isWaitingForData() {
+        return getSequenceElementCount() == 0 && !isAtSequenceEnd() && !this.feedingComplete;
+    }
+
+
+    /*
+     * Called by the engine once the iteration of this iterator has finished. If that was because the end of the
+     * current sequence was reached, the next iteration will be performed on the next sequence.
+     */
+    void finishSequenceIteration() {
+        if (isAtSequenceEnd()) {
+            this.sequenceEnds.poll();
+        }
+    }
+
+
+    boolean isInGroupOf(final DataDrivenTemplateIterator iterator) {
+        return this.main == iterator.main;
+    }
+
+
+    /*
+     * Returns whether processing is currently paused waiting for data to be fed to any of the iterators in the
+     * group of this one (and therefore whether feeding data to that iterator would allow it to continue).
+     */
+    boolean isGroupWaitingForData() {
+        final DataDrivenTemplateIterator paused = this.main.pausedIterator;
+        return paused != null && paused.isWaitingForData();
     }
 
 
     public boolean continueBufferExecution() {
-        return !this.values.isEmpty();
+        return getBufferedElementCount() > 0;
     }
 
 
     public void feedBuffer(final List<Object> newElements) {
         this.values.addAll(newElements);
+        this.fedCount += newElements.size();
     }
 
 
 
     public void startHead() {
-        this.inStep = true;
-        if (this.sseControl != null) {
-            this.sseControl.startEvent(Long.toString(this.sseEventID), SSE_HEAD_EVENT_TYPE);
-            this.sseEventID++;
-        }
+        startStep(SSE_HEAD_EVENT_TYPE);
     }
 
     public void feedingComplete() {
@@ -192,11 +336,37 @@ public void feedingComplete() {
     }
 
 
+    /**
+     * <p>
+     *   Signals that all the data for the current sequence of a nested iterator has been fed, i.e. that the
+     *   iteration of this iterator for the current element of the enclosing iteration should finish once the
+     *   data fed so far has been iterated. Data fed afterwards will be iterated for the next element.
+     * </p>
+     * <p>
+     *   Should only be used for nested iterators (see {@link #DataDrivenTemplateIterator(DataDrivenTemplateIterator)}).
+     * </p>
+     *
+     * @since 3.0.8
+     */
+    public void feedingSequenceComplete() {
+        this.sequenceEnds.offer(Long.valueOf(this.fedCount));
+    }
+
+
     public void startTail() {
+        startStep(SSE_TAIL_EVENT_TYPE);
+    }
+
+
+    private void startStep(final String sseEventType) {
         this.inStep = true;
-        if (this.sseControl != null) {
-            this.sseControl.startEvent(Long.toString(this.sseEventID), SSE_TAIL_EVENT_TYPE);
-            this.sseEventID++;
+        final DataDrivenTemplateIterator mainIterator = this.main;
+        if (mainIterator.sseControl != null && (mainIterator == this || mainIterator.sseEventOwner == null)) {
+            // Steps of additional iterators nested inside a step of another iterator are a part of that other
+            // step's event. The main iterator always starts its own events.
+            mainIterator.sseEventOwner = this;
+            mainIterator.sseControl.startEvent(Long.toString(mainIterator.sseEventID), sseEventType);
+            mainIterator.sseEventID++;
         }
     }
 
@@ -206,9 +376,11 @@ public void finishStep() {
             return;
         }
         this.inStep = false;
-        if (this.sseControl != null) {
+        final DataDrivenTemplateIterator mainIterator = this.main;
+        if (mainIterator.sseControl != null && (mainIterator == this || mainIterator.sseEventOwner == this)) {
+            mainIterator.sseEventOwner = null;
             try {
-                this.sseControl.endEvent();
+                mainIterator.sseControl.endEvent();
             } catch (final IOException e) {
                 throw new TemplateProcessingException("Cannot signal end of SSE event", e);
             }
@@ -220,9 +392,10 @@ public boolean isStepOutputFinished() {
         if (this.inStep) {
             return false;
         }
-        if (this.writerControl != null) {
+        final IThrottledTemplateWriterControl control = this.main.writerControl;
+        if (control != null) {
             try {
-                return !this.writerControl.isOverflown();
+                return !control.isOverflown();
             } catch (final IOException e) {
                 throw new TemplateProcessingException("Cannot signal end of SSE event", e);
             }
@@ -110,6 +110,7 @@ public final class ElementTagStructureHandler implements IElementTagStructureHan
     String iterVariableName;
     String iterStatusVariableName;
     Object iteratedObject;
+    boolean iterateElementInParallel;
 
 
 
@@ -420,6 +421,19 @@ public void iterateElement(final String iterVariableName, final String iterStatu
         this.iterVariableName = iterVariableName;
         this.iterStatusVariableName = iterStatusVariableName;
         this.iteratedObject = iteratedObject;
+        this.iterateElementInParallel = false;
+    }
+
+
+    /*
+     * This method is NOT a part of the IElementTagStructureHandler interface. It is only meant for internal usage
+     * by the Standard Dialect (th:each + th:parallel): iterations will only be processed in parallel if a parallel
+     * rendering executor has been configured and the engine determines it is safe to do so for the iterated
+     * element. Otherwise, it is equivalent to #iterateElement(String, String, Object).
+     */
+    public void iterateElementInParallel(final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject) {
+        iterateElement(iterVariableName, iterStatusVariableName, iteratedObject);
+        this.iterateElementInParallel = true;
     }
 
 
@@ -498,6 +512,7 @@ private void resetAllButVariablesOrAttributes() {
         this.iterVariableName = null;
         this.iterStatusVariableName = null;
         this.iteratedObject = null;
+        this.iterateElementInParallel = false;
 
     }
 
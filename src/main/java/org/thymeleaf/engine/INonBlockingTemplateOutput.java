@@ -0,0 +1,80 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.io.OutputStream;
+
+/**
+ * <p>
+ *   Non-blocking output a {@link ThrottledTemplateWriteListener} writes the output of a throttled template
+ *   processor to.
+ * </p>
+ * <p>
+ *   This interface mirrors the parts of the <em>Servlet 3.1</em> non-blocking I/O API needed for producing
+ *   output without blocking (<tt>ServletOutputStream#isReady()</tt>, <tt>AsyncContext#complete()</tt>), so that
+ *   it can be trivially implemented on top of a servlet container (or any other non-blocking I/O layer) without
+ *   this library depending on any of them.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public interface INonBlockingTemplateOutput {
+
+    /**
+     * <p>
+     *   Returns whether data can be written to the output stream without blocking. If <tt>false</tt> is returned,
+     *   the underlying I/O layer is expected to call {@link ThrottledTemplateWriteListener#onWritePossible()}
+     *   again once writing becomes possible (as <tt>ServletOutputStream#isReady()</tt> does).
+     * </p>
+     *
+     * @return <tt>true</tt> if data can be written, <tt>false</tt> if not.
+     */
+    public boolean isReady();
+
+    /**
+     * <p>
+     *   Returns the output stream to be written to. Each call to {@link ThrottledTemplateWriteListener#onWritePossible()}
+     *   will only write to this stream while {@link #isReady()} returns <tt>true</tt>, and only once per check.
+     * </p>
+     *
+     * @return the output stream.
+     */
+    public OutputStream getOutputStream();
+
+    /**
+     * <p>
+     *   Called once all the output of the template has been written (e.g. for calling <tt>AsyncContext#complete()</tt>).
+     * </p>
+     */
+    public void complete();
+
+    /**
+     * <p>
+     *   Called if processing the template or writing its output fails. No more output will be written afterwards.
+     * </p>
+     *
+     * @param t the error.
+     */
+    public void fail(final Throwable t);
+
+}
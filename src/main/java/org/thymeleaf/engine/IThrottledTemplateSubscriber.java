@@ -0,0 +1,83 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *   Subscriber to the output of a {@link ThrottledTemplatePublisher}.
+ * </p>
+ * <p>
+ *   This interface mirrors the contract of the <em>Reactive Streams</em> <tt>Subscriber</tt> (also available as
+ *   <tt>java.util.concurrent.Flow.Subscriber</tt> since Java 9) specialized for {@link ByteBuffer} elements, so
+ *   that it can be trivially adapted to any of those APIs.
+ * </p>
+ * <p>
+ *   Calls to the methods of a subscriber will never be performed concurrently, though they might be performed
+ *   from different threads.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public interface IThrottledTemplateSubscriber {
+
+    /**
+     * <p>
+     *   Called once, before any other method, when the subscriber is subscribed to a publisher. No output will
+     *   be produced until demand is signaled by means of {@link IThrottledTemplateSubscription#request(long)}.
+     * </p>
+     *
+     * @param subscription the subscription.
+     */
+    public void onSubscribe(final IThrottledTemplateSubscription subscription);
+
+    /**
+     * <p>
+     *   Called for each fragment of output produced, which will be contained in a buffer ready for reading
+     *   (i.e. already flipped). Ownership of the buffer is transferred to the subscriber, which can give it back
+     *   to the publisher's {@link org.thymeleaf.util.ByteBufferPool} once consumed.
+     * </p>
+     *
+     * @param buffer the buffer containing the output.
+     */
+    public void onNext(final ByteBuffer buffer);
+
+    /**
+     * <p>
+     *   Called if processing fails. No more methods will be called after this one.
+     * </p>
+     *
+     * @param throwable the error.
+     */
+    public void onError(final Throwable throwable);
+
+    /**
+     * <p>
+     *   Called once the template has been completely processed and all its output has been signaled. No more
+     *   methods will be called after this one.
+     * </p>
+     */
+    public void onComplete();
+
+}
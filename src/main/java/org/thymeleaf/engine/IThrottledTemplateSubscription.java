@@ -0,0 +1,60 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+/**
+ * <p>
+ *   Subscription of an {@link IThrottledTemplateSubscriber} to a {@link ThrottledTemplatePublisher}.
+ * </p>
+ * <p>
+ *   This interface mirrors the contract of the <em>Reactive Streams</em> <tt>Subscription</tt> (also available as
+ *   <tt>java.util.concurrent.Flow.Subscription</tt> since Java 9).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public interface IThrottledTemplateSubscription {
+
+    /**
+     * <p>
+     *   Signals demand for <tt>n</tt> more buffers. Each buffer will contain at most as many bytes as the
+     *   capacity of the buffers in the publisher's pool, so demand directly translates into the amount of
+     *   output that the template engine is allowed to produce.
+     * </p>
+     * <p>
+     *   Template processing will be performed by the thread calling this method.
+     * </p>
+     *
+     * @param n the number of buffers requested (must be greater than zero).
+     */
+    public void request(final long n);
+
+    /**
+     * <p>
+     *   Cancels the subscription, stopping the processing of the template and releasing the resources
+     *   associated with it. Output produced after cancellation will be discarded.
+     * </p>
+     */
+    public void cancel();
+
+}
@@ -20,18 +20,89 @@
 package org.thymeleaf.engine;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.EngineContextForkUtils;
 import org.thymeleaf.context.IEngineContext;
 import org.thymeleaf.engine.TemplateModelController.SkipBody;
+import org.thymeleaf.model.IAttribute;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IDocType;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IProcessingInstruction;
 import org.thymeleaf.model.ITemplateEvent;
 import org.thymeleaf.model.IText;
+import org.thymeleaf.model.IXMLDeclaration;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.processor.cdatasection.ICDATASectionProcessor;
+import org.thymeleaf.processor.comment.ICommentProcessor;
+import org.thymeleaf.processor.doctype.IDocTypeProcessor;
+import org.thymeleaf.processor.element.IElementProcessor;
+import org.thymeleaf.processor.processinginstruction.IProcessingInstructionProcessor;
+import org.thymeleaf.processor.text.ITextProcessor;
+import org.thymeleaf.processor.xmldeclaration.IXMLDeclarationProcessor;
+import org.thymeleaf.standard.processor.StandardActionTagProcessor;
+import org.thymeleaf.standard.processor.StandardAltTitleTagProcessor;
+import org.thymeleaf.standard.processor.StandardAssertTagProcessor;
+import org.thymeleaf.standard.processor.StandardAttrTagProcessor;
+import org.thymeleaf.standard.processor.StandardAttrappendTagProcessor;
+import org.thymeleaf.standard.processor.StandardAttrprependTagProcessor;
+import org.thymeleaf.standard.processor.StandardBlockTagProcessor;
+import org.thymeleaf.standard.processor.StandardCaseTagProcessor;
+import org.thymeleaf.standard.processor.StandardClassappendTagProcessor;
+import org.thymeleaf.standard.processor.StandardConditionalCommentProcessor;
+import org.thymeleaf.standard.processor.StandardConditionalFixedValueTagProcessor;
+import org.thymeleaf.standard.processor.StandardDOMEventAttributeTagProcessor;
+import org.thymeleaf.standard.processor.StandardDefaultAttributesTagProcessor;
+import org.thymeleaf.standard.processor.StandardEachTagProcessor;
+import org.thymeleaf.standard.processor.StandardFragmentTagProcessor;
+import org.thymeleaf.standard.processor.StandardHrefTagProcessor;
+import org.thymeleaf.standard.processor.StandardIfTagProcessor;
+import org.thymeleaf.standard.processor.StandardInlineHTMLTagProcessor;
+import org.thymeleaf.standard.processor.StandardInlineTextualTagProcessor;
+import org.thymeleaf.standard.processor.StandardInlineXMLTagProcessor;
+import org.thymeleaf.standard.processor.StandardInliningCDATASectionProcessor;
+import org.thymeleaf.standard.processor.StandardInliningCommentProcessor;
+import org.thymeleaf.standard.processor.StandardInliningTextProcessor;
+import org.thymeleaf.standard.processor.StandardLangXmlLangTagProcessor;
+import org.thymeleaf.standard.processor.StandardMethodTagProcessor;
+import org.thymeleaf.standard.processor.StandardNonRemovableAttributeTagProcessor;
+import org.thymeleaf.standard.processor.StandardObjectTagProcessor;
+import org.thymeleaf.standard.processor.StandardParallelTagProcessor;
+import org.thymeleaf.standard.processor.StandardRefAttributeTagProcessor;
+import org.thymeleaf.standard.processor.StandardRemovableAttributeTagProcessor;
+import org.thymeleaf.standard.processor.StandardRemoveTagProcessor;
+import org.thymeleaf.standard.processor.StandardSrcTagProcessor;
+import org.thymeleaf.standard.processor.StandardStyleappendTagProcessor;
+import org.thymeleaf.standard.processor.StandardSwitchTagProcessor;
+import org.thymeleaf.standard.processor.StandardTextTagProcessor;
+import org.thymeleaf.standard.processor.StandardTranslationDocTypeProcessor;
+import org.thymeleaf.standard.processor.StandardUnlessTagProcessor;
+import org.thymeleaf.standard.processor.StandardUtextTagProcessor;
+import org.thymeleaf.standard.processor.StandardValueTagProcessor;
+import org.thymeleaf.standard.processor.StandardWithTagProcessor;
+import org.thymeleaf.standard.processor.StandardXmlBaseTagProcessor;
+import org.thymeleaf.standard.processor.StandardXmlLangTagProcessor;
+import org.thymeleaf.standard.processor.StandardXmlNsTagProcessor;
+import org.thymeleaf.standard.processor.StandardXmlSpaceTagProcessor;
+import org.thymeleaf.standard.util.StandardConditionalCommentUtils;
 import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.DeferredCharSequence;
+import org.thymeleaf.util.FastStringWriter;
+import org.thymeleaf.util.ProcessorConfigurationUtils;
 import org.thymeleaf.util.StringUtils;
 
 
@@ -45,6 +116,47 @@ final class IteratedGatheringModelProcessable extends AbstractGatheringModelProc
 
     private static final String DEFAULT_STATUS_VAR_SUFFIX = "Stat";
 
+    // Parallel iteration will only be performed if there are enough iterations so that each chunk (processed as
+    // a separate task) has at least this amount of them. The maximum amount of chunks depends on available processors.
+    private static final int PARALLEL_CHUNK_MIN_SIZE = 32;
+    private static final int PARALLEL_CHUNKS_PER_PROCESSOR = 2;
+    private static final int PARALLEL_CHUNK_OUTPUT_SIZE = 1024;
+
+    // Iterated models will only be processed in parallel if every processor applying to them is one of these
+    // Standard Dialect processors, known to have no side effects other than on their (forked) context. Fragment
+    // insertion and flushing processors are not among them, and neither is any processor from other dialects, as
+    // nothing is known about what they do. Conditional comments are never processed in parallel either, as their
+    // contents are processed as templates.
+    private static final Set<Class<?>> PARALLEL_SAFE_PROCESSOR_CLASSES =
+            new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+                    StandardActionTagProcessor.class, StandardAltTitleTagProcessor.class,
+                    StandardAssertTagProcessor.class, StandardAttrTagProcessor.class,
+                    StandardAttrappendTagProcessor.class, StandardAttrprependTagProcessor.class,
+                    StandardBlockTagProcessor.class, StandardCaseTagProcessor.class,
+                    StandardClassappendTagProcessor.class, StandardConditionalCommentProcessor.class,
+                    StandardConditionalFixedValueTagProcessor.class,
+                    StandardDefaultAttributesTagProcessor.class, StandardDOMEventAttributeTagProcessor.class,
+                    StandardEachTagProcessor.class, StandardFragmentTagProcessor.class,
+                    StandardHrefTagProcessor.class, StandardIfTagProcessor.class,
+                    StandardInlineHTMLTagProcessor.class, StandardInlineTextualTagProcessor.class,
+                    StandardInlineXMLTagProcessor.class, StandardInliningCDATASectionProcessor.class,
+                    StandardInliningCommentProcessor.class, StandardInliningTextProcessor.class,
+                    StandardLangXmlLangTagProcessor.class, StandardMethodTagProcessor.class,
+                    StandardNonRemovableAttributeTagProcessor.class, StandardObjectTagProcessor.class,
+                    StandardParallelTagProcessor.class, StandardRefAttributeTagProcessor.class,
+                    StandardRemovableAttributeTagProcessor.class, StandardRemoveTagProcessor.class,
+                    StandardSrcTagProcessor.class, StandardStyleappendTagProcessor.class,
+                    StandardSwitchTagProcessor.class, StandardTextTagProcessor.class,
+                    StandardTranslationDocTypeProcessor.class, StandardUnlessTagProcessor.class,
+                    StandardUtextTagProcessor.class, StandardValueTagProcessor.class,
+                    StandardWithTagProcessor.class, StandardXmlBaseTagProcessor.class,
+                    StandardXmlLangTagProcessor.class, StandardXmlNsTagProcessor.class,
+                    StandardXmlSpaceTagProcessor.class));
+
+    // Even then, iterated models referencing this expression object will never be processed in parallel, as
+    // evaluating it has side effects on the context (identifier sequences), which cannot be shared among forks.
+    private static final String SIDE_EFFECTING_EXPRESSION_OBJECT = "#ids";
+
     enum IterationWhiteSpaceHandling {ZERO_ITER, SINGLE_ITER, MULTIPLE_ITER}
 
 
@@ -54,9 +166,13 @@ enum IterationWhiteSpaceHandling {ZERO_ITER, SINGLE_ITER, MULTIPLE_ITER}
     private final String iterVariableName;
     private final String iterStatusVariableName;
     private final IterationStatusVar iterStatusVariable;
-    private final Iterator<?> iterator;
+    private Iterator<?> iterator;
     private final Text precedingWhitespace;
 
+    private final SkipBody gatheredSkipBody;
+    private final boolean gatheredSkipCloseTag;
+    private final boolean iterateInParallel;
+
     private IterationModels iterationModels;
 
     private DataDrivenTemplateIterator dataDrivenIterator;
@@ -72,10 +188,15 @@ enum IterationWhiteSpaceHandling {ZERO_ITER, SINGLE_ITER, MULTIPLE_ITER}
             final TemplateModelController modelController, final TemplateFlowController flowController,
             final SkipBody gatheredSkipBody, final boolean gatheredSkipCloseTag,
             final ProcessorExecutionVars processorExecutionVars,
-            final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject, final Text precedingWhitespace) {
+            final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject,
+            final boolean iterateInParallel, final Text precedingWhitespace) {
 
         super(configuration, processorTemplateHandler, context, modelController, flowController, gatheredSkipBody, gatheredSkipCloseTag, processorExecutionVars);
 
+        this.gatheredSkipBody = gatheredSkipBody;
+        this.gatheredSkipCloseTag = gatheredSkipCloseTag;
+        this.iterateInParallel = iterateInParallel;
+
         this.context = context;
         this.templateMode = context.getTemplateMode();
 
@@ -110,6 +231,49 @@ enum IterationWhiteSpaceHandling {ZERO_ITER, SINGLE_ITER, MULTIPLE_ITER}
 
 
 
+    /*
+     * Creates a processable for a chunk of the iterations of another one, which will be processed in parallel
+     * using its own (forked) context and processor handler. Needs to be called from the thread executing the
+     * original processable, once its iteration models have been computed.
+     */
+    private IteratedGatheringModelProcessable(
+            final IteratedGatheringModelProcessable parent,
+            final ProcessorTemplateHandler processorTemplateHandler, final IEngineContext context) {
+
+        super(context.getConfiguration(), processorTemplateHandler, context, processorTemplateHandler.getModelController(), null,
+              parent.gatheredSkipBody, parent.gatheredSkipCloseTag, parent.initializeProcessorExecutionVars());
+
+        this.gatheredSkipBody = parent.gatheredSkipBody;
+        this.gatheredSkipCloseTag = parent.gatheredSkipCloseTag;
+        this.iterateInParallel = false;
+
+        this.context = context;
+        this.templateMode = parent.templateMode;
+
+        this.iterator = null;
+
+        this.iterVariableName = parent.iterVariableName;
+        this.iterStatusVariableName = parent.iterStatusVariableName;
+
+        this.iterStatusVariable = new IterationStatusVar();
+        this.iterStatusVariable.index = 0;
+        this.iterStatusVariable.size = parent.iterStatusVariable.size;
+
+        this.precedingWhitespace = parent.precedingWhitespace;
+
+        this.dataDrivenIterator = null;
+
+        this.iterationModels = parent.iterationModels;
+        getInnerModel().addModel(parent.getInnerModel());
+
+        this.iter = 0;
+        this.iterOffset = 0;
+        this.iterModel = null;
+
+    }
+
+
+
 
     @Override
     public ProcessorExecutionVars initializeProcessorExecutionVars() {
@@ -199,6 +363,18 @@ public boolean process() {
         }
 
 
+        /*
+         * If allowed, try to process all iterations in parallel. Note this is only possible for non-throttled
+         * executions, so we will only get here once and with no iterations processed yet.
+         */
+        if (this.iterateInParallel && this.iter == 0 && this.iterModel == null && !this.iterationModels.isEmpty()) {
+            if (processInParallel(flowController)) {
+                this.context.decreaseLevel();
+                return true;
+            }
+        }
+
+
         /*
          * Compute the first iteration. Note this is a separate block from the computation of the iteration
          * models because we can enter here more than once if the execution of the first iteration is stopped
@@ -314,6 +490,15 @@ public boolean process() {
         }
 
 
+        /*
+         * Signal the data driven iterator (if there is one) that it has been completely iterated, so that, if it is
+         * nested and is fed in sequences, the next time it is iterated it moves on to the next one
+         */
+        if (this.dataDrivenIterator != null) {
+            this.dataDrivenIterator.finishSequenceIteration();
+        }
+
+
         /*
          * DECREASE THE CONTEXT LEVEL
          * This was increased before starting gathering, when the handling of the first gathered event started.
@@ -401,6 +586,249 @@ private boolean processIterationModel(final TemplateFlowController flowControlle
 
 
 
+    /*
+     * Processes all iterations by dividing them into chunks that are rendered in parallel, each of them on its own
+     * fork of the context. Output is sent to the next handler as deferred text, in order. Returns false if
+     * iterations cannot be processed in parallel (in which case nothing will have been processed yet).
+     */
+    private boolean processInParallel(final TemplateFlowController flowController) {
+
+        if (flowController != null || this.dataDrivenIterator != null || this.gatheredSkipBody != SkipBody.PROCESS) {
+            return false;
+        }
+
+        final Executor executor = ParallelRenderingUtils.getParallelRenderingExecutor(this.context);
+        if (executor == null) {
+            return false;
+        }
+
+        final ProcessorTemplateHandler processorTemplateHandler = getProcessorTemplateHandler();
+        final IEngineConfiguration configuration = this.context.getConfiguration();
+
+        // Post-processors need to receive the events produced by the iterations, not their output
+        if (!configuration.getPostProcessors(this.templateMode).isEmpty()) {
+            return false;
+        }
+
+        if (!isParallelizable(configuration, this.templateMode, getInnerModel())) {
+            return false;
+        }
+
+        // We need all the iterated objects in order to be able to divide them in chunks. Note the first one
+        // has already been obtained from the iterator.
+        final List<Object> items =
+                new ArrayList<Object>(this.iterStatusVariable.size != null ? this.iterStatusVariable.size.intValue() : 10);
+        items.add(this.iterStatusVariable.current);
+        while (this.iterator.hasNext()) {
+            items.add(this.iterator.next());
+        }
+
+        final int itemsSize = items.size();
+        final int chunks =
+                Math.min(itemsSize / PARALLEL_CHUNK_MIN_SIZE, Runtime.getRuntime().availableProcessors() * PARALLEL_CHUNKS_PER_PROCESSOR);
+        if (chunks < 2) {
+            // Not worth it: just let the rest of items be iterated normally
+            this.iterator = items.subList(1, itemsSize).iterator();
+            return false;
+        }
+
+        final int chunkSize = (itemsSize + chunks - 1) / chunks;
+
+        final DeferredCharSequence[] results = new DeferredCharSequence[chunks];
+        int chunkOffset = 0;
+        for (int i = 0; i < chunks && chunkOffset < itemsSize; i++) {
+
+            final List<Object> chunkItems = items.subList(chunkOffset, Math.min(chunkOffset + chunkSize, itemsSize));
+            final int offset = chunkOffset;
+
+            // Everything needed for processing the chunk is created here, so that the task only executes it
+            final FastStringWriter writer = new FastStringWriter(PARALLEL_CHUNK_OUTPUT_SIZE);
+            final IEngineContext chunkContext = EngineContextForkUtils.forkEngineContext(this.context, this.context.getTemplateData());
+            final ProcessorTemplateHandler chunkProcessorTemplateHandler = new ProcessorTemplateHandler();
+            chunkProcessorTemplateHandler.setNext(new OutputTemplateHandler(writer));
+            chunkProcessorTemplateHandler.setContext(chunkContext);
+            final IteratedGatheringModelProcessable chunk =
+                    new IteratedGatheringModelProcessable(this, chunkProcessorTemplateHandler, chunkContext);
+
+            results[i] =
+                    ParallelRenderingUtils.submit(executor, new Callable<String>() {
+
+                        public String call() throws Exception {
+                            chunk.processChunk(chunkItems, offset, itemsSize);
+                            return writer.toString();
+                        }
+
+                    });
+
+            chunkOffset += chunkSize;
+
+        }
+
+        final ITemplateHandler next = processorTemplateHandler.getNextHandler();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                next.handleText(new Text(results[i]));
+            }
+        }
+
+        this.iter = itemsSize;
+
+        // Leave the skip flags as they would be after processing the iterations
+        resetGatheredSkipFlags();
+
+        return true;
+
+    }
+
+
+
+    /*
+     * Processes (in order) a chunk of the iterations of the processable this one was created from.
+     */
+    private void processChunk(final List<Object> items, final int offset, final int total) {
+
+        final int itemsSize = items.size();
+        for (int i = 0; i < itemsSize; i++) {
+
+            this.iterStatusVariable.index = offset + i;
+            this.iterStatusVariable.current = items.get(i);
+
+            if (this.iterStatusVariable.index == 0) {
+                this.iterModel = this.iterationModels.modelFirst;
+            } else if (this.iterStatusVariable.index == total - 1) {
+                this.iterModel = this.iterationModels.modelLast;
+            } else {
+                this.iterModel = this.iterationModels.modelMiddle;
+            }
+            this.iterOffset = 0;
+
+            processIterationModel(null, true);
+
+            this.iter++;
+
+        }
+
+        this.iterModel = null;
+
+    }
+
+
+
+    /*
+     * Determines whether the iterated model can be processed in parallel, i.e. whether every processor that
+     * applies to its events is known to be parallel-safe, and no expression in it references expression objects
+     * whose evaluation has side effects on the context.
+     */
+    private static boolean isParallelizable(
+            final IEngineConfiguration configuration, final TemplateMode templateMode, final Model model) {
+
+        final int modelSize = model.size();
+        for (int i = 0; i < modelSize; i++) {
+
+            final ITemplateEvent event = model.get(i);
+
+            if (event instanceof IProcessableElementTag) {
+                if (!(event instanceof AbstractProcessableElementTag) ||
+                        !areParallelSafe(((AbstractProcessableElementTag) event).getAssociatedProcessors())) {
+                    return false;
+                }
+                final IAttribute[] attributes = ((IProcessableElementTag) event).getAllAttributes();
+                for (int j = 0; j < attributes.length; j++) {
+                    if (!isParallelizable(attributes[j].getValue())) {
+                        return false;
+                    }
+                }
+            } else if (event instanceof IText) {
+                // Text might contain inlined expressions
+                if (!areParallelSafe(configuration.getTextProcessors(templateMode)) ||
+                        !isParallelizable(((IText) event).getText())) {
+                    return false;
+                }
+            } else if (event instanceof IComment) {
+                final String comment = ((IComment) event).getComment();
+                if (!areParallelSafe(configuration.getCommentProcessors(templateMode)) ||
+                        StandardConditionalCommentUtils.parseConditionalComment(comment) != null ||
+                        !isParallelizable(comment)) {
+                    return false;
+                }
+            } else if (event instanceof ICDATASection) {
+                if (!areParallelSafe(configuration.getCDATASectionProcessors(templateMode)) ||
+                        !isParallelizable(((ICDATASection) event).getCDATASection())) {
+                    return false;
+                }
+            } else if (event instanceof IDocType) {
+                if (!areParallelSafe(configuration.getDocTypeProcessors(templateMode))) {
+                    return false;
+                }
+            } else if (event instanceof IProcessingInstruction) {
+                if (!areParallelSafe(configuration.getProcessingInstructionProcessors(templateMode))) {
+                    return false;
+                }
+            } else if (event instanceof IXMLDeclaration) {
+                if (!areParallelSafe(configuration.getXMLDeclarationProcessors(templateMode))) {
+                    return false;
+                }
+            }
+
+        }
+
+        return true;
+
+    }
+
+
+
+
+    private static boolean isParallelizable(final String value) {
+        return value == null || !value.contains(SIDE_EFFECTING_EXPRESSION_OBJECT);
+    }
+
+
+    private static boolean areParallelSafe(final IElementProcessor[] processors) {
+        for (int i = 0; i < processors.length; i++) {
+            if (!PARALLEL_SAFE_PROCESSOR_CLASSES.contains(ProcessorConfigurationUtils.unwrap(processors[i]).getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean areParallelSafe(final Set<? extends IProcessor> processors) {
+        for (final IProcessor processor : processors) {
+            if (!PARALLEL_SAFE_PROCESSOR_CLASSES.contains(unwrap(processor).getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static IProcessor unwrap(final IProcessor processor) {
+        if (processor instanceof ITextProcessor) {
+            return ProcessorConfigurationUtils.unwrap((ITextProcessor) processor);
+        }
+        if (processor instanceof ICommentProcessor) {
+            return ProcessorConfigurationUtils.unwrap((ICommentProcessor) processor);
+        }
+        if (processor instanceof ICDATASectionProcessor) {
+            return ProcessorConfigurationUtils.unwrap((ICDATASectionProcessor) processor);
+        }
+        if (processor instanceof IDocTypeProcessor) {
+            return ProcessorConfigurationUtils.unwrap((IDocTypeProcessor) processor);
+        }
+        if (processor instanceof IProcessingInstructionProcessor) {
+            return ProcessorConfigurationUtils.unwrap((IProcessingInstructionProcessor) processor);
+        }
+        if (processor instanceof IXMLDeclarationProcessor) {
+            return ProcessorConfigurationUtils.unwrap((IXMLDeclarationProcessor) processor);
+        }
+        return processor;
+    }
+
+
+
+
     /*
      * Whenever possible, compute the total size of the iterated object. Note sometimes we will not be able
      * to compute this size without traversing the entire collection/iterator (which we want to avoid), so
@@ -0,0 +1,217 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IEngineContext;
+import org.thymeleaf.context.ILazyContextVariable;
+
+
+/*
+ * Loads in parallel the lazy context variables (ILazyContextVariable) referenced by a template before it is
+ * processed, used by the TemplateManager when the engine has been configured to do so (see
+ * TemplateEngine#setLazyVariablePrefetchExecutor(Executor)).
+ *
+ * Variable names are obtained from the (cached) TemplateModel of the template being processed and from those of
+ * the fragments it statically inserts, recursively. Only variables existing in the context specified by the user
+ * are considered: an IEngineContext is never prefetched, as it would resolve its lazy variables itself.
+ *
+ * Each variable is waited for at most the configured timeout (counted from the moment its load was submitted).
+ * Timeouts and errors are only logged: a variable not loaded by the time processing starts will be resolved
+ * normally when first used, and errors raised by its load will be raised again at that moment.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class LazyVariablePrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LazyVariablePrefetcher.class);
+
+    // Guard against templates statically inserting a huge amount of (possibly cyclic) fragments
+    private static final int MAX_ANALYZED_MODELS = 50;
+
+    private final TemplateManager templateManager;
+    private final Executor executor;
+    private final long timeout;
+
+
+
+    LazyVariablePrefetcher(final TemplateManager templateManager, final Executor executor, final long timeout) {
+        super();
+        this.templateManager = templateManager;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+
+
+    void prefetch(final TemplateModel templateModel, final IEngineContext engineContext, final IContext context) {
+
+        if (context instanceof IEngineContext) {
+            return;
+        }
+
+        final Set<String> variableNames = collectVariableNames(templateModel, engineContext);
+        if (variableNames.isEmpty()) {
+            return;
+        }
+
+        final List<PrefetchTask> tasks = new ArrayList<PrefetchTask>(variableNames.size());
+        for (final String variableName : variableNames) {
+            final Object value = context.getVariable(variableName);
+            if (value instanceof ILazyContextVariable<?>) {
+                final PrefetchTask task = new PrefetchTask(variableName, (ILazyContextVariable<?>) value);
+                try {
+                    this.executor.execute(task);
+                    tasks.add(task);
+                } catch (final RejectedExecutionException e) {
+                    // The variable will simply be loaded when first used
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "[THYMELEAF][{}] Prefetch of lazy variable \"{}\" rejected by executor",
+                                TemplateEngine.threadIndex(), variableName);
+                    }
+                }
+            }
+        }
+
+        for (final PrefetchTask task : tasks) {
+            task.await(this.timeout);
+        }
+
+    }
+
+
+
+    private Set<String> collectVariableNames(final TemplateModel templateModel, final IEngineContext engineContext) {
+
+        final Set<String> variableNames = new LinkedHashSet<String>(10);
+        final Set<String> visitedFragments = new HashSet<String>(5);
+
+        final List<TemplateModel> pending = new ArrayList<TemplateModel>(5);
+        pending.add(templateModel);
+
+        int analyzed = 0;
+        while (!pending.isEmpty() && analyzed < MAX_ANALYZED_MODELS) {
+
+            final TemplateModel model = pending.remove(pending.size() - 1);
+            final TemplateVariableReferences references = model.getVariableReferences();
+            variableNames.addAll(references.getVariableNames());
+            analyzed++;
+
+            for (final TemplateVariableReferences.FragmentReference fragment : references.getFragments()) {
+                if (!visitedFragments.add(fragment.template + "::" + fragment.selector)) {
+                    continue;
+                }
+                final TemplateModel fragmentModel = parseFragment(fragment, engineContext);
+                if (fragmentModel != null) {
+                    pending.add(fragmentModel);
+                }
+            }
+
+        }
+
+        return variableNames;
+
+    }
+
+
+    private TemplateModel parseFragment(
+            final TemplateVariableReferences.FragmentReference fragment, final IEngineContext engineContext) {
+        try {
+            final Set<String> selectors =
+                    (fragment.selector == null? null : Collections.singleton(fragment.selector));
+            return this.templateManager.parseStandalone(engineContext, fragment.template, selectors, null, true, false);
+        } catch (final Exception e) {
+            // Analysis is only an approximation: any errors will be raised (if needed) during processing
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        String.format(
+                                "[THYMELEAF][%s] Could not analyze fragment \"%s :: %s\" for lazy variable prefetching",
+                                new Object[] {TemplateEngine.threadIndex(), fragment.template, fragment.selector}), e);
+            }
+            return null;
+        }
+    }
+
+
+
+
+    private static final class PrefetchTask extends FutureTask<Object> {
+
+        private final String variableName;
+        private final long submitTime;
+
+        PrefetchTask(final String variableName, final ILazyContextVariable<?> variable) {
+            super(new Callable<Object>() {
+                public Object call() throws Exception {
+                    return variable.getValue();
+                }
+            });
+            this.variableName = variableName;
+            this.submitTime = System.nanoTime();
+        }
+
+        void await(final long timeout) {
+            final long remaining = TimeUnit.MILLISECONDS.toNanos(timeout) - (System.nanoTime() - this.submitTime);
+            try {
+                get(Math.max(remaining, 0L), TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException e) {
+                // We do not cancel the load: it might still finish before the variable is actually needed
+                if (logger.isDebugEnabled()) {
+                    logger.debug(
+                            "[THYMELEAF][{}] Timed out prefetching lazy variable \"{}\"",
+                            TemplateEngine.threadIndex(), this.variableName);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                // The error will be raised again (if the variable is actually used) during processing
+                if (logger.isTraceEnabled()) {
+                    logger.trace(
+                            String.format(
+                                    "[THYMELEAF][%s] Error prefetching lazy variable \"%s\"",
+                                    new Object[] {TemplateEngine.threadIndex(), this.variableName}), e.getCause());
+                }
+            }
+        }
+
+    }
+
+
+}
@@ -0,0 +1,373 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.templatemode.TemplateMode;
+
+
+/*
+ * Template handler that minifies template sources as they are being parsed (see
+ * TemplateEngine#setMinifyTemplates(boolean)). Being applied at parse time, the minification of cached templates
+ * is performed only once, and output generated by processors (e.g. by th:text) is never affected.
+ *
+ * For HTML, whitespace sequences in texts are collapsed into a single space (or a single line feed, if the sequence
+ * contained any), and comments are removed except for conditional comments and comments containing inlined
+ * expressions. The contents of <pre>, <textarea>, <script> and <style> elements are left untouched.
+ *
+ * For JAVASCRIPT and CSS, only indentation and blank lines are removed (outside string and template literals).
+ * Comments are kept, as they might contain natural-template inlined expressions.
+ *
+ * In every mode, inlined expressions ([[...]] and [(...)]) are copied unchanged, as minifying them could modify
+ * their results (e.g. when they contain literals).
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class MinifyingTemplateHandler extends AbstractTemplateHandler {
+
+    private static final String[] HTML_RAW_ELEMENT_NAMES = new String[] { "pre", "textarea", "script", "style" };
+
+    private final TemplateMode templateMode;
+    private int rawElementDepth;
+    private boolean atLineStart; // Textual modes only: whether the last output text ended a line
+
+
+
+    static boolean isMinifiable(final TemplateMode templateMode) {
+        return templateMode == TemplateMode.HTML ||
+                templateMode == TemplateMode.JAVASCRIPT || templateMode == TemplateMode.CSS;
+    }
+
+
+    MinifyingTemplateHandler(final TemplateMode templateMode, final ITemplateHandler next) {
+        super(next);
+        this.templateMode = templateMode;
+        this.rawElementDepth = 0;
+        this.atLineStart = true;
+    }
+
+
+
+
+    @Override
+    public void handleStandaloneElement(final IStandaloneElementTag standaloneElementTag) {
+        this.atLineStart = false;
+        super.handleStandaloneElement(standaloneElementTag);
+    }
+
+
+    @Override
+    public void handleOpenElement(final IOpenElementTag openElementTag) {
+        this.atLineStart = false;
+        if (this.templateMode == TemplateMode.HTML && isRawElement(openElementTag.getElementCompleteName())) {
+            this.rawElementDepth++;
+        }
+        super.handleOpenElement(openElementTag);
+    }
+
+
+    @Override
+    public void handleCloseElement(final ICloseElementTag closeElementTag) {
+        this.atLineStart = false;
+        if (this.rawElementDepth > 0 && !closeElementTag.isUnmatched() &&
+                isRawElement(closeElementTag.getElementCompleteName())) {
+            this.rawElementDepth--;
+        }
+        super.handleCloseElement(closeElementTag);
+    }
+
+
+    @Override
+    public void handleText(final IText text) {
+
+        if (this.rawElementDepth > 0) {
+            super.handleText(text);
+            return;
+        }
+
+        final String content = text.getText();
+        final String minified;
+        if (this.templateMode == TemplateMode.HTML) {
+            minified = collapseWhitespace(content);
+        } else {
+            // Texts in textual modes can be split into several events, so we need to know where lines start
+            minified = removeIndentation(content, this.templateMode == TemplateMode.JAVASCRIPT, this.atLineStart);
+            if (minified.length() > 0) {
+                this.atLineStart = (minified.charAt(minified.length() - 1) == '\n');
+            }
+        }
+
+        if (minified == content) {
+            super.handleText(text);
+            return;
+        }
+        if (minified.length() == 0) {
+            return;
+        }
+
+        super.handleText(
+                new Text(
+                        minified, text.getTemplateName(), text.getLine(), text.getCol(),
+                        AbstractTextualTemplateEvent.computeInlineable(minified)));
+
+    }
+
+
+    @Override
+    public void handleComment(final IComment comment) {
+        if (this.templateMode != TemplateMode.HTML || this.rawElementDepth > 0 || isKeptComment(comment.getContent())) {
+            super.handleComment(comment);
+        }
+        // Otherwise, the comment is simply removed
+    }
+
+
+
+
+    private static boolean isRawElement(final String elementName) {
+        for (int i = 0; i < HTML_RAW_ELEMENT_NAMES.length; i++) {
+            if (HTML_RAW_ELEMENT_NAMES[i].equalsIgnoreCase(elementName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static boolean isKeptComment(final String content) {
+        return content.startsWith("[if") || content.startsWith("<![endif]") || content.endsWith("<![endif]") ||
+                content.indexOf("[[") >= 0 || content.indexOf("[(") >= 0;
+    }
+
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+
+
+
+    /*
+     * Collapses every sequence of whitespace into a single char: a line feed if the sequence contained any, a space
+     * otherwise. If there is nothing to collapse, the same String object is returned.
+     */
+    static String collapseWhitespace(final String text) {
+
+        final int textLen = text.length();
+        StringBuilder strBuilder = null;
+
+        int i = 0;
+        while (i < textLen) {
+
+            final char c = text.charAt(i);
+            if (!isWhitespace(c)) {
+                final int expressionEnd = (c == '['? findInlinedExpressionEnd(text, i) : -1);
+                final int end = (expressionEnd >= 0? expressionEnd : i + 1);
+                if (strBuilder != null) {
+                    strBuilder.append(text, i, end);
+                }
+                i = end;
+                continue;
+            }
+
+            final int runStart = i;
+            boolean hasLineFeed = false;
+            while (i < textLen && isWhitespace(text.charAt(i))) {
+                hasLineFeed |= (text.charAt(i) == '\n');
+                i++;
+            }
+
+            final char replacement = (hasLineFeed? '\n' : ' ');
+            if (strBuilder == null && (i - runStart > 1 || c != replacement)) {
+                strBuilder = new StringBuilder(textLen);
+                strBuilder.append(text, 0, runStart);
+            }
+            if (strBuilder != null) {
+                strBuilder.append(replacement);
+            }
+
+        }
+
+        return (strBuilder == null? text : strBuilder.toString());
+
+    }
+
+
+
+
+    /*
+     * Removes the whitespace at the beginning of lines, and blank lines, as long as they are not inside a string
+     * or template literal. If there is nothing to remove, the same String object is returned.
+     */
+    static String removeIndentation(final String text, final boolean javascript, final boolean atLineStart) {
+
+        final int textLen = text.length();
+        StringBuilder strBuilder = null;
+
+        char literalDelimiter = 0;
+        boolean inLineComment = false;
+        boolean lineStart = atLineStart;
+
+        int i = 0;
+        while (i < textLen) {
+
+            if (lineStart) {
+
+                lineStart = false;
+
+                // Skip indentation and blank lines
+                final int skipStart = i;
+                int lastLineStart = i;
+                while (i < textLen && isWhitespace(text.charAt(i))) {
+                    if (text.charAt(i) == '\n') {
+                        lastLineStart = i + 1;
+                    }
+                    i++;
+                }
+                if (i == skipStart) {
+                    continue;
+                }
+                if (i == textLen) {
+                    // Trailing whitespace might precede an inlined expression or element in the same line, so we
+                    // only remove blank lines here
+                    if (lastLineStart != skipStart) {
+                        if (strBuilder == null) {
+                            strBuilder = new StringBuilder(textLen);
+                            strBuilder.append(text, 0, skipStart);
+                        }
+                        strBuilder.append(text, lastLineStart, textLen);
+                    } else if (strBuilder != null) {
+                        strBuilder.append(text, skipStart, textLen);
+                    }
+                    break;
+                }
+                if (strBuilder == null) {
+                    strBuilder = new StringBuilder(textLen);
+                    strBuilder.append(text, 0, skipStart);
+                }
+                continue;
+
+            }
+
+            final char c = text.charAt(i);
+
+            if (c == '[') {
+                // Inlined expressions are evaluated whatever the surrounding literal or comment state
+                final int expressionEnd = findInlinedExpressionEnd(text, i);
+                if (expressionEnd >= 0) {
+                    if (strBuilder != null) {
+                        strBuilder.append(text, i, expressionEnd);
+                    }
+                    i = expressionEnd;
+                    continue;
+                }
+            }
+
+            if (c == '\n') {
+
+                final boolean continuation = (literalDelimiter != 0 && i > 0 && text.charAt(i - 1) == '\\');
+                if (literalDelimiter != '`' && !continuation) {
+                    // Strings other than template literals cannot span several lines
+                    literalDelimiter = 0;
+                }
+                inLineComment = false;
+                lineStart = (literalDelimiter == 0);
+
+            } else if (inLineComment) {
+                // nothing to track
+            } else if (literalDelimiter != 0) {
+                if (c == '\\') {
+                    if (strBuilder != null) {
+                        strBuilder.append(c);
+                    }
+                    i++;
+                    if (i < textLen && text.charAt(i) != '\n') {
+                        if (strBuilder != null) {
+                            strBuilder.append(text.charAt(i));
+                        }
+                        i++;
+                    }
+                    continue;
+                }
+                if (c == literalDelimiter) {
+                    literalDelimiter = 0;
+                }
+            } else if (c == '\'' || c == '"' || (javascript && c == '`')) {
+                literalDelimiter = c;
+            } else if (javascript && c == '/' && i + 1 < textLen && text.charAt(i + 1) == '/') {
+                inLineComment = true;
+            }
+
+            if (strBuilder != null) {
+                strBuilder.append(c);
+            }
+            i++;
+
+        }
+
+        return (strBuilder == null? text : strBuilder.toString());
+
+    }
+
+
+
+
+    /*
+     * If an inlined expression ([[...]] or [(...)]) starts at the specified position, returns the position right
+     * after its end, looking for it in the same way inliners do (avoiding quotes). Returns -1 otherwise.
+     */
+    private static int findInlinedExpressionEnd(final String text, final int start) {
+
+        final int textLen = text.length();
+        if (start + 1 >= textLen || text.charAt(start) != '[') {
+            return -1;
+        }
+
+        final char c1 = text.charAt(start + 1);
+        if (c1 != '[' && c1 != '(') {
+            return -1;
+        }
+        final char innerClosingChar = (c1 == '['? ']' : ')');
+
+        boolean inQuotes = false;
+        boolean inApos = false;
+        for (int i = start + 2; i < textLen - 1; i++) {
+            final char c = text.charAt(i);
+            if (c == '"' && !inApos) {
+                inQuotes = !inQuotes;
+            } else if (c == '\'' && !inQuotes) {
+                inApos = !inApos;
+            } else if (c == innerClosingChar && !inQuotes && !inApos && text.charAt(i + 1) == ']') {
+                return i + 2;
+            }
+        }
+
+        return -1;
+
+    }
+
+
+}
@@ -48,6 +48,7 @@ public final class ModelBuilderTemplateHandler extends AbstractTemplateHandler {
     private final List<IEngineTemplateEvent> events;
     private final IEngineConfiguration configuration;
     private final TemplateData templateData;
+    private final TemplateEventInterner eventInterner; // might be null! (= no event sharing)
 
 
 
@@ -58,6 +59,11 @@ public ModelBuilderTemplateHandler(final IEngineConfiguration configuration, fin
         this.configuration = configuration;
         this.templateData = templateData;
         this.events = new ArrayList<IEngineTemplateEvent>(100);
+        // Events are only shared among the models of cacheable templates
+        final TemplateManager templateManager = configuration.getTemplateManager();
+        this.eventInterner =
+                (templateManager != null && templateData.getValidity().isCacheable()?
+                        templateManager.getEventInterner() : null);
     }
 
 
@@ -67,6 +73,11 @@ public TemplateModel getModel() {
     }
 
 
+    private void addEvent(final IEngineTemplateEvent event) {
+        this.events.add(this.eventInterner == null? event : this.eventInterner.intern(event));
+    }
+
+
     // Note we are NOT implementing the setContext method, because we don't need it at all when just using
     // this handler for parsing (we are not processing anything!)
 
@@ -93,7 +104,7 @@ public void handleTemplateEnd(final ITemplateEnd templateEnd) {
 
     @Override
     public void handleText(final IText text) {
-        this.events.add(Text.asEngineText(text));
+        addEvent(Text.asEngineText(text));
         // The engine event we might have created is not forwarded - this makes cache creating transparent to the handler chain
         super.handleText(text);
     }
@@ -120,7 +131,7 @@ public void handleCDATASection(final ICDATASection cdataSection) {
 
     @Override
     public void handleStandaloneElement(final IStandaloneElementTag standaloneElementTag) {
-        this.events.add(StandaloneElementTag.asEngineStandaloneElementTag(standaloneElementTag));
+        addEvent(StandaloneElementTag.asEngineStandaloneElementTag(standaloneElementTag));
         // The engine event we might have created is not forwarded - this makes cache creating transparent to the handler chain
         super.handleStandaloneElement(standaloneElementTag);
     }
@@ -128,7 +139,7 @@ public void handleStandaloneElement(final IStandaloneElementTag standaloneElemen
 
     @Override
     public void handleOpenElement(final IOpenElementTag openElementTag) {
-        this.events.add(OpenElementTag.asEngineOpenElementTag(openElementTag));
+        addEvent(OpenElementTag.asEngineOpenElementTag(openElementTag));
         // The engine event we might have created is not forwarded - this makes cache creating transparent to the handler chain
         super.handleOpenElement(openElementTag);
     }
@@ -136,7 +147,7 @@ public void handleOpenElement(final IOpenElementTag openElementTag) {
 
     @Override
     public void handleCloseElement(final ICloseElementTag closeElementTag) {
-        this.events.add(CloseElementTag.asEngineCloseElementTag(closeElementTag));
+        addEvent(CloseElementTag.asEngineCloseElementTag(closeElementTag));
         // The engine event we might have created is not forwarded - this makes cache creating transparent to the handler chain
         super.handleCloseElement(closeElementTag);
     }
@@ -0,0 +1,99 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/*
+ * Writer wrapper that counts the chars written to the wrapped writer, used for applying flush policies
+ * (see TemplateEngine#setFlushPolicy(IFlushPolicy)). It is placed right on top of the writer specified by the user,
+ * so that it only counts output actually sent to it (i.e. not output buffered while waiting for fragments being
+ * rendered in parallel).
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class OutputCountingWriter extends Writer {
+
+    private final Writer writer;
+    private long count;
+
+
+    OutputCountingWriter(final Writer writer) {
+        super();
+        this.writer = writer;
+        this.count = 0L;
+    }
+
+
+    long getCount() {
+        return this.count;
+    }
+
+
+    @Override
+    public void write(final int c) throws IOException {
+        this.writer.write(c);
+        this.count++;
+    }
+
+
+    @Override
+    public void write(final String str) throws IOException {
+        this.writer.write(str);
+        this.count += str.length();
+    }
+
+
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        this.writer.write(str, off, len);
+        this.count += len;
+    }
+
+
+    @Override
+    public void write(final char[] cbuf) throws IOException {
+        this.writer.write(cbuf);
+        this.count += cbuf.length;
+    }
+
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        this.writer.write(cbuf, off, len);
+        this.count += len;
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+}
@@ -22,6 +22,7 @@
 import java.io.Writer;
 
 import org.thymeleaf.exceptions.TemplateOutputException;
+import org.thymeleaf.flushpolicy.IFlushPolicy;
 import org.thymeleaf.model.ICDATASection;
 import org.thymeleaf.model.ICloseElementTag;
 import org.thymeleaf.model.IComment;
@@ -29,6 +30,7 @@
 import org.thymeleaf.model.IOpenElementTag;
 import org.thymeleaf.model.IProcessingInstruction;
 import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.ITemplateEvent;
 import org.thymeleaf.model.IText;
 import org.thymeleaf.model.IXMLDeclaration;
 
@@ -42,7 +44,13 @@
 public final class OutputTemplateHandler extends AbstractTemplateHandler {
 
 
-    private final Writer writer;
+    // Not final, as instances can be reused by pooled ProcessorTemplateHandlers (see #reset(...))
+    private Writer writer;
+
+    // Only non-null if a flush policy has to be applied (see TemplateEngine#setFlushPolicy(IFlushPolicy))
+    private IFlushPolicy flushPolicy;
+    private OutputCountingWriter outputCounter;
+    private long flushedCount;
 
 
 
@@ -59,6 +67,41 @@ public OutputTemplateHandler(final Writer writer) {
             throw new IllegalArgumentException("Writer cannot be null");
         }
         this.writer = writer;
+        this.flushPolicy = null;
+        this.outputCounter = null;
+        this.flushedCount = 0L;
+    }
+
+
+    /*
+     * This constructor is only used for top-level executions when a flush policy has been configured. The output
+     * counter is the wrapper of the writer specified by the user, which might be the specified writer itself or
+     * not (e.g. if there is a DeferredContentWriter on top of it).
+     */
+    OutputTemplateHandler(
+            final Writer writer, final IFlushPolicy flushPolicy, final OutputCountingWriter outputCounter) {
+        super();
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+        this.writer = writer;
+        this.flushPolicy = flushPolicy;
+        this.outputCounter = outputCounter;
+        this.flushedCount = 0L;
+    }
+
+
+    /*
+     * Prepares this handler for a new execution, as if it had just been created with the specified writer, flush
+     * policy and output counter. Used for handlers kept by pooled ProcessorTemplateHandlers, which call it with a
+     * null writer when released so that no references to the output of the previous execution are retained.
+     */
+    void reset(final Writer writer, final IFlushPolicy flushPolicy, final OutputCountingWriter outputCounter) {
+        clearNextAndContext();
+        this.writer = writer;
+        this.flushPolicy = flushPolicy;
+        this.outputCounter = outputCounter;
+        this.flushedCount = 0L;
     }
 
 
@@ -75,6 +118,10 @@ public void handleText(final IText text) {
                     text.getTemplateName(), text.getLine(), text.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(text);
+        }
+
         // Just in case someone set us a 'next'
         super.handleText(text);
 
@@ -93,6 +140,10 @@ public void handleComment(final IComment comment) {
                     comment.getTemplateName(), comment.getLine(), comment.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(comment);
+        }
+
         // Just in case someone set us a 'next'
         super.handleComment(comment);
 
@@ -110,6 +161,10 @@ public void handleCDATASection(final ICDATASection cdataSection) {
                     cdataSection.getTemplateName(), cdataSection.getLine(), cdataSection.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(cdataSection);
+        }
+
         // Just in case someone set us a 'next'
         super.handleCDATASection(cdataSection);
 
@@ -129,6 +184,10 @@ public void handleStandaloneElement(final IStandaloneElementTag standaloneElemen
                     standaloneElementTag.getTemplateName(), standaloneElementTag.getLine(), standaloneElementTag.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(standaloneElementTag);
+        }
+
         // Just in case someone set us a 'next'
         super.handleStandaloneElement(standaloneElementTag);
 
@@ -146,6 +205,10 @@ public void handleOpenElement(final IOpenElementTag openElementTag) {
                     openElementTag.getTemplateName(), openElementTag.getLine(), openElementTag.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(openElementTag);
+        }
+
         // Just in case someone set us a 'next'
         super.handleOpenElement(openElementTag);
 
@@ -163,6 +226,10 @@ public void handleCloseElement(final ICloseElementTag closeElementTag) {
                     closeElementTag.getTemplateName(), closeElementTag.getLine(), closeElementTag.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(closeElementTag);
+        }
+
         // Just in case someone set us a 'next'
         super.handleCloseElement(closeElementTag);
 
@@ -182,6 +249,10 @@ public void handleDocType(final IDocType docType) {
                     docType.getTemplateName(), docType.getLine(), docType.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(docType);
+        }
+
         // Just in case someone set us a 'next'
         super.handleDocType(docType);
 
@@ -201,6 +272,10 @@ public void handleXMLDeclaration(final IXMLDeclaration xmlDeclaration) {
                     xmlDeclaration.getTemplateName(), xmlDeclaration.getLine(), xmlDeclaration.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(xmlDeclaration);
+        }
+
         // Just in case someone set us a 'next'
         super.handleXMLDeclaration(xmlDeclaration);
 
@@ -222,12 +297,38 @@ public void handleProcessingInstruction(final IProcessingInstruction processingI
                     processingInstruction.getTemplateName(), processingInstruction.getLine(), processingInstruction.getCol(), e);
         }
 
+        if (this.flushPolicy != null) {
+            applyFlushPolicy(processingInstruction);
+        }
+
         // Just in case someone set us a 'next'
         super.handleProcessingInstruction(processingInstruction);
 
     }
 
 
-    
-    
-}
\ No newline at end of file
+
+
+    private void applyFlushPolicy(final ITemplateEvent event) {
+
+        final long count = this.outputCounter.getCount();
+        if (!this.flushPolicy.shouldFlush(getContext(), event, count - this.flushedCount)) {
+            return;
+        }
+
+        try {
+            // The writer (and not the counter) is flushed, so that any intermediate buffers are flushed too
+            this.writer.flush();
+        } catch (final Exception e) {
+            throw new TemplateOutputException(
+                    "An error happened while flushing output",
+                    event.getTemplateName(), event.getLine(), event.getCol(), e);
+        }
+
+        this.flushedCount = this.outputCounter.getCount();
+
+    }
+
+
+
+}
@@ -0,0 +1,174 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.thymeleaf.EngineConfiguration;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.IEngineContext;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.util.DeferredCharSequence;
+import org.thymeleaf.util.FastStringWriter;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Utility class containing the methods used for rendering parts of a template in parallel by means
+ *   of the executor configured at {@link org.thymeleaf.TemplateEngine#setParallelRenderingExecutor(Executor)}.
+ * </p>
+ * <p>
+ *   Meant for <strong>internal use only</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.8
+ *
+ */
+public final class ParallelRenderingUtils {
+
+    private static final int DEFAULT_OUTPUT_SIZE = 200;
+
+    /*
+     * Signals threads currently rendering in parallel. Nested parallel rendering is not allowed from these
+     * threads, as waiting for other tasks of the same executor from one of its workers could deadlock.
+     */
+    private static final ThreadLocal<Boolean> PARALLEL_RENDERING_THREAD = new ThreadLocal<Boolean>();
+
+
+
+
+    /**
+     * <p>
+     *   Returns the executor to be used for rendering in parallel at the specified context, or <tt>null</tt>
+     *   if parallel rendering cannot be performed (because it has not been enabled, because local variables are
+     *   not supported by the context or because we already are rendering in parallel).
+     * </p>
+     *
+     * @param context the context.
+     * @return the executor, or <tt>null</tt> if parallel rendering is not possible.
+     */
+    public static Executor getParallelRenderingExecutor(final ITemplateContext context) {
+
+        if (!(context instanceof IEngineContext) || PARALLEL_RENDERING_THREAD.get() != null) {
+            return null;
+        }
+
+        final IEngineConfiguration configuration = context.getConfiguration();
+        if (!(configuration instanceof EngineConfiguration)) {
+            return null;
+        }
+
+        return ((EngineConfiguration) configuration).getParallelRenderingExecutor();
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Processes the specified template model in parallel using the specified executor, and returns a
+     *   {@link DeferredCharSequence} that will contain the result.
+     * </p>
+     * <p>
+     *   The engine context used for processing should be a fork of the context being used at the current
+     *   thread (see {@link org.thymeleaf.context.EngineContextForkUtils}), as it will be used from a
+     *   different thread.
+     * </p>
+     * <p>
+     *   If the executor rejects the execution, the template model will be processed synchronously.
+     * </p>
+     *
+     * @param executor the executor.
+     * @param templateModel the template model to be processed.
+     * @param context the (forked) context to be used for processing.
+     * @return the deferred result of processing.
+     */
+    public static DeferredCharSequence processInParallel(
+            final Executor executor, final TemplateModel templateModel, final IEngineContext context) {
+
+        Validate.notNull(executor, "Executor cannot be null");
+        Validate.notNull(templateModel, "Template model cannot be null");
+        Validate.notNull(context, "Context cannot be null");
+
+        final TemplateManager templateManager = context.getConfiguration().getTemplateManager();
+
+        return submit(executor, new Callable<String>() {
+
+            public String call() throws Exception {
+                final FastStringWriter writer = new FastStringWriter(DEFAULT_OUTPUT_SIZE);
+                templateManager.process(templateModel, context, writer);
+                return writer.toString();
+            }
+
+        });
+
+    }
+
+
+
+
+    /*
+     * Submits the specified rendering task to the executor (or executes it synchronously if rejected), making sure
+     * the thread executing it is marked as a parallel rendering thread while doing so.
+     */
+    static DeferredCharSequence submit(final Executor executor, final Callable<String> renderingTask) {
+
+        final FutureTask<String> task =
+                new FutureTask<String>(new Callable<String>() {
+
+                    public String call() throws Exception {
+                        final Boolean previous = PARALLEL_RENDERING_THREAD.get();
+                        PARALLEL_RENDERING_THREAD.set(Boolean.TRUE);
+                        try {
+                            return renderingTask.call();
+                        } finally {
+                            if (previous == null) {
+                                PARALLEL_RENDERING_THREAD.remove();
+                            }
+                        }
+                    }
+
+                });
+
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            // Just process synchronously
+            task.run();
+        }
+
+        return new DeferredCharSequence(task);
+
+    }
+
+
+
+
+    private ParallelRenderingUtils() {
+        super();
+    }
+
+
+}
@@ -19,6 +19,7 @@
  */
 package org.thymeleaf.engine;
 
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -30,6 +31,7 @@
 import org.thymeleaf.context.ITemplateContext;
 import org.thymeleaf.engine.TemplateModelController.SkipBody;
 import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.flushpolicy.IFlushPolicy;
 import org.thymeleaf.model.ICDATASection;
 import org.thymeleaf.model.ICloseElementTag;
 import org.thymeleaf.model.IComment;
@@ -162,6 +164,9 @@ public final class ProcessorTemplateHandler implements ITemplateHandler {
     // so we can just create one and use it everytime it is needed.
     private DecreaseContextLevelProcessable decreaseContextLevelProcessable = null;
 
+    // Output handler this handler is chained to, kept so that it can be reused if this handler is pooled
+    private OutputTemplateHandler outputHandler = null;
+
 
 
     /**
@@ -204,6 +209,12 @@ public void setContext(final ITemplateContext context) {
         Validate.notNull(this.context, "Context cannot be null");
         Validate.notNull(this.context.getTemplateMode(), "Template Mode returned by context cannot be null");
 
+        // If this handler is being reused (see ProcessorTemplateHandlerPool) for the same configuration and template
+        // mode, the processor arrays computed during its previous use will still be valid, so no need to rebuild them
+        final boolean reuseProcessors =
+                (this.configuration != null && this.configuration == context.getConfiguration() &&
+                 this.templateMode == this.context.getTemplateMode());
+
         this.configuration = context.getConfiguration();
         Validate.notNull(this.configuration, "Engine Configuration returned by context cannot be null");
         Validate.notNull(this.configuration.getElementDefinitions(), "Element Definitions returned by the Engine Configuration cannot be null");
@@ -224,11 +235,19 @@ public void setContext(final ITemplateContext context) {
             this.engineContext = null;
         }
 
-        // Instance the gatherer
-        this.modelController = new TemplateModelController(this.configuration, this.templateMode, this, this.engineContext);
+        // Instance the gatherer (or reset it, if this handler is being reused)
+        if (this.modelController == null) {
+            this.modelController = new TemplateModelController(this.configuration, this.templateMode, this, this.engineContext);
+        } else {
+            this.modelController.reset(this.configuration, this.templateMode, this.engineContext);
+        }
         this.modelController.setTemplateFlowController(this.flowController); // Might have been already initialized or not
         this.decreaseContextLevelProcessable = new DecreaseContextLevelProcessable(this.engineContext, this.flowController);
 
+        if (reuseProcessors) {
+            return;
+        }
+
         // Obtain all processor sets and compute sizes
         final Set<ITemplateBoundariesProcessor> templateBoundariesProcessorSet = this.configuration.getTemplateBoundariesProcessors(this.templateMode);
         final Set<ICDATASectionProcessor> cdataSectionProcessorSet = this.configuration.getCDATASectionProcessors(this.templateMode);
@@ -259,6 +278,54 @@ public void setContext(final ITemplateContext context) {
 
 
 
+    /*
+     * Resets this handler to a state equivalent to that of a newly created instance, so that it can be reused for
+     * an unrelated template execution (see ProcessorTemplateHandlerPool). The only state kept is the set of
+     * processor arrays, which only depend on the configuration and template mode and will be reused by
+     * setContext(...) if these do not change, plus the (reset) model controller and output handler, so that
+     * they do not need to be created again either.
+     */
+    void reset() {
+
+        this.next = null;
+
+        this.context = null;
+        this.engineContext = null;
+        this.flowController = null;
+        this.throttleEngine = false;
+
+        this.initialContextLevel = null;
+        if (this.modelController != null) {
+            this.modelController.reset(null, null, null);
+        }
+        if (this.outputHandler != null) {
+            this.outputHandler.reset(null, null, null);
+        }
+        this.currentGatheringModel = null;
+        this.decreaseContextLevelProcessable = null;
+
+        if (this.pendingProcessings != null) {
+            Arrays.fill(this.pendingProcessings, null);
+        }
+        this.pendingProcessingsSize = 0;
+
+        // Structure handlers are reset before each use, but we don't want them to keep references to the objects
+        // set into them during the last execution
+        this.elementTagStructureHandler.reset();
+        this.elementModelStructureHandler.reset();
+        this.templateBoundariesStructureHandler.reset();
+        this.cdataSectionStructureHandler.reset();
+        this.commentStructureHandler.reset();
+        this.docTypeStructureHandler.reset();
+        this.processingInstructionStructureHandler.reset();
+        this.textStructureHandler.reset();
+        this.xmlDeclarationStructureHandler.reset();
+
+    }
+
+
+
+
     public void setFlowController(final TemplateFlowController flowController) {
         this.flowController = flowController;
         this.throttleEngine = (this.flowController != null);
@@ -931,7 +998,8 @@ public void handleStandaloneElement(final IStandaloneElementTag istandaloneEleme
                             standaloneElementTag, vars,
                             tagStructureHandler.iterVariableName,
                             tagStructureHandler.iterStatusVariableName,
-                            tagStructureHandler.iteratedObject);
+                            tagStructureHandler.iteratedObject,
+                            tagStructureHandler.iterateElementInParallel);
 
                     // Obtain the gathered model (this is a standalone tag, so no additional events needed in iteration)
                     final IGatheringModelProcessable gatheredModel = this.modelController.getGatheredModel();
@@ -1327,7 +1395,8 @@ public void handleOpenElement(final IOpenElementTag iopenElementTag) {
                             openElementTag, vars,
                             tagStructureHandler.iterVariableName,
                             tagStructureHandler.iterStatusVariableName,
-                            tagStructureHandler.iteratedObject);
+                            tagStructureHandler.iteratedObject,
+                            tagStructureHandler.iterateElementInParallel);
 
                     // Nothing else to be done by this handler... let's just queue the rest of the events to be iterated
                     return;
@@ -2175,6 +2244,38 @@ void setCurrentGatheringModel(final IGatheringModelProcessable gatheringModel) {
     }
 
 
+    /*
+     * Needed for processing iterations in parallel (see IteratedGatheringModelProcessable): parallel iterations are
+     * processed on their own handlers, and their output is then directly sent to the next handler in the chain.
+     */
+    ITemplateHandler getNextHandler() {
+        return this.next;
+    }
+
+
+    TemplateModelController getModelController() {
+        return this.modelController;
+    }
+
+
+    /*
+     * Returns the output handler this handler should be chained to for writing to the specified writer. A single
+     * instance is kept and reset for each execution, so that pooled handlers (see ProcessorTemplateHandlerPool)
+     * do not need a new one each time.
+     */
+    OutputTemplateHandler obtainOutputHandler(
+            final Writer writer, final IFlushPolicy flushPolicy, final OutputCountingWriter outputCounter) {
+        if (this.outputHandler == null) {
+            this.outputHandler =
+                    (flushPolicy == null?
+                            new OutputTemplateHandler(writer) : new OutputTemplateHandler(writer, flushPolicy, outputCounter));
+        } else {
+            this.outputHandler.reset(writer, flushPolicy, outputCounter);
+        }
+        return this.outputHandler;
+    }
+
+
 
 
     private Model resetModel(final Model model, final boolean createIfNull) {
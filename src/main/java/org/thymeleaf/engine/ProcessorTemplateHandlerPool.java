@@ -0,0 +1,109 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+
+/*
+ * Per-thread pool of ProcessorTemplateHandler instances, used by the TemplateManager when the engine has been
+ * configured to reuse template handlers between executions (see TemplateEngine#setUseHandlerPooling(boolean)).
+ *
+ * Instances are kept in a per-thread stack indexed by nesting depth, because processing a template can trigger
+ * nested (synchronous) executions of TemplateManager#process(...) in the same thread (inlining, conditional
+ * comments, lazy-processing CharSequences...), and each of these nested executions needs its own handler.
+ *
+ * Reset contract: every handler obtained by means of acquire() MUST be returned by means of release(...) once
+ * processing has finished (normally or not), in LIFO order. Release will completely reset the handler so that
+ * no state (context, writer, pending processables, structure handler values...) survives between executions.
+ *
+ * Throttled executions should never use this pool, as their handlers outlive the call that creates them.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class ProcessorTemplateHandlerPool {
+
+    // Maximum nesting depth for which handlers will be kept. Deeper executions will still work, but their
+    // handlers will be discarded after use.
+    private static final int MAX_POOLED_DEPTH = 10;
+
+    private final ThreadLocal<PooledHandlers> pooledHandlers;
+
+
+
+    ProcessorTemplateHandlerPool() {
+        super();
+        this.pooledHandlers = new ThreadLocal<PooledHandlers>() {
+            @Override
+            protected PooledHandlers initialValue() {
+                return new PooledHandlers();
+            }
+        };
+    }
+
+
+
+    ProcessorTemplateHandler acquire() {
+
+        final PooledHandlers pooled = this.pooledHandlers.get();
+
+        ProcessorTemplateHandler handler = null;
+        if (pooled.depth < MAX_POOLED_DEPTH) {
+            // We remove the handler from its slot while it is in use, so that it can never be handed twice
+            handler = pooled.handlers[pooled.depth];
+            pooled.handlers[pooled.depth] = null;
+        }
+        pooled.depth++;
+
+        return (handler != null? handler : new ProcessorTemplateHandler());
+
+    }
+
+
+    void release(final ProcessorTemplateHandler handler) {
+
+        final PooledHandlers pooled = this.pooledHandlers.get();
+
+        pooled.depth--;
+
+        handler.reset();
+
+        if (pooled.depth < MAX_POOLED_DEPTH) {
+            pooled.handlers[pooled.depth] = handler;
+        }
+
+    }
+
+
+
+
+    private static final class PooledHandlers {
+
+        final ProcessorTemplateHandler[] handlers = new ProcessorTemplateHandler[MAX_POOLED_DEPTH];
+        int depth = 0;
+
+        PooledHandlers() {
+            super();
+        }
+
+    }
+
+
+}
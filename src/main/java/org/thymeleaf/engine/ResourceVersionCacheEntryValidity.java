@@ -0,0 +1,71 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.templateresource.IVersionedTemplateResource;
+
+/*
+ * Validity applied to templates that would not be cacheable according to their template resolvers, but which
+ * are cached anyway (and re-validated each time they are obtained from cache) because the engine has been
+ * configured to do so (see TemplateEngine#setRevalidateNonCacheableTemplates(boolean)).
+ *
+ * Entries are valid for as long as the version of the template resource (and that of its decoupled logic
+ * resource, if there is one) does not change. Versions are computed before the template is parsed, so that
+ * changes happening during parsing are always detected at the next execution.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ */
+final class ResourceVersionCacheEntryValidity implements ICacheEntryValidity {
+
+    private final IVersionedTemplateResource resource;
+    private final long version;
+    private final IVersionedTemplateResource decoupledResource; // might be null! (= no decoupled logic)
+    private final long decoupledVersion;
+
+
+    ResourceVersionCacheEntryValidity(
+            final IVersionedTemplateResource resource, final long version,
+            final IVersionedTemplateResource decoupledResource, final long decoupledVersion) {
+        super();
+        this.resource = resource;
+        this.version = version;
+        this.decoupledResource = decoupledResource;
+        this.decoupledVersion = decoupledVersion;
+    }
+
+
+    public boolean isCacheable() {
+        return true;
+    }
+
+
+    public boolean isCacheStillValid() {
+        return this.resource.version() == this.version &&
+                (this.decoupledResource == null || this.decoupledResource.version() == this.decoupledVersion);
+    }
+
+
+    boolean isSameVersion(final ResourceVersionCacheEntryValidity other) {
+        return this.version == other.version && this.decoupledVersion == other.decoupledVersion;
+    }
+
+}
@@ -30,9 +30,12 @@
  */
 class SSEThrottledTemplateWriter extends ThrottledTemplateWriter implements ISSEThrottledTemplateWriterControl {
 
-    private final static char[] SSE_ID_PREFIX = "id: ".toCharArray();
-    private final static char[] SSE_EVENT_PREFIX = "event: ".toCharArray();
+    private final static String SSE_ID_PREFIX = "id: ";
+    private final static String SSE_EVENT_PREFIX = "event: ";
     private final static char[] SSE_DATA_PREFIX = "data: ".toCharArray();
+    // Line feeds inside event data are always followed by a new "data" field
+    private final static char[] SSE_LINE_FEED_DATA_PREFIX = "\ndata: ".toCharArray();
+    private final static char[] SSE_EVENT_END = "\n\n".toCharArray();
 
     private String id = null;
     private String event = null;
@@ -40,6 +43,10 @@ class SSEThrottledTemplateWriter extends ThrottledTemplateWriter implements ISSE
     private boolean eventHasMeta = false;
     private boolean newEvent = true;
 
+    // Reused for composing the fields that start each event, so that they can be written all at once
+    private final StringBuilder eventStart = new StringBuilder(64);
+    private char[] eventStartChars = new char[64];
+
 
     SSEThrottledTemplateWriter(final String templateName, final TemplateFlowController flowController) {
         super(templateName, flowController);
@@ -55,16 +62,19 @@ public void startEvent(final String id, final String event) {
     }
 
 
+    /*
+     * Writes the "event" and "id" fields (if any) and the prefix of the first "data" field in one single operation
+     */
     private void doStartEvent() throws IOException {
         this.eventHasMeta = false;
+        final StringBuilder strBuilder = this.eventStart;
+        strBuilder.setLength(0);
         if (this.event != null) {
             // Write the "event" field
             if (this.event.indexOf('\n') != -1) {
                 throw new IllegalArgumentException("Event for SSE event cannot contain a newline (\\n) character");
             }
-            super.write(SSE_EVENT_PREFIX);
-            super.write(this.event.toCharArray());
-            super.write('\n');
+            strBuilder.append(SSE_EVENT_PREFIX).append(this.event).append('\n');
             this.eventHasMeta = true;
         }
         if (this.id != null) {
@@ -72,18 +82,23 @@ private void doStartEvent() throws IOException {
             if (this.id.indexOf('\n') != -1) {
                 throw new IllegalArgumentException("ID for SSE event cannot contain a newline (\\n) character");
             }
-            super.write(SSE_ID_PREFIX);
-            super.write(this.id.toCharArray());
-            super.write('\n');
+            strBuilder.append(SSE_ID_PREFIX).append(this.id).append('\n');
             this.eventHasMeta = true;
         }
+        strBuilder.append(SSE_DATA_PREFIX);
+        final int len = strBuilder.length();
+        if (this.eventStartChars.length < len) {
+            this.eventStartChars = new char[Math.max(len, this.eventStartChars.length * 2)];
+        }
+        strBuilder.getChars(0, len, this.eventStartChars, 0);
+        super.write(this.eventStartChars, 0, len);
+        this.newEvent = false;
     }
 
 
     public void endEvent() throws IOException {
         if (!this.newEvent) {
-            super.write('\n');
-            super.write('\n');
+            super.write(SSE_EVENT_END, 0, 2);
         } else if (this.eventHasMeta) {
             // If we only wrote meta, we still need an additional line feed to separate from the next event
             super.write('\n');
@@ -97,14 +112,13 @@ public void write(final int c) throws IOException {
 
         if (this.newEvent) {
             doStartEvent();
-            super.write(SSE_DATA_PREFIX);
-            this.newEvent = false;
         }
 
-        super.write(c);
         if (c == '\n') {
             // This is a line feed, so we need to write the prefix afterwards
-            super.write(SSE_DATA_PREFIX);
+            super.write(SSE_LINE_FEED_DATA_PREFIX, 0, SSE_LINE_FEED_DATA_PREFIX.length);
+        } else {
+            super.write(c);
         }
 
     }
@@ -135,26 +149,22 @@ public void write(final String str, final int off, final int len) throws IOExcep
 
         if (this.newEvent) {
             doStartEvent();
-            super.write(SSE_DATA_PREFIX);
-            this.newEvent = false;
         }
 
-        char c;
-        int i = off;
-        int x = i;
         final int maxi = (off + len);
-        while (i < maxi) {
-            c = str.charAt(i++);
-            if (c == '\n') {
-                // This is a line feed, so we write everything until this point, then the prefix, then we continue
+        int x = off;
+        int i;
+        while ((i = indexOfLineFeed(str, x, maxi)) != -1) {
+            // This is a line feed, so we write everything until this point, then the prefix, then we continue
+            if (i > x) {
                 super.write(str, x, (i - x));
-                super.write(SSE_DATA_PREFIX);
-                x = i;
             }
+            super.write(SSE_LINE_FEED_DATA_PREFIX, 0, SSE_LINE_FEED_DATA_PREFIX.length);
+            x = i + 1;
         }
         // Finally we write whatever is left at the original buffer
-        if (x < i) {
-            super.write(str, x, (i - x));
+        if (x < maxi) {
+            super.write(str, x, (maxi - x));
         }
 
     }
@@ -185,31 +195,55 @@ public void write(final char[] cbuf, final int off, final int len) throws IOExce
 
         if (this.newEvent) {
             doStartEvent();
-            super.write(SSE_DATA_PREFIX);
-            this.newEvent = false;
         }
 
-        char c;
-        int i = off;
-        int x = i;
         final int maxi = (off + len);
-        while (i < maxi) {
-            c = cbuf[i++];
-            if (c == '\n') {
-                // This is a line feed, so we write everything until this point, then the prefix, then we continue
+        int x = off;
+        int i;
+        while ((i = indexOfLineFeed(cbuf, x, maxi)) != -1) {
+            // This is a line feed, so we write everything until this point, then the prefix, then we continue
+            if (i > x) {
                 super.write(cbuf, x, (i - x));
-                super.write(SSE_DATA_PREFIX);
-                x = i;
             }
+            super.write(SSE_LINE_FEED_DATA_PREFIX, 0, SSE_LINE_FEED_DATA_PREFIX.length);
+            x = i + 1;
         }
         // Finally we write whatever is left at the original buffer
-        if (x < i) {
-            super.write(cbuf, x, (i - x));
+        if (x < maxi) {
+            super.write(cbuf, x, (maxi - x));
         }
 
     }
 
 
+    private static int indexOfLineFeed(final String str, final int from, final int to) {
+        if (to == str.length()) {
+            // String#indexOf(int,int) is a JVM intrinsic, much faster than examining chars one by one. We only
+            // use it when the range reaches the end of the String, so that it never scans chars outside the range.
+            return str.indexOf('\n', from);
+        }
+        for (int i = from; i < to; i++) {
+            if (str.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /*
+     * Kept as a separate, minimal loop (no writes inside) so that the JIT can optimize it as a plain array scan
+     */
+    private static int indexOfLineFeed(final char[] cbuf, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (cbuf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
 
 
 }
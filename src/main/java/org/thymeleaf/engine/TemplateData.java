@@ -20,6 +20,7 @@
 package org.thymeleaf.engine;
 
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.thymeleaf.cache.ICacheEntryValidity;
 import org.thymeleaf.context.ITemplateContext;
@@ -66,6 +67,9 @@ public final class TemplateData {
     private final TemplateMode templateMode;
     private final ICacheEntryValidity cacheValidity;
 
+    // Fragments linked to the cached model of this template, by fragment specification (see TemplateManager)
+    private volatile ConcurrentHashMap<String,TemplateModel> linkedFragments = null;
+
 
     /**
      * <p>
@@ -214,4 +218,28 @@ public ICacheEntryValidity getValidity() {
     }
 
 
+
+
+
+    TemplateModel getLinkedFragment(final String fragmentSpec) {
+        final ConcurrentHashMap<String,TemplateModel> fragments = this.linkedFragments;
+        return (fragments == null? null : fragments.get(fragmentSpec));
+    }
+
+
+    void linkFragment(final String fragmentSpec, final TemplateModel fragmentModel) {
+        ConcurrentHashMap<String,TemplateModel> fragments = this.linkedFragments;
+        if (fragments == null) {
+            synchronized (this) {
+                fragments = this.linkedFragments;
+                if (fragments == null) {
+                    fragments = new ConcurrentHashMap<String, TemplateModel>(4);
+                    this.linkedFragments = fragments;
+                }
+            }
+        }
+        fragments.put(fragmentSpec, fragmentModel);
+    }
+
+
 }
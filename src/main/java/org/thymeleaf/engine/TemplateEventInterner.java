@@ -0,0 +1,285 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.thymeleaf.templatemode.TemplateMode;
+
+/*
+ * Engine-wide table of shared (interned) instances of the immutable events and attributes that appear repeatedly
+ * in cacheable templates: short texts (mostly whitespace), close tags, element tags without associated processors
+ * and attributes without associated processors.
+ *
+ * Shared instances are created without location (template name, line, col), as they will be used by many
+ * templates. This is why only events and attributes that are never processed are shared: location is only needed
+ * for reporting errors in processors (and, for the rest, location will simply not be reported).
+ *
+ * Shared instances are weakly referenced, so that they are discarded once no cached model uses them anymore.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ */
+final class TemplateEventInterner {
+
+    // Longer texts are very unlikely to be repeated, and sharing them would just increase the size of the table
+    private static final int MAX_TEXT_LENGTH = 128;
+
+    private final ConcurrentHashMap<String,SharedReference> shared;
+    private final ReferenceQueue<Object> discarded;
+
+
+
+    TemplateEventInterner() {
+        super();
+        this.shared = new ConcurrentHashMap<String, SharedReference>(256, 0.75f, 16);
+        this.discarded = new ReferenceQueue<Object>();
+    }
+
+
+
+
+    IEngineTemplateEvent intern(final IEngineTemplateEvent event) {
+
+        if (event instanceof Text) {
+            return internText((Text) event);
+        }
+        if (event instanceof CloseElementTag) {
+            return internCloseElementTag((CloseElementTag) event);
+        }
+        if (event instanceof OpenElementTag) {
+            return internOpenElementTag((OpenElementTag) event);
+        }
+        if (event instanceof StandaloneElementTag) {
+            return internStandaloneElementTag((StandaloneElementTag) event);
+        }
+        return event;
+
+    }
+
+
+
+
+    private Text internText(final Text text) {
+
+        final int length = text.length();
+        if (length == 0 || length > MAX_TEXT_LENGTH || text.isInlineable()) {
+            return text;
+        }
+
+        final String content = text.getText();
+        final String key = 'T' + content;
+
+        final Object existing = get(key);
+        if (existing != null) {
+            return (Text) existing;
+        }
+        // Only non-inlineable texts are interned
+        return (Text) put(key, new Text(content, false));
+
+    }
+
+
+    private CloseElementTag internCloseElementTag(final CloseElementTag closeElementTag) {
+
+        if (closeElementTag.synthetic) {
+            return closeElementTag;
+        }
+
+        final String key =
+                "C" + modeKey(closeElementTag.templateMode) + (closeElementTag.unmatched? '1' : '0') + closeElementTag.toString();
+
+        final Object existing = get(key);
+        if (existing != null) {
+            return (CloseElementTag) existing;
+        }
+        return (CloseElementTag) put(key,
+                new CloseElementTag(
+                        closeElementTag.templateMode, closeElementTag.elementDefinition, closeElementTag.elementCompleteName,
+                        closeElementTag.trailingWhiteSpace, false, closeElementTag.unmatched));
+
+    }
+
+
+    private OpenElementTag internOpenElementTag(final OpenElementTag openElementTag) {
+
+        if (openElementTag.synthetic) {
+            return openElementTag;
+        }
+
+        final Attributes attributes = internAttributes(openElementTag.templateMode, openElementTag.attributes);
+
+        if (openElementTag.hasAssociatedProcessors()) {
+            // Processable tags are never shared (their location is needed), but their static attributes can be
+            if (attributes == openElementTag.attributes) {
+                return openElementTag;
+            }
+            return new OpenElementTag(
+                    openElementTag.templateMode, openElementTag.elementDefinition, openElementTag.elementCompleteName,
+                    attributes, false, openElementTag.templateName, openElementTag.line, openElementTag.col);
+        }
+
+        final String key = "O" + modeKey(openElementTag.templateMode) + openElementTag.toString();
+
+        final Object existing = get(key);
+        if (existing != null) {
+            return (OpenElementTag) existing;
+        }
+        return (OpenElementTag) put(key,
+                new OpenElementTag(
+                        openElementTag.templateMode, openElementTag.elementDefinition, openElementTag.elementCompleteName,
+                        attributes, false));
+
+    }
+
+
+    private StandaloneElementTag internStandaloneElementTag(final StandaloneElementTag standaloneElementTag) {
+
+        if (standaloneElementTag.synthetic) {
+            return standaloneElementTag;
+        }
+
+        final Attributes attributes = internAttributes(standaloneElementTag.templateMode, standaloneElementTag.attributes);
+
+        if (standaloneElementTag.hasAssociatedProcessors()) {
+            // Processable tags are never shared (their location is needed), but their static attributes can be
+            if (attributes == standaloneElementTag.attributes) {
+                return standaloneElementTag;
+            }
+            return new StandaloneElementTag(
+                    standaloneElementTag.templateMode, standaloneElementTag.elementDefinition, standaloneElementTag.elementCompleteName,
+                    attributes, false, standaloneElementTag.minimized,
+                    standaloneElementTag.templateName, standaloneElementTag.line, standaloneElementTag.col);
+        }
+
+        final String key =
+                "S" + modeKey(standaloneElementTag.templateMode) + (standaloneElementTag.minimized? '1' : '0') + standaloneElementTag.toString();
+
+        final Object existing = get(key);
+        if (existing != null) {
+            return (StandaloneElementTag) existing;
+        }
+        return (StandaloneElementTag) put(key,
+                new StandaloneElementTag(
+                        standaloneElementTag.templateMode, standaloneElementTag.elementDefinition, standaloneElementTag.elementCompleteName,
+                        attributes, false, standaloneElementTag.minimized));
+
+    }
+
+
+    /*
+     * Returns the same Attributes object if none of its attributes can be shared
+     */
+    private Attributes internAttributes(final TemplateMode templateMode, final Attributes attributes) {
+
+        if (attributes == null || attributes.attributes == null || attributes.attributes.length == 0) {
+            return attributes;
+        }
+
+        Attribute[] internedAttributes = null;
+        for (int i = 0; i < attributes.attributes.length; i++) {
+            final Attribute attribute = attributes.attributes[i];
+            final Attribute internedAttribute = internAttribute(templateMode, attribute);
+            if (internedAttribute != attribute) {
+                if (internedAttributes == null) {
+                    internedAttributes = attributes.attributes.clone();
+                }
+                internedAttributes[i] = internedAttribute;
+            }
+        }
+
+        if (internedAttributes == null) {
+            return attributes;
+        }
+        return new Attributes(internedAttributes, attributes.innerWhiteSpaces);
+
+    }
+
+
+    private Attribute internAttribute(final TemplateMode templateMode, final Attribute attribute) {
+
+        if (attribute.definition.hasAssociatedProcessors() || (attribute.templateName == null && attribute.line == -1)) {
+            // Attributes that are processed are never shared, and those without location might already be shared
+            return attribute;
+        }
+
+        final String key = "A" + modeKey(templateMode) + attribute.toString();
+
+        final Object existing = get(key);
+        if (existing != null) {
+            return (Attribute) existing;
+        }
+        return (Attribute) put(key,
+                new Attribute(
+                        attribute.definition, attribute.completeName, attribute.operator, attribute.value, attribute.valueQuotes,
+                        null, -1, -1));
+
+    }
+
+
+
+
+    private static char modeKey(final TemplateMode templateMode) {
+        return (char) ('0' + templateMode.ordinal());
+    }
+
+
+    private Object get(final String key) {
+        purgeDiscarded();
+        final SharedReference reference = this.shared.get(key);
+        return (reference == null? null : reference.get());
+    }
+
+
+    private Object put(final String key, final Object instance) {
+        // In case of a race condition, the same instance might end up not being shared by all of the templates
+        // that use it. That would be harmless.
+        this.shared.put(key, new SharedReference(key, instance, this.discarded));
+        return instance;
+    }
+
+
+    private void purgeDiscarded() {
+        Reference<?> reference;
+        while ((reference = this.discarded.poll()) != null) {
+            final SharedReference sharedReference = (SharedReference) reference;
+            this.shared.remove(sharedReference.key, sharedReference);
+        }
+    }
+
+
+
+
+    private static final class SharedReference extends WeakReference<Object> {
+
+        final String key;
+
+        SharedReference(final String key, final Object instance, final ReferenceQueue<Object> queue) {
+            super(instance, queue);
+            this.key = key;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,325 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.templatemode.TemplateMode;
+
+
+/*
+ * Index of the selectable blocks (elements) of a complete template model, which allows computing the models
+ * that would result from parsing the same template with simple selectors (e.g. "header", selecting elements
+ * named 'header' as well as those with a th:fragment="header..." or th:ref="header" attribute) as slices of
+ * this model, instead of parsing the template again for each set of selectors.
+ *
+ * Only selectors consisting of a simple name are supported. Also, models are only indexable if their markup is
+ * completely balanced (no synthetic or unmatched tags), as only in that case it is guaranteed that the selected
+ * blocks will be exactly the same ones the parser would select.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class TemplateFragmentIndex {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final TemplateModel model;
+    private final boolean sliceable;
+
+    // For each position in the model: if it is an open or standalone tag, the position of the end of its block
+    // (its matching close tag, or itself); -1 otherwise.
+    private final int[] blockEnds;
+
+    private final Map<String,int[]> positionsByElementName;
+    private final Map<String,int[]> positionsByReference;
+
+
+
+    static boolean isIndexable(final TemplateMode templateMode, final Set<String> templateSelectors) {
+        if (templateMode != TemplateMode.HTML && templateMode != TemplateMode.XML) {
+            return false;
+        }
+        if (templateSelectors == null || templateSelectors.isEmpty()) {
+            return false;
+        }
+        for (final String selector : templateSelectors) {
+            if (!isSimpleName(selector)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean isSimpleName(final String selector) {
+        final int len = selector.length();
+        if (len == 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            final char c = selector.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (i > 0 && ((c >= '0' && c <= '9') || c == '-'))) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+
+
+
+    static TemplateFragmentIndex compute(final TemplateModel model) {
+
+        final IEngineConfiguration configuration = model.getConfiguration();
+        final boolean html = (model.getTemplateMode() == TemplateMode.HTML);
+        final String[] referenceAttributeNames = computeReferenceAttributeNames(html, configuration.getStandardDialectPrefix());
+
+        final IEngineTemplateEvent[] queue = model.queue;
+        final int[] blockEnds = new int[queue.length];
+        Arrays.fill(blockEnds, -1);
+
+        final Map<String,List<Integer>> byElementName = new HashMap<String, List<Integer>>();
+        final Map<String,List<Integer>> byReference = new HashMap<String, List<Integer>>();
+
+        final int[] openPositions = new int[queue.length];
+        int depth = 0;
+
+        for (int i = 0; i < queue.length; i++) {
+
+            final IEngineTemplateEvent event = queue[i];
+
+            if (event instanceof OpenElementTag || event instanceof StandaloneElementTag) {
+
+                final AbstractProcessableElementTag tag = (AbstractProcessableElementTag) event;
+                if (tag.isSynthetic()) {
+                    return new TemplateFragmentIndex(model);
+                }
+
+                final String elementName = tag.getElementCompleteName();
+                addPosition(byElementName, (html? elementName.toLowerCase() : elementName), i);
+                for (int j = 0; j < referenceAttributeNames.length; j++) {
+                    final String reference = extractReference(tag.getAttributeValue(referenceAttributeNames[j]));
+                    if (reference != null) {
+                        addPosition(byReference, reference, i);
+                    }
+                }
+
+                if (event instanceof StandaloneElementTag) {
+                    blockEnds[i] = i;
+                } else {
+                    openPositions[depth++] = i;
+                }
+
+            } else if (event instanceof CloseElementTag) {
+
+                final CloseElementTag tag = (CloseElementTag) event;
+                if (tag.isSynthetic() || tag.isUnmatched() || depth == 0) {
+                    return new TemplateFragmentIndex(model);
+                }
+                blockEnds[openPositions[--depth]] = i;
+
+            }
+
+        }
+
+        if (depth != 0) {
+            return new TemplateFragmentIndex(model);
+        }
+
+        return new TemplateFragmentIndex(model, blockEnds, toPositionArrays(byElementName), toPositionArrays(byReference));
+
+    }
+
+
+    private static String[] computeReferenceAttributeNames(final boolean html, final String standardDialectPrefix) {
+        if (standardDialectPrefix == null) {
+            // No reference resolver is used by the parsers in this case: only element names can be selected
+            return new String[0];
+        }
+        if (html) {
+            final String prefix = standardDialectPrefix.toLowerCase();
+            return new String[] {
+                    prefix + ":ref", "data-" + prefix + "-ref", prefix + ":fragment", "data-" + prefix + "-fragment" };
+        }
+        return new String[] { standardDialectPrefix + ":ref", standardDialectPrefix + ":fragment" };
+    }
+
+
+    /*
+     * Selectors for references match attributes whose value equals the reference, or starts with the reference
+     * followed by '(' or ' (' (fragment signatures). Given an attribute value, this returns the only reference
+     * that could match it.
+     */
+    private static String extractReference(final String attributeValue) {
+        if (attributeValue == null) {
+            return null;
+        }
+        final int parenthesisPos = attributeValue.indexOf('(');
+        if (parenthesisPos < 0) {
+            return attributeValue;
+        }
+        if (parenthesisPos > 0 && attributeValue.charAt(parenthesisPos - 1) == ' ') {
+            return attributeValue.substring(0, parenthesisPos - 1);
+        }
+        return attributeValue.substring(0, parenthesisPos);
+    }
+
+
+    private static void addPosition(final Map<String,List<Integer>> positions, final String key, final int position) {
+        List<Integer> keyPositions = positions.get(key);
+        if (keyPositions == null) {
+            keyPositions = new ArrayList<Integer>(2);
+            positions.put(key, keyPositions);
+        }
+        keyPositions.add(Integer.valueOf(position));
+    }
+
+
+    private static Map<String,int[]> toPositionArrays(final Map<String,List<Integer>> positions) {
+        final Map<String,int[]> result = new HashMap<String, int[]>(positions.size() + 1, 1.0f);
+        for (final Map.Entry<String,List<Integer>> entry : positions.entrySet()) {
+            final List<Integer> keyPositions = entry.getValue();
+            final int[] array = new int[keyPositions.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = keyPositions.get(i).intValue();
+            }
+            result.put(entry.getKey(), array);
+        }
+        return result;
+    }
+
+
+
+
+    private TemplateFragmentIndex(final TemplateModel model) {
+        super();
+        this.model = model;
+        this.sliceable = false;
+        this.blockEnds = null;
+        this.positionsByElementName = null;
+        this.positionsByReference = null;
+    }
+
+
+    private TemplateFragmentIndex(
+            final TemplateModel model, final int[] blockEnds,
+            final Map<String,int[]> positionsByElementName, final Map<String,int[]> positionsByReference) {
+        super();
+        this.model = model;
+        this.sliceable = true;
+        this.blockEnds = blockEnds;
+        this.positionsByElementName = positionsByElementName;
+        this.positionsByReference = positionsByReference;
+    }
+
+
+
+
+    boolean isSliceable() {
+        return this.sliceable;
+    }
+
+
+    /*
+     * Builds the model containing the blocks selected by the specified (simple) selectors, in document order and
+     * without repeating blocks nested inside other selected blocks. The template data should be the one
+     * corresponding to the selection. Returns null if this index cannot be used.
+     */
+    TemplateModel slice(final TemplateData templateData, final Set<String> templateSelectors) {
+
+        if (!this.sliceable) {
+            return null;
+        }
+
+        final boolean html = (this.model.getTemplateMode() == TemplateMode.HTML);
+
+        int[] starts = NO_POSITIONS;
+        for (final String selector : templateSelectors) {
+            starts = merge(starts, positionsFor(this.positionsByElementName, (html? selector.toLowerCase() : selector)));
+            starts = merge(starts, positionsFor(this.positionsByReference, selector));
+        }
+
+        final IEngineTemplateEvent[] queue = this.model.queue;
+        final List<IEngineTemplateEvent> selected = new ArrayList<IEngineTemplateEvent>();
+        selected.add(TemplateStart.TEMPLATE_START_INSTANCE);
+
+        int lastEnd = -1;
+        for (int i = 0; i < starts.length; i++) {
+            final int start = starts[i];
+            if (start <= lastEnd) {
+                // Nested inside an already selected block (or repeated)
+                continue;
+            }
+            final int end = this.blockEnds[start];
+            for (int j = start; j <= end; j++) {
+                selected.add(queue[j]);
+            }
+            lastEnd = end;
+        }
+
+        selected.add(TemplateEnd.TEMPLATE_END_INSTANCE);
+
+        return new TemplateModel(
+                this.model.getConfiguration(), templateData, selected.toArray(new IEngineTemplateEvent[selected.size()]));
+
+    }
+
+
+    private static int[] positionsFor(final Map<String,int[]> positions, final String key) {
+        final int[] keyPositions = positions.get(key);
+        return (keyPositions == null? NO_POSITIONS : keyPositions);
+    }
+
+
+    /*
+     * Merges two sorted arrays of positions into a sorted array
+     */
+    private static int[] merge(final int[] a, final int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        final int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            result[k++] = (a[i] <= b[j]? a[i++] : b[j++]);
+        }
+        while (i < a.length) {
+            result[k++] = a[i++];
+        }
+        while (j < b.length) {
+            result[k++] = b[j++];
+        }
+        return result;
+    }
+
+
+}
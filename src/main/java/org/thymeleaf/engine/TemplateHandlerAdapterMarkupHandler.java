@@ -184,7 +184,9 @@ public void handleCDATASection(
         final String suffix = new String(buffer, contentOffset + contentLen, (outerOffset + outerLen) - (contentOffset + contentLen));
 
         this.templateHandler.handleCDATASection(
-                new CDATASection(prefix, content, suffix, this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col));
+                new CDATASection(
+                        prefix, content, suffix, this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col,
+                        AbstractTextualTemplateEvent.computeInlineable(buffer, contentOffset, contentLen)));
 
     }
 
@@ -203,7 +205,9 @@ public void handleComment(
         final String suffix = new String(buffer, contentOffset + contentLen, (outerOffset + outerLen) - (contentOffset + contentLen));
 
         this.templateHandler.handleComment(
-                new Comment(prefix, content, suffix, this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col));
+                new Comment(
+                        prefix, content, suffix, this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col,
+                        AbstractTextualTemplateEvent.computeInlineable(buffer, contentOffset, contentLen)));
 
     }
 
@@ -215,8 +219,11 @@ public void handleText(
             final int offset, final int len,
             final int line, final int col)
             throws ParseException {
+        // Inlineability is computed here, directly on the parser's buffer, so that it is never computed during processing
         this.templateHandler.handleText(
-                new Text(new String(buffer, offset, len), this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col));
+                new Text(
+                        new String(buffer, offset, len), this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col,
+                        AbstractTextualTemplateEvent.computeInlineable(buffer, offset, len)));
     }
 
 
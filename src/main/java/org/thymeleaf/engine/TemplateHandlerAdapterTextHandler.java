@@ -115,8 +115,11 @@ public void handleText(
             final int offset, final int len,
             final int line, final int col)
             throws TextParseException {
+        // Inlineability is computed here, directly on the parser's buffer, so that it is never computed during processing
         this.templateHandler.handleText(
-                new Text(new String(buffer, offset, len), this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col));
+                new Text(
+                        new String(buffer, offset, len), this.templateName, this.lineOffset + line, (line == 1? this.colOffset : 0) + col,
+                        AbstractTextualTemplateEvent.computeInlineable(buffer, offset, len)));
     }
 
 
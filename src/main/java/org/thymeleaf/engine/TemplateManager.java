@@ -19,15 +19,20 @@
  */
 package org.thymeleaf.engine;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.thymeleaf.EngineConfiguration;
 import org.thymeleaf.IEngineConfiguration;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.TemplateSpec;
@@ -41,11 +46,14 @@
 import org.thymeleaf.context.IEngineContext;
 import org.thymeleaf.context.ITemplateContext;
 import org.thymeleaf.exceptions.TemplateInputException;
+import org.thymeleaf.exceptions.TemplateOutputException;
 import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.flushpolicy.IFlushPolicy;
 import org.thymeleaf.postprocessor.IPostProcessor;
 import org.thymeleaf.preprocessor.IPreProcessor;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateparser.ITemplateParser;
+import org.thymeleaf.templateparser.markup.AbstractMarkupTemplateParser;
 import org.thymeleaf.templateparser.markup.HTMLTemplateParser;
 import org.thymeleaf.templateparser.markup.XMLTemplateParser;
 import org.thymeleaf.templateparser.raw.RawTemplateParser;
@@ -54,7 +62,13 @@
 import org.thymeleaf.templateparser.text.TextTemplateParser;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 import org.thymeleaf.templateresolver.TemplateResolution;
+import org.thymeleaf.templateresource.FileTemplateResource;
+import org.thymeleaf.templateresource.IContentBufferTemplateResource;
 import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.IVersionedTemplateResource;
+import org.thymeleaf.util.ByteChannelWriter;
+import org.thymeleaf.util.DeferredContentWriter;
+import org.thymeleaf.util.FastStringWriter;
 import org.thymeleaf.util.LoggingUtils;
 import org.thymeleaf.util.Validate;
 
@@ -85,6 +99,29 @@ public final class TemplateManager {
 
     private final ICache<TemplateCacheKey,TemplateModel> templateCache; // might be null! (= no cache)
 
+    private final ProcessorTemplateHandlerPool processorTemplateHandlerPool; // might be null! (= no pooling)
+
+    private final boolean parallelRendering;
+
+    private final LazyVariablePrefetcher lazyVariablePrefetcher; // might be null! (= no prefetching)
+
+    private final IFlushPolicy flushPolicy; // might be null! (= only flush at the end)
+
+    private final boolean minifyTemplates;
+
+    private final boolean coalesceCachedTemplateTexts;
+    private final boolean compactCachedTemplates;
+    private final TemplateEventInterner eventInterner; // might be null! (= no event sharing)
+
+    private final boolean linkStaticFragments;
+    // Names of the templates that linked fragments of each template, so that they can be invalidated with it
+    private final ConcurrentHashMap<String,Set<String>> fragmentLinkingTemplates;
+
+    private final boolean rawPassThrough;
+
+    private final boolean revalidateNonCacheableTemplates;
+    private final ConcurrentHashMap<String,ResourceVersionCacheEntryValidity> revalidatedTemplateVersions;
+
 
 
 
@@ -111,6 +148,73 @@ public TemplateManager(final IEngineConfiguration configuration) {
             this.templateCache = cacheManager.getTemplateCache();
         }
 
+        if (this.configuration instanceof EngineConfiguration && ((EngineConfiguration) this.configuration).getUseHandlerPooling()) {
+            this.processorTemplateHandlerPool = new ProcessorTemplateHandlerPool();
+        } else {
+            this.processorTemplateHandlerPool = null;
+        }
+
+        this.parallelRendering =
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getParallelRenderingExecutor() != null;
+
+        if (this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getLazyVariablePrefetchExecutor() != null) {
+            this.lazyVariablePrefetcher =
+                    new LazyVariablePrefetcher(
+                            this,
+                            ((EngineConfiguration) this.configuration).getLazyVariablePrefetchExecutor(),
+                            ((EngineConfiguration) this.configuration).getLazyVariablePrefetchTimeout());
+        } else {
+            this.lazyVariablePrefetcher = null;
+        }
+
+        // Flush policies are inert if there are post-processors, as these might need the whole output before writing
+        if (this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getFlushPolicy() != null &&
+                !hasPostProcessors(this.configuration)) {
+            this.flushPolicy = ((EngineConfiguration) this.configuration).getFlushPolicy();
+        } else {
+            this.flushPolicy = null;
+        }
+
+        this.minifyTemplates =
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getMinifyTemplates();
+
+        this.coalesceCachedTemplateTexts =
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getCoalesceCachedTemplateTexts();
+
+        this.compactCachedTemplates =
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getCompactCachedTemplates();
+
+        if (this.templateCache != null &&
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getInternCachedTemplateEvents()) {
+            this.eventInterner = new TemplateEventInterner();
+        } else {
+            this.eventInterner = null;
+        }
+
+        this.linkStaticFragments =
+                this.templateCache != null &&
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getLinkStaticFragments();
+        this.fragmentLinkingTemplates =
+                (this.linkStaticFragments? new ConcurrentHashMap<String, Set<String>>(20) : null);
+
+        // RAW templates can be written directly to output if nothing could ever process them
+        this.rawPassThrough = isRawPassThroughPossible(this.configuration);
+
+        this.revalidateNonCacheableTemplates =
+                this.templateCache != null &&
+                this.configuration instanceof EngineConfiguration &&
+                ((EngineConfiguration) this.configuration).getRevalidateNonCacheableTemplates();
+        this.revalidatedTemplateVersions =
+                (this.revalidateNonCacheableTemplates? new ConcurrentHashMap<String, ResourceVersionCacheEntryValidity>(20) : null);
+
         final boolean standardDialectPresent = this.configuration.isStandardDialectPresent();
 
         // TODO Make these parser implementations configurable: one parser per template mode, then make default implementations extensible/configurable (e.g. AttoParser config)
@@ -136,6 +240,15 @@ public void clearCaches() {
         if (this.templateCache != null) {
             this.templateCache.clear();
         }
+        if (this.fragmentLinkingTemplates != null) {
+            this.fragmentLinkingTemplates.clear();
+        }
+        if (this.revalidatedTemplateVersions != null) {
+            this.revalidatedTemplateVersions.clear();
+        }
+        // Decoupled logic is re-validated by version, but a full clear should not leave anything behind
+        ((AbstractMarkupTemplateParser) this.htmlParser).clearDecoupledTemplateLogicCache();
+        ((AbstractMarkupTemplateParser) this.xmlParser).clearDecoupledTemplateLogicCache();
     }
 
     
@@ -171,6 +284,97 @@ public void clearCachesFor(final String template) {
                 this.templateCache.clearKey(keyToBeRemoved);
             }
         }
+        if (this.fragmentLinkingTemplates != null) {
+            // Templates that linked fragments of this template have to be cleared too, as they contain them. Note
+            // the set of linking templates is removed before recursing, so that there are no infinite loops.
+            final Set<String> linkingTemplates = this.fragmentLinkingTemplates.remove(template);
+            if (linkingTemplates != null) {
+                for (final String linkingTemplate : linkingTemplates) {
+                    clearCachesFor(linkingTemplate);
+                }
+            }
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the fragment that has been linked to the (cached) template being executed for the specified
+     *   fragment specification, if any.
+     * </p>
+     * <p>
+     *   Fragments are only linked if static fragment linking has been enabled at the engine configuration
+     *   (see {@link TemplateEngine#setLinkStaticFragments(boolean)}).
+     * </p>
+     *
+     * @param templateData the template data of the template being executed.
+     * @param fragmentSpec the fragment specification (e.g. the value of a <tt>th:insert</tt> attribute).
+     * @return the linked fragment, or null if none has been linked or it is no longer valid.
+     *
+     * @since 3.0.8
+     */
+    public TemplateModel getLinkedFragment(final TemplateData templateData, final String fragmentSpec) {
+        if (!this.linkStaticFragments) {
+            return null;
+        }
+        final TemplateModel fragmentModel = templateData.getLinkedFragment(fragmentSpec);
+        if (fragmentModel == null || !fragmentModel.getTemplateData().getValidity().isCacheStillValid()) {
+            return null;
+        }
+        return fragmentModel;
+    }
+
+
+    /**
+     * <p>
+     *   Links a fragment to the (cached) template being executed, so that it can be directly retrieved
+     *   for the specified fragment specification in subsequent executions of the template.
+     * </p>
+     * <p>
+     *   This should only be called for <em>static</em> fragment specifications, i.e. those whose resolution
+     *   does not depend on the context in which they are executed. Nothing will be done if static fragment
+     *   linking has not been enabled (see {@link TemplateEngine#setLinkStaticFragments(boolean)}), or if any
+     *   of the two templates is not cacheable.
+     * </p>
+     *
+     * @param templateData the template data of the template being executed.
+     * @param fragmentSpec the fragment specification (e.g. the value of a <tt>th:insert</tt> attribute).
+     * @param fragmentModel the fragment, as resolved for the specification.
+     *
+     * @since 3.0.8
+     */
+    public void linkFragment(
+            final TemplateData templateData, final String fragmentSpec, final TemplateModel fragmentModel) {
+
+        if (!this.linkStaticFragments) {
+            return;
+        }
+
+        final TemplateData fragmentTemplateData = fragmentModel.getTemplateData();
+        if (!templateData.getValidity().isCacheable() || !fragmentTemplateData.getValidity().isCacheable()) {
+            return;
+        }
+
+        // Pre-processors are applied to fragments each time they are obtained from the cache
+        if (!this.configuration.getPreProcessors(fragmentTemplateData.getTemplateMode()).isEmpty()) {
+            return;
+        }
+
+        Set<String> linkingTemplates = this.fragmentLinkingTemplates.get(fragmentTemplateData.getTemplate());
+        if (linkingTemplates == null) {
+            final Set<String> newLinkingTemplates =
+                    Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(4));
+            linkingTemplates = this.fragmentLinkingTemplates.putIfAbsent(fragmentTemplateData.getTemplate(), newLinkingTemplates);
+            if (linkingTemplates == null) {
+                linkingTemplates = newLinkingTemplates;
+            }
+        }
+        linkingTemplates.add(templateData.getTemplate());
+
+        templateData.linkFragment(fragmentSpec, fragmentModel);
+
     }
 
 
@@ -247,7 +451,9 @@ public TemplateModel parseStandalone(
          * Resolve the template
          */
         final TemplateResolution templateResolution =
-                resolveTemplate(this.configuration, ownerTemplate, template, templateResolutionAttributes, failIfNotExists);
+                applyRevalidation(
+                        ownerTemplate, template, cleanTemplateSelectors,
+                        resolveTemplate(this.configuration, ownerTemplate, template, templateResolutionAttributes, failIfNotExists));
 
 
         /*
@@ -289,6 +495,20 @@ public TemplateModel parseStandalone(
                 buildTemplateData(templateResolution, template, cleanTemplateSelectors, templateMode, useCache);
 
 
+        /*
+         * If the template is cacheable, the selected fragments might be sliced from its complete model
+         */
+        if (useCache && this.templateCache != null && templateResolution.getValidity().isCacheable()) {
+            final TemplateModel slicedModel =
+                    sliceFromCompleteModel(
+                            ownerTemplate, template, templateMode, templateResolutionAttributes, templateResolution, templateData);
+            if (slicedModel != null) {
+                this.templateCache.put(cacheKey, slicedModel);
+                return applyPreProcessorsIfNeeded(context, slicedModel);
+            }
+        }
+
+
         /*
          *  Create the Template Handler that will be in charge of building the TemplateModel
          */
@@ -302,9 +522,10 @@ public TemplateModel parseStandalone(
         parser.parseStandalone(
                 this.configuration,
                 ownerTemplate, template, cleanTemplateSelectors, templateData.getTemplateResource(),
-                templateData.getTemplateMode(), templateResolution.getUseDecoupledLogic(), builderHandler);
+                templateData.getTemplateMode(), templateResolution.getUseDecoupledLogic(),
+                forParsing(builderHandler, templateData.getTemplateMode()));
 
-        final TemplateModel templateModel = builderHandler.getModel();
+        TemplateModel templateModel = builderHandler.getModel();
 
 
         /*
@@ -312,6 +533,7 @@ public TemplateModel parseStandalone(
          */
         if (useCache && this.templateCache != null) {
             if (templateResolution.getValidity().isCacheable()) {
+                templateModel = prepareForCaching(templateModel);
                 this.templateCache.put(cacheKey, templateModel);
             }
         }
@@ -328,6 +550,95 @@ public TemplateModel parseStandalone(
 
 
 
+    /*
+     * If only simple selectors are being applied, the selected fragments can be sliced from the complete model
+     * of the (cacheable) template, which is parsed and cached only once instead of once per different set of
+     * selectors. Returns null if this is not possible, and the template has to be parsed with its selectors.
+     */
+    private TemplateModel sliceFromCompleteModel(
+            final String ownerTemplate, final String template, final TemplateMode templateMode,
+            final Map<String,Object> templateResolutionAttributes, final TemplateResolution templateResolution,
+            final TemplateData templateData) {
+
+        if (templateResolution.getUseDecoupledLogic() ||
+                !TemplateFragmentIndex.isIndexable(templateData.getTemplateMode(), templateData.getTemplateSelectors())) {
+            return null;
+        }
+
+        final TemplateModel completeModel =
+                obtainCompleteModel(ownerTemplate, template, templateMode, templateResolutionAttributes, templateResolution);
+
+        return completeModel.getFragmentIndex().slice(templateData, templateData.getTemplateSelectors());
+
+    }
+
+
+    /*
+     * Returns the event interner to be used when building models of cacheable templates (null if none)
+     */
+    TemplateEventInterner getEventInterner() {
+        return this.eventInterner;
+    }
+
+
+    /*
+     * Models are coalesced and compacted (if configured so) just before being cached, so that non-cacheable
+     * templates never pay the price of these operations
+     */
+    private TemplateModel prepareForCaching(final TemplateModel templateModel) {
+        TemplateModel cacheableModel = templateModel;
+        if (this.coalesceCachedTemplateTexts) {
+            cacheableModel = TemplateTextCoalescer.coalesce(cacheableModel);
+        }
+        if (this.compactCachedTemplates) {
+            cacheableModel = TemplateTextArena.compact(cacheableModel);
+        }
+        return cacheableModel;
+    }
+
+
+    /*
+     * Obtains the complete (non-selected) model of a cacheable template, from cache if possible
+     */
+    private TemplateModel obtainCompleteModel(
+            final String ownerTemplate, final String template, final TemplateMode templateMode,
+            final Map<String,Object> templateResolutionAttributes, final TemplateResolution templateResolution) {
+
+        final TemplateCacheKey completeCacheKey =
+                new TemplateCacheKey(
+                        ownerTemplate,
+                        template, null,
+                        0, 0,
+                        templateMode,
+                        templateResolutionAttributes);
+
+        final TemplateModel cached = this.templateCache.get(completeCacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        final TemplateData completeTemplateData = buildTemplateData(templateResolution, template, null, templateMode, true);
+
+        final ModelBuilderTemplateHandler builderHandler =
+                new ModelBuilderTemplateHandler(this.configuration, completeTemplateData);
+
+        final ITemplateParser parser = getParserForTemplateMode(completeTemplateData.getTemplateMode());
+        parser.parseStandalone(
+                this.configuration,
+                ownerTemplate, template, null, completeTemplateData.getTemplateResource(),
+                completeTemplateData.getTemplateMode(), templateResolution.getUseDecoupledLogic(),
+                forParsing(builderHandler, completeTemplateData.getTemplateMode()));
+
+        final TemplateModel completeModel = prepareForCaching(builderHandler.getModel());
+        this.templateCache.put(completeCacheKey, completeModel);
+
+        return completeModel;
+
+    }
+
+
+
+
     /*
      * This method manually applies preprocessors to template models that have just been parsed or obtained from
      * cache. This is needed for fragments, just before these fragments (coming from templates, not simply parsed
@@ -355,7 +666,7 @@ private TemplateModel applyPreProcessorsIfNeeded(final ITemplateContext context,
 
         final ModelBuilderTemplateHandler builderHandler = new ModelBuilderTemplateHandler(this.configuration, templateData);
         final ITemplateHandler processingHandlerChain =
-                createTemplateProcessingHandlerChain(engineContext, true, false, builderHandler, null);
+                createTemplateProcessingHandlerChain(engineContext, true, false, builderHandler, null, null);
 
         templateModel.process(processingHandlerChain);
 
@@ -451,7 +762,7 @@ public TemplateModel parseString(
         // NO RESOURCE is sent to the parser, in this case. We simply pass the String template
         parser.parseString(this.configuration, ownerTemplate, template, lineOffset, colOffset, definitiveTemplateMode, builderHandler);
 
-        final TemplateModel parsedTemplate = builderHandler.getModel();
+        TemplateModel parsedTemplate = builderHandler.getModel();
 
 
         /*
@@ -459,6 +770,7 @@ public TemplateModel parseString(
          */
         if (useCache && this.templateCache != null) {
             if (cacheValidity.isCacheable()) {
+                parsedTemplate = prepareForCaching(parsedTemplate);
                 this.templateCache.put(cacheKey, parsedTemplate);
             }
         }
@@ -509,14 +821,20 @@ public void process(
          * LazyProcessingCharSequence, and in such case we know those CharSequences are only used when there are
          * NO post-processors, so we are safe anyway.
          */
-        final ProcessorTemplateHandler processorTemplateHandler = new ProcessorTemplateHandler();
-        final ITemplateHandler processingHandlerChain =
-                createTemplateProcessingHandlerChain(engineContext, false, false, processorTemplateHandler, writer);
+        final ProcessorTemplateHandler processorTemplateHandler = acquireProcessorTemplateHandler();
+        try {
 
-        /*
-         *  Process the template
-         */
-        template.process(processingHandlerChain);
+            final ITemplateHandler processingHandlerChain =
+                    createTemplateProcessingHandlerChain(engineContext, false, false, processorTemplateHandler, writer, null);
+
+            /*
+             *  Process the template
+             */
+            template.process(processingHandlerChain);
+
+        } finally {
+            releaseProcessorTemplateHandler(processorTemplateHandler);
+        }
 
 
         /*
@@ -531,6 +849,50 @@ public void process(
 
 
 
+    /*
+     * Template sources (but not strings parsed during processing, e.g. inlined texts) are minified, if configured,
+     * while being parsed, so that cached templates only need to be minified once.
+     */
+    private ITemplateHandler forParsing(final ITemplateHandler handler, final TemplateMode templateMode) {
+        if (!this.minifyTemplates || !MinifyingTemplateHandler.isMinifiable(templateMode)) {
+            return handler;
+        }
+        return new MinifyingTemplateHandler(templateMode, handler);
+    }
+
+
+    /*
+     * The output of a RAW template is exactly its contents unless some dialect defines text (the only kind of
+     * events in RAW templates) or template boundaries processors, or pre/post-processors for RAW mode.
+     */
+    private static boolean isRawPassThroughPossible(final IEngineConfiguration configuration) {
+        return isEmpty(configuration.getTextProcessors(TemplateMode.RAW)) &&
+               isEmpty(configuration.getTemplateBoundariesProcessors(TemplateMode.RAW)) &&
+               isEmpty(configuration.getPreProcessors(TemplateMode.RAW)) &&
+               isEmpty(configuration.getPostProcessors(TemplateMode.RAW));
+    }
+
+
+    private static boolean isEmpty(final Set<?> set) {
+        return set == null || set.isEmpty();
+    }
+
+
+    private static boolean hasPostProcessors(final IEngineConfiguration configuration) {
+        for (final TemplateMode templateMode : TemplateMode.values()) {
+            final Set<IPostProcessor> postProcessors = configuration.getPostProcessors(templateMode);
+            if (postProcessors != null && !postProcessors.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+
+
+
     /*
      * -------------------------
      * PARSE-AND-PROCESS methods
@@ -550,6 +912,65 @@ public void parseAndProcess(
         Validate.notNull(context, "Context cannot be null");
         Validate.notNull(writer, "Writer cannot be null");
 
+        // If a flush policy has been configured, we will need to count the output actually sent to the writer
+        final OutputCountingWriter outputCounter = (this.flushPolicy != null? new OutputCountingWriter(writer) : null);
+        final Writer output = (outputCounter != null? outputCounter : writer);
+
+        // If output is being written into a String, its buffer can be presized according to previous executions
+        final FastStringWriter stringOutput = (writer instanceof FastStringWriter? (FastStringWriter) writer : null);
+        final int initialLength = (stringOutput != null? stringOutput.length() : 0);
+
+        if (!this.parallelRendering) {
+            final TemplateModel templateModel = doParseAndProcess(templateSpec, context, output, outputCounter, stringOutput);
+            recordOutputSize(templateModel, stringOutput, initialLength);
+            return;
+        }
+
+        /*
+         * Parallel rendering is enabled, so some fragments might be rendered in parallel and their output be not yet
+         * available when written. We will need a writer able to wait for them and keep output in order.
+         */
+        final DeferredContentWriter deferredContentWriter = new DeferredContentWriter(output);
+        try {
+
+            final TemplateModel templateModel =
+                    doParseAndProcess(templateSpec, context, deferredContentWriter, outputCounter, stringOutput);
+
+            try {
+                deferredContentWriter.finish();
+            } catch (final IOException e) {
+                throw new TemplateOutputException(
+                        "An error happened during template rendering", templateSpec.getTemplate(), -1, -1, e);
+            }
+
+            recordOutputSize(templateModel, stringOutput, initialLength);
+
+        } finally {
+            // Will only have any effect if processing failed
+            deferredContentWriter.cancel();
+        }
+
+    }
+
+
+    private static void recordOutputSize(
+            final TemplateModel templateModel, final FastStringWriter stringOutput, final int initialLength) {
+        if (templateModel != null && stringOutput != null) {
+            templateModel.recordOutputSize(stringOutput.length() - initialLength);
+        }
+    }
+
+
+    /*
+     * Returns the cached TemplateModel that has been processed, or null if the template is not cacheable
+     */
+    private TemplateModel doParseAndProcess(
+            final TemplateSpec templateSpec,
+            final IContext context,
+            final Writer writer,
+            final OutputCountingWriter outputCounter,
+            final FastStringWriter stringOutput) {
+
 
         // TemplateSpec will already have validated its contents, so need to do it here (template selectors,
         // resolution attributes, etc.)
@@ -577,23 +998,45 @@ public void parseAndProcess(
 
             if (cached != null) {
 
+                final int outputSizeEstimate = cached.getOutputSizeEstimate();
+                if (stringOutput != null && outputSizeEstimate > 0) {
+                    // Some margin is added so that small variations in output size do not need buffer growth
+                    stringOutput.ensureCapacity(stringOutput.length() + outputSizeEstimate + (outputSizeEstimate >> 3));
+                }
+
+                if (isRawPassThrough(cached.getTemplateMode(), outputCounter)) {
+                    // Nothing could process this template, so its (single block of) text is directly written
+                    writeRawModel(cached, writer);
+                    return cached;
+                }
+
                 final IEngineContext engineContext =
                         EngineContextManager.prepareEngineContext(this.configuration, cached.getTemplateData(), templateResolutionAttributes, context);
 
+                if (this.lazyVariablePrefetcher != null) {
+                    this.lazyVariablePrefetcher.prefetch(cached, engineContext, context);
+                }
+
                 /*
                  * Create the handler chain to process the data.
                  * This is PARSE + PROCESS, so its called from the TemplateEngine, and the only case in which we should apply
                  * both pre-processors and post-processors (besides creating a last output-to-writer step)
                  */
-                final ProcessorTemplateHandler processorTemplateHandler = new ProcessorTemplateHandler();
-                final ITemplateHandler processingHandlerChain =
-                        createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, writer);
+                final ProcessorTemplateHandler processorTemplateHandler = acquireProcessorTemplateHandler();
+                try {
+
+                    final ITemplateHandler processingHandlerChain =
+                            createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, writer, outputCounter);
 
-                cached.process(processingHandlerChain);
+                    cached.process(processingHandlerChain);
+
+                } finally {
+                    releaseProcessorTemplateHandler(processorTemplateHandler);
+                }
 
                 EngineContextManager.disposeEngineContext(engineContext);
 
-                return;
+                return cached;
 
             }
 
@@ -604,7 +1047,9 @@ public void parseAndProcess(
          * Resolve the template
          */
         final TemplateResolution templateResolution =
-                resolveTemplate(this.configuration, null, template, templateResolutionAttributes, true);
+                applyRevalidation(
+                        null, template, templateSelectors,
+                        resolveTemplate(this.configuration, null, template, templateResolutionAttributes, true));
 
 
         /*
@@ -614,6 +1059,21 @@ public void parseAndProcess(
                 buildTemplateData(templateResolution, template, templateSelectors, templateMode, true);
 
 
+        /*
+         * RAW templates that nothing could process and are not going to be cached are streamed directly to output
+         */
+        final boolean rawPassThrough = isRawPassThrough(templateData.getTemplateMode(), outputCounter);
+        if (rawPassThrough && !(templateResolution.getValidity().isCacheable() && this.templateCache != null)) {
+            // Same restrictions as applied by the RAW parser, which is not going to be called
+            Validate.isTrue(templateSelectors == null || templateSelectors.isEmpty(),
+                            "Template selectors cannot be specified for a template using RAW template mode: template " +
+                            "insertion operations must be always performed on whole template files, not fragments");
+            Validate.isTrue(!templateResolution.getUseDecoupledLogic(), "Cannot use decoupled logic in template mode " + TemplateMode.RAW);
+            writeRawTemplate(templateData.getTemplateResource(), writer);
+            return null;
+        }
+
+
         /*
          * Prepare the context instance that corresponds to this execution of the template engine
          */
@@ -626,48 +1086,78 @@ public void parseAndProcess(
          * This is PARSE + PROCESS, so its called from the TemplateEngine, and the only case in which we should apply
          * both pre-processors and post-processors (besides creating a last output-to-writer step)
          */
-        final ProcessorTemplateHandler processorTemplateHandler = new ProcessorTemplateHandler();
-        final ITemplateHandler processingHandlerChain =
-                createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, writer);
+        TemplateModel cachedModel = null;
+        final ProcessorTemplateHandler processorTemplateHandler = acquireProcessorTemplateHandler();
+        try {
 
+            final ITemplateHandler processingHandlerChain =
+                    createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, writer, outputCounter);
 
-        /*
-         * Obtain the parser
-         */
-        final ITemplateParser parser = getParserForTemplateMode(engineContext.getTemplateMode());
 
+            /*
+             * Obtain the parser
+             */
+            final ITemplateParser parser = getParserForTemplateMode(engineContext.getTemplateMode());
 
-        /*
-         * If the resolved template is cacheable, so we will first read it as an object, cache it, and then process it
-         */
-        if (templateResolution.getValidity().isCacheable() && this.templateCache != null) {
 
-            // Create the handler chain to create the Template object
-            final ModelBuilderTemplateHandler builderHandler = new ModelBuilderTemplateHandler(this.configuration, templateData);
+            /*
+             * If the resolved template is cacheable, so we will first read it as an object, cache it, and then process it
+             */
+            if (templateResolution.getValidity().isCacheable() && this.templateCache != null) {
 
-            // Process the template into a TemplateModel
-            parser.parseStandalone(
-                    this.configuration,
-                    null, template, templateSelectors, templateData.getTemplateResource(),
-                    engineContext.getTemplateMode(), templateResolution.getUseDecoupledLogic(), builderHandler);
+                // Selected fragments might be sliced from the complete model, without parsing again
+                TemplateModel templateModel =
+                        sliceFromCompleteModel(
+                                null, template, templateMode, templateResolutionAttributes, templateResolution, templateData);
 
-            // Obtain the TemplateModel
-            final TemplateModel templateModel = builderHandler.getModel();
+                if (templateModel == null) {
 
-            // Put the new template into cache
-            this.templateCache.put(cacheKey, templateModel);
+                    // Create the handler chain to create the Template object
+                    final ModelBuilderTemplateHandler builderHandler = new ModelBuilderTemplateHandler(this.configuration, templateData);
 
-            // Process the read (+cached) template itself
-            templateModel.process(processingHandlerChain);
+                    // Process the template into a TemplateModel
+                    parser.parseStandalone(
+                            this.configuration,
+                            null, template, templateSelectors, templateData.getTemplateResource(),
+                            engineContext.getTemplateMode(), templateResolution.getUseDecoupledLogic(),
+                            forParsing(builderHandler, engineContext.getTemplateMode()));
 
-        } else {
+                    // Obtain the TemplateModel
+                    templateModel = builderHandler.getModel();
 
-            //  Process the template, which is not cacheable (so no worry about caching)
-            parser.parseStandalone(
-                    this.configuration,
-                    null, template, templateSelectors, templateData.getTemplateResource(),
-                    engineContext.getTemplateMode(), templateResolution.getUseDecoupledLogic(),  processingHandlerChain);
+                }
+
+                // Put the new template into cache
+                templateModel = prepareForCaching(templateModel);
+                this.templateCache.put(cacheKey, templateModel);
+
+                // Non-cacheable templates are never prefetched, as there is no model to analyze before processing
+                if (this.lazyVariablePrefetcher != null) {
+                    this.lazyVariablePrefetcher.prefetch(templateModel, engineContext, context);
+                }
 
+                // Process the read (+cached) template itself
+                if (rawPassThrough) {
+                    writeRawModel(templateModel, writer);
+                } else {
+                    templateModel.process(processingHandlerChain);
+                }
+
+                cachedModel = templateModel;
+
+            } else {
+
+                //  Process the template, which is not cacheable (so no worry about caching)
+                parser.parseStandalone(
+                        this.configuration,
+                        null, template, templateSelectors, templateData.getTemplateResource(),
+                        engineContext.getTemplateMode(), templateResolution.getUseDecoupledLogic(),
+                        forParsing(processingHandlerChain, engineContext.getTemplateMode()));
+
+            }
+
+        } finally {
+            releaseProcessorTemplateHandler(processorTemplateHandler);
         }
 
 
@@ -676,10 +1166,79 @@ public void parseAndProcess(
          */
         EngineContextManager.disposeEngineContext(engineContext);
 
+        return cachedModel;
 
     }
 
 
+    /*
+     * Flush policies need output to go through the output handler, so they disable RAW pass-through
+     */
+    private boolean isRawPassThrough(final TemplateMode templateMode, final OutputCountingWriter outputCounter) {
+        return this.rawPassThrough && templateMode == TemplateMode.RAW && outputCounter == null;
+    }
+
+
+    private static void writeRawModel(final TemplateModel templateModel, final Writer writer) {
+        try {
+            templateModel.write(writer);
+        } catch (final IOException e) {
+            throw new TemplateOutputException(
+                    "An error happened during template rendering",
+                    templateModel.getTemplateData().getTemplate(), -1, -1, e);
+        }
+    }
+
+
+    /*
+     * Streams the contents of a RAW template resource directly to output, without creating any events for it.
+     * If output is being encoded into a channel in the same charset as a file resource, the file is transferred
+     * to the channel without even decoding it.
+     */
+    private static void writeRawTemplate(final ITemplateResource resource, final Writer writer) {
+
+        try {
+
+            if (writer instanceof ByteChannelWriter && resource instanceof FileTemplateResource &&
+                    ((FileTemplateResource) resource).transferTo((ByteChannelWriter) writer)) {
+                return;
+            }
+
+            final CharBuffer contentBuffer =
+                    (resource instanceof IContentBufferTemplateResource ?
+                            ((IContentBufferTemplateResource) resource).contentBuffer() : null);
+
+            if (contentBuffer != null && contentBuffer.hasArray()) {
+                writer.write(contentBuffer.array(), contentBuffer.arrayOffset() + contentBuffer.position(), contentBuffer.remaining());
+                return;
+            }
+
+            final Reader reader = resource.reader();
+            try {
+                final char[] buffer = new char[DEFAULT_PARSER_BLOCK_SIZE];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    writer.write(buffer, 0, read);
+                }
+            } finally {
+                try {
+                    reader.close();
+                } catch (final Throwable ignored) {
+                    // This exception can be safely ignored
+                }
+            }
+
+        } catch (final IOException e) {
+            // Reading and writing are interleaved, so we cannot tell whether this comes from input or output
+            throw new TemplateOutputException(
+                    "An error happened during template rendering", resource.getDescription(), -1, -1, e);
+        }
+
+    }
+
+
+
+
     public ThrottledTemplateProcessor parseAndProcessThrottled(final TemplateSpec templateSpec, final IContext context) {
 
         Validate.notNull(templateSpec, "Template Specification cannot be null");
@@ -736,7 +1295,7 @@ public ThrottledTemplateProcessor parseAndProcessThrottled(final TemplateSpec te
                 final ProcessorTemplateHandler processorTemplateHandler = new ProcessorTemplateHandler();
                 processorTemplateHandler.setFlowController(flowController);
                 final ITemplateHandler processingHandlerChain =
-                        createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, throttledTemplateWriter);
+                        createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, throttledTemplateWriter, null);
 
                 /*
                  * Return the throttled template processor
@@ -754,7 +1313,9 @@ public ThrottledTemplateProcessor parseAndProcessThrottled(final TemplateSpec te
          * Resolve the template
          */
         final TemplateResolution templateResolution =
-                resolveTemplate(this.configuration, null, template, templateResolutionAttributes, true);
+                applyRevalidation(
+                        null, template, templateSelectors,
+                        resolveTemplate(this.configuration, null, template, templateResolutionAttributes, true));
 
 
         /*
@@ -779,7 +1340,7 @@ public ThrottledTemplateProcessor parseAndProcessThrottled(final TemplateSpec te
         final ProcessorTemplateHandler processorTemplateHandler = new ProcessorTemplateHandler();
         processorTemplateHandler.setFlowController(flowController);
         final ITemplateHandler processingHandlerChain =
-                createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, throttledTemplateWriter);
+                createTemplateProcessingHandlerChain(engineContext, true, true, processorTemplateHandler, throttledTemplateWriter, null);
 
 
         /*
@@ -793,12 +1354,20 @@ public ThrottledTemplateProcessor parseAndProcessThrottled(final TemplateSpec te
          * will always be processed first into a TemplateModel, so that throttling can then be applied on an
          * already-in-memory sequence of events
          */
-        final ModelBuilderTemplateHandler builderHandler = new ModelBuilderTemplateHandler(this.configuration, templateData);
-        parser.parseStandalone(
-                this.configuration,
-                null, template, templateSelectors, templateData.getTemplateResource(),
-                engineContext.getTemplateMode(), templateResolution.getUseDecoupledLogic(), builderHandler);
-        final TemplateModel templateModel = builderHandler.getModel();
+        TemplateModel templateModel =
+                (templateResolution.getValidity().isCacheable() && this.templateCache != null?
+                        sliceFromCompleteModel(
+                                null, template, templateMode, templateResolutionAttributes, templateResolution, templateData) :
+                        null);
+        if (templateModel == null) {
+            final ModelBuilderTemplateHandler builderHandler = new ModelBuilderTemplateHandler(this.configuration, templateData);
+            parser.parseStandalone(
+                    this.configuration,
+                    null, template, templateSelectors, templateData.getTemplateResource(),
+                    engineContext.getTemplateMode(), templateResolution.getUseDecoupledLogic(),
+                    forParsing(builderHandler, engineContext.getTemplateMode()));
+            templateModel = builderHandler.getModel();
+        }
 
 
         /*
@@ -807,6 +1376,7 @@ public ThrottledTemplateProcessor parseAndProcessThrottled(final TemplateSpec te
         if (templateResolution.getValidity().isCacheable() && this.templateCache != null) {
 
             // Put the new template into cache
+            templateModel = prepareForCaching(templateModel);
             this.templateCache.put(cacheKey, templateModel);
 
         }
@@ -876,6 +1446,93 @@ private static TemplateResolution resolveTemplate(
 
 
 
+    /*
+     * If the engine has been configured to re-validate non-cacheable templates, resolutions that are not cacheable
+     * but point to a versioned resource are given a validity based on the current version of that resource (and
+     * that of its decoupled logic, if used, resolved for the same selectors the template is parsed with), so that
+     * their models are cached and only parsed again once changed.
+     *
+     * When this is the first resolution of a template after it changed, every cached entry for it (whichever its
+     * owner template and selectors) is cleared, as all of them are stale now. Templates inserting or linking any of
+     * its fragments do not need to be parsed again: their cached models only reference fragments by name, and linked
+     * fragments are re-validated each time they are used (and linked again once the fragment has been parsed).
+     */
+    private TemplateResolution applyRevalidation(
+            final String ownerTemplate, final String template, final Set<String> templateSelectors,
+            final TemplateResolution templateResolution) {
+
+        if (!this.revalidateNonCacheableTemplates ||
+                templateResolution == null || templateResolution.getValidity().isCacheable() ||
+                !(templateResolution.getTemplateResource() instanceof IVersionedTemplateResource)) {
+            return templateResolution;
+        }
+
+        final IVersionedTemplateResource resource = (IVersionedTemplateResource) templateResolution.getTemplateResource();
+        final long version = resource.version();
+        if (version == IVersionedTemplateResource.UNKNOWN_VERSION) {
+            return templateResolution;
+        }
+
+        IVersionedTemplateResource decoupledResource = null;
+        long decoupledVersion = 0L;
+        if (templateResolution.getUseDecoupledLogic()) {
+            final ITemplateResource resolvedDecoupledResource =
+                    this.configuration.getDecoupledTemplateLogicResolver().resolveDecoupledTemplateLogic(
+                            this.configuration, ownerTemplate, template, templateSelectors, resource, templateResolution.getTemplateMode());
+            if (!(resolvedDecoupledResource instanceof IVersionedTemplateResource)) {
+                return templateResolution;
+            }
+            decoupledResource = (IVersionedTemplateResource) resolvedDecoupledResource;
+            decoupledVersion = decoupledResource.version();
+            if (decoupledVersion == IVersionedTemplateResource.UNKNOWN_VERSION) {
+                return templateResolution;
+            }
+        }
+
+        final ResourceVersionCacheEntryValidity validity =
+                new ResourceVersionCacheEntryValidity(resource, version, decoupledResource, decoupledVersion);
+
+        // Different resources might be resolved for the same template name (e.g. depending on resolution attributes),
+        // and different decoupled logic resources for the same template resource (e.g. depending on selectors)
+        final String versionKey =
+                (decoupledResource == null?
+                        template + ':' + resource.getDescription() :
+                        template + ':' + resource.getDescription() + ':' + decoupledResource.getDescription());
+        final ResourceVersionCacheEntryValidity previousValidity =
+                this.revalidatedTemplateVersions.put(versionKey, validity);
+        if (previousValidity != null && !previousValidity.isSameVersion(validity)) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "[THYMELEAF][{}] Template \"{}\" has changed, clearing its stale cache entries",
+                        new Object[] {TemplateEngine.threadIndex(), LoggingUtils.loggifyTemplateName(template)});
+            }
+            clearStaleEntriesFor(template);
+        }
+
+        return new TemplateResolution(
+                resource, templateResolution.isTemplateResourceExistenceVerified(), templateResolution.getTemplateMode(),
+                templateResolution.getUseDecoupledLogic(), validity);
+
+    }
+
+
+
+
+    private void clearStaleEntriesFor(final String template) {
+        final Set<TemplateCacheKey> keysToBeRemoved = new HashSet<TemplateCacheKey>(4);
+        for (final TemplateCacheKey templateCacheKey : this.templateCache.keySet()) {
+            if (template.equals(templateCacheKey.getTemplate())) {
+                keysToBeRemoved.add(templateCacheKey);
+            }
+        }
+        for (final TemplateCacheKey keyToBeRemoved : keysToBeRemoved) {
+            this.templateCache.clearKey(keyToBeRemoved);
+        }
+    }
+
+
+
+
     private static TemplateData buildTemplateData(
             final TemplateResolution templateResolution,
             final String template,
@@ -898,6 +1555,28 @@ private static TemplateData buildTemplateData(
 
 
 
+    /*
+     * Non-throttled executions obtain their ProcessorTemplateHandler by means of these methods, so that handlers
+     * can be reused if the engine has been configured to do so. Note handlers used for throttled executions should
+     * never be pooled, as they will outlive the call that creates them.
+     */
+    private ProcessorTemplateHandler acquireProcessorTemplateHandler() {
+        if (this.processorTemplateHandlerPool == null) {
+            return new ProcessorTemplateHandler();
+        }
+        return this.processorTemplateHandlerPool.acquire();
+    }
+
+
+    private void releaseProcessorTemplateHandler(final ProcessorTemplateHandler processorTemplateHandler) {
+        if (this.processorTemplateHandlerPool != null) {
+            this.processorTemplateHandlerPool.release(processorTemplateHandler);
+        }
+    }
+
+
+
+
     private ITemplateParser getParserForTemplateMode(final TemplateMode templateMode) {
         switch (templateMode) {
             case HTML:       return this.htmlParser;
@@ -918,7 +1597,7 @@ private ITemplateParser getParserForTemplateMode(final TemplateMode templateMode
     private static ITemplateHandler createTemplateProcessingHandlerChain(
             final IEngineContext context,
             final boolean setPreProcessors, final boolean setPostProcessors,
-            final ITemplateHandler handler, final Writer writer) {
+            final ITemplateHandler handler, final Writer writer, final OutputCountingWriter outputCounter) {
 
         final IEngineConfiguration configuration = context.getConfiguration();
 
@@ -1005,7 +1684,16 @@ private static ITemplateHandler createTemplateProcessingHandlerChain(
          * Last step: the OUTPUT HANDLER
          */
         if (writer != null) {
-            final OutputTemplateHandler outputHandler = new OutputTemplateHandler(writer);
+            // Output counter will only be non-null if a flush policy is to be applied
+            final IFlushPolicy flushPolicy =
+                    (outputCounter == null? null : ((EngineConfiguration) configuration).getFlushPolicy());
+            // Processor handlers keep their output handler, so that it is reused along with them if pooled
+            final OutputTemplateHandler outputHandler =
+                    (handler instanceof ProcessorTemplateHandler?
+                            ((ProcessorTemplateHandler) handler).obtainOutputHandler(writer, flushPolicy, outputCounter) :
+                            (flushPolicy == null?
+                                    new OutputTemplateHandler(writer) :
+                                    new OutputTemplateHandler(writer, flushPolicy, outputCounter)));
             outputHandler.setContext(context);
             if (firstHandler == null) {
                 firstHandler = outputHandler;
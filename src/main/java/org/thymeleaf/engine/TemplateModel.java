@@ -44,6 +44,17 @@ public final class TemplateModel implements IModel {
     final TemplateData templateData;
     final IEngineTemplateEvent[] queue; // This is final because this IModel is IMMUTABLE
 
+    // Lazily computed (only if lazy variable prefetching is enabled). Being the model immutable, computing this
+    // more than once in case of a race condition would be harmless.
+    private volatile TemplateVariableReferences variableReferences = null;
+
+    // Rolling estimate of the size of the output produced by this template when processed into a String. Being
+    // only an estimate, updates lost in case of a race condition would be harmless.
+    private volatile int outputSizeEstimate = 0;
+
+    // Lazily computed (only if this model is the complete model of a template from which fragments are selected).
+    private volatile TemplateFragmentIndex fragmentIndex = null;
+
 
     // Package-protected constructor, because we don't want anyone creating these objects from outside the engine.
     // If a processor (be it standard or custom-made) wants to create a piece of model, that should be a Model
@@ -84,6 +95,41 @@ public final TemplateMode getTemplateMode() {
 
 
 
+    TemplateVariableReferences getVariableReferences() {
+        TemplateVariableReferences references = this.variableReferences;
+        if (references == null) {
+            references = TemplateVariableReferences.compute(this);
+            this.variableReferences = references;
+        }
+        return references;
+    }
+
+
+
+    TemplateFragmentIndex getFragmentIndex() {
+        TemplateFragmentIndex index = this.fragmentIndex;
+        if (index == null) {
+            index = TemplateFragmentIndex.compute(this);
+            this.fragmentIndex = index;
+        }
+        return index;
+    }
+
+
+
+    int getOutputSizeEstimate() {
+        return this.outputSizeEstimate;
+    }
+
+
+    void recordOutputSize(final int outputSize) {
+        final int estimate = this.outputSizeEstimate;
+        // Exponentially weighted moving average, so that the estimate adapts to changes without oscillating
+        this.outputSizeEstimate = (estimate == 0? outputSize : (int) (((long) estimate * 3L + outputSize) / 4L));
+    }
+
+
+
     public final int size() {
         return this.queue.length;
     }
@@ -98,10 +98,11 @@ enum SkipBody {
 
 
 
-    private final IEngineConfiguration configuration;
-    private final TemplateMode templateMode;
+    // Not final (except for the handler), as controllers are reused along with pooled handlers (see #reset(...))
+    private IEngineConfiguration configuration;
+    private TemplateMode templateMode;
     private final ProcessorTemplateHandler processorTemplateHandler;
-    private final IEngineContext context;
+    private IEngineContext context;
 
     private TemplateFlowController templateFlowController;
 
@@ -148,6 +149,36 @@ enum SkipBody {
     }
 
 
+    /*
+     * Prepares this controller for a new execution of its ProcessorTemplateHandler, as if it had just been created
+     * (see ProcessorTemplateHandlerPool). Level arrays are kept (with the size they might have grown to), so that
+     * they do not need to be allocated again. Called with nulls when the handler is released, so that no references
+     * to the previous execution are retained.
+     */
+    void reset(final IEngineConfiguration configuration, final TemplateMode templateMode, final IEngineContext context) {
+
+        this.configuration = configuration;
+        this.templateMode = templateMode;
+        this.context = context;
+
+        this.templateFlowController = null;
+        this.gatheredModel = null;
+
+        this.modelLevel = 0;
+
+        Arrays.fill(this.skipBodyByLevel, null);
+        this.skipBodyByLevel[this.modelLevel] = SkipBody.PROCESS;
+        this.skipBody = this.skipBodyByLevel[this.modelLevel];
+
+        Arrays.fill(this.skipCloseTagByLevel, false);
+        Arrays.fill(this.unskippedFirstElementByLevel, null);
+
+        this.lastEvent = null;
+        this.secondToLastEvent = null;
+
+    }
+
+
     void setTemplateFlowController(final TemplateFlowController templateFlowController) {
         this.templateFlowController = templateFlowController;
     }
@@ -197,7 +228,8 @@ void startGatheringDelayedModel(
 
     void startGatheringIteratedModel(
             final IOpenElementTag firstTag, final ProcessorExecutionVars processorExecutionVars,
-            final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject) {
+            final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject,
+            final boolean iterateInParallel) {
 
         this.modelLevel--;
 
@@ -211,7 +243,7 @@ void startGatheringIteratedModel(
                         this.configuration, this.processorTemplateHandler, this.context,
                         this, this.templateFlowController,
                         gatheredSkipBody, gatheredSkipCloseTagByLevel, processorExecutionVars,
-                        iterVariableName, iterStatusVariableName, iteratedObject, precedingWhitespace);
+                        iterVariableName, iterStatusVariableName, iteratedObject, iterateInParallel, precedingWhitespace);
 
         this.gatheredModel.gatherOpenElement(firstTag);
 
@@ -220,7 +252,8 @@ void startGatheringIteratedModel(
 
     void startGatheringIteratedModel(
             final IStandaloneElementTag firstTag, final ProcessorExecutionVars processorExecutionVars,
-            final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject) {
+            final String iterVariableName, final String iterStatusVariableName, final Object iteratedObject,
+            final boolean iterateInParallel) {
 
         SkipBody gatheredSkipBody = this.skipBodyByLevel[this.modelLevel];
         gatheredSkipBody = (gatheredSkipBody == SkipBody.SKIP_ELEMENTS ? SkipBody.PROCESS_ONE_ELEMENT : gatheredSkipBody);
@@ -233,7 +266,7 @@ void startGatheringIteratedModel(
                         this.configuration, this.processorTemplateHandler, this.context,
                         this, this.templateFlowController,
                         gatheredSkipBody, gatheredSkipCloseTagByLevel, processorExecutionVars,
-                        iterVariableName, iterStatusVariableName, iteratedObject, precedingWhitespace);
+                        iterVariableName, iterStatusVariableName, iteratedObject, iterateInParallel, precedingWhitespace);
 
         this.gatheredModel.gatherStandaloneElement(firstTag);
 
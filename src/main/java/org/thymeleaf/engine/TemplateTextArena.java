@@ -0,0 +1,180 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.thymeleaf.util.IWritableCharSequence;
+
+/*
+ * Compact storage for the textual contents (texts, comments and CDATA sections) of cached template models.
+ *
+ * The contents of all the textual events in a model are copied into a single String per template (the arena), and
+ * the events are re-created so that they reference their contents as slices of it, instead of each of them holding
+ * its own String. Using a String as arena (instead of a char[]) allows JVMs with compact strings to store it as
+ * Latin-1 bytes whenever possible. Slices can be written directly to output writers.
+ *
+ * Only immutable (i.e. cached) models should be compacted, as the resulting events share their storage.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ */
+final class TemplateTextArena {
+
+
+
+    static TemplateModel compact(final TemplateModel templateModel) {
+
+        final IEngineTemplateEvent[] queue = templateModel.queue;
+
+        int arenaSize = 0;
+        for (int i = 0; i < queue.length; i++) {
+            final IEngineTemplateEvent event = queue[i];
+            if (isCompactable(event)) {
+                arenaSize += ((AbstractTextualTemplateEvent) event).getContentLength();
+            }
+        }
+
+        if (arenaSize == 0) {
+            // Nothing to compact (or already compacted, e.g. slices of an already compacted model)
+            return templateModel;
+        }
+
+        final StringBuilder arenaBuilder = new StringBuilder(arenaSize);
+        for (int i = 0; i < queue.length; i++) {
+            final IEngineTemplateEvent event = queue[i];
+            if (isCompactable(event)) {
+                ((AbstractTextualTemplateEvent) event).appendContent(arenaBuilder);
+            }
+        }
+        final String arena = arenaBuilder.toString();
+        int offset = 0;
+
+        final IEngineTemplateEvent[] compactQueue = new IEngineTemplateEvent[queue.length];
+        for (int i = 0; i < queue.length; i++) {
+
+            final IEngineTemplateEvent event = queue[i];
+
+            if (!isCompactable(event)) {
+                compactQueue[i] = event;
+                continue;
+            }
+
+            final AbstractTextualTemplateEvent textualEvent = (AbstractTextualTemplateEvent) event;
+            final int length = textualEvent.getContentLength();
+            final Slice content = new Slice(arena, offset, length);
+            offset += length;
+
+            if (event instanceof Text) {
+                compactQueue[i] =
+                        new Text(content, textualEvent.templateName, textualEvent.line, textualEvent.col, textualEvent.isInlineable());
+            } else if (event instanceof Comment) {
+                final Comment comment = (Comment) event;
+                compactQueue[i] =
+                        new Comment(comment.prefix, content, comment.suffix, comment.templateName, comment.line, comment.col, comment.isInlineable());
+            } else if (event instanceof CDATASection) {
+                final CDATASection cdataSection = (CDATASection) event;
+                compactQueue[i] =
+                        new CDATASection(
+                                cdataSection.prefix, content, cdataSection.suffix, cdataSection.templateName, cdataSection.line, cdataSection.col,
+                                cdataSection.isInlineable());
+            } else {
+                compactQueue[i] = event;
+            }
+
+        }
+
+        return new TemplateModel(templateModel.configuration, templateModel.templateData, compactQueue);
+
+    }
+
+
+
+    /*
+     * Events without location are not compacted, as they might be shared among templates (see TemplateEventInterner)
+     */
+    private static boolean isCompactable(final IEngineTemplateEvent event) {
+        return event instanceof AbstractTextualTemplateEvent &&
+                ((AbstractTextualTemplateEvent) event).hasLocation() &&
+                !((AbstractTextualTemplateEvent) event).hasCompactContent() &&
+                ((AbstractTextualTemplateEvent) event).getContentLength() > 0;
+    }
+
+
+
+    private TemplateTextArena() {
+        super();
+    }
+
+
+
+
+    /*
+     * View of a part of the arena of a template. Note String objects are never cached by these slices: once
+     * created (e.g. for inlining), they are cached by the events themselves.
+     */
+    static final class Slice implements IWritableCharSequence {
+
+        private final String arena;
+        private final int offset;
+        private final int length;
+
+
+        Slice(final String arena, final int offset, final int length) {
+            super();
+            this.arena = arena;
+            this.offset = offset;
+            this.length = length;
+        }
+
+
+        public int length() {
+            return this.length;
+        }
+
+
+        public char charAt(final int index) {
+            return this.arena.charAt(this.offset + index);
+        }
+
+
+        public CharSequence subSequence(final int start, final int end) {
+            if (start < 0 || end > this.length || start > end) {
+                throw new IndexOutOfBoundsException("Invalid subsequence: [" + start + "," + end + ")");
+            }
+            return new Slice(this.arena, this.offset + start, end - start);
+        }
+
+
+        public void write(final Writer writer) throws IOException {
+            writer.write(this.arena, this.offset, this.length);
+        }
+
+
+        @Override
+        public String toString() {
+            return this.arena.substring(this.offset, this.offset + this.length);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,189 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/*
+ * Merges sequences of adjacent texts (and comments, when these are output verbatim) in cached template models
+ * into single text events, so that less events have to go through the handler chain at each execution.
+ *
+ * Merging never changes output:
+ *
+ *   - Only texts and comments not containing any '[' chars are merged, so that merged events can never be
+ *     subject to inlining (not even after switching template mode by means of th:inline). This also excludes
+ *     conditional comments.
+ *   - Nothing is merged if any processors other than those of the Standard Dialect apply to texts or comments.
+ *   - Whitespace texts ending a sequence are never merged, as they might be repeated between iterations of the
+ *     following element.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ */
+final class TemplateTextCoalescer {
+
+
+
+    static TemplateModel coalesce(final TemplateModel templateModel) {
+
+        final IEngineConfiguration configuration = templateModel.configuration;
+        final TemplateMode templateMode = templateModel.getTemplateMode();
+
+        if (!isTextCoalescingAllowed(configuration, templateMode)) {
+            return templateModel;
+        }
+        final boolean commentCoalescingAllowed = isCommentCoalescingAllowed(configuration, templateMode);
+
+        final IEngineTemplateEvent[] queue = templateModel.queue;
+        final int queueLen = queue.length;
+
+        List<IEngineTemplateEvent> coalesced = null;
+
+        int i = 0;
+        while (i < queueLen) {
+
+            if (!isMergeable(queue[i], commentCoalescingAllowed)) {
+                if (coalesced != null) {
+                    coalesced.add(queue[i]);
+                }
+                i++;
+                continue;
+            }
+
+            int j = i + 1;
+            while (j < queueLen && isMergeable(queue[j], commentCoalescingAllowed)) {
+                j++;
+            }
+
+            // Whitespace texts ending the sequence will be kept apart
+            int end = j;
+            if (queue[end - 1] instanceof Text && ((Text) queue[end - 1]).isWhitespace()) {
+                end--;
+            }
+
+            if (end - i < 2) {
+                if (coalesced != null) {
+                    for (int k = i; k < j; k++) {
+                        coalesced.add(queue[k]);
+                    }
+                }
+                i = j;
+                continue;
+            }
+
+            if (coalesced == null) {
+                coalesced = new ArrayList<IEngineTemplateEvent>(queueLen);
+                for (int k = 0; k < i; k++) {
+                    coalesced.add(queue[k]);
+                }
+            }
+
+            final StringBuilder strBuilder = new StringBuilder();
+            for (int k = i; k < end; k++) {
+                if (queue[k] instanceof Text) {
+                    strBuilder.append(((Text) queue[k]).getText());
+                } else {
+                    strBuilder.append(((Comment) queue[k]).getComment());
+                }
+            }
+
+            final AbstractTemplateEvent first = (AbstractTemplateEvent) queue[i];
+            // Coalesced runs never contain '[' chars, so they cannot be inlineable
+            coalesced.add(new Text(strBuilder.toString(), first.templateName, first.line, first.col, false));
+
+            for (int k = end; k < j; k++) {
+                coalesced.add(queue[k]);
+            }
+
+            i = j;
+
+        }
+
+        if (coalesced == null) {
+            return templateModel;
+        }
+
+        return new TemplateModel(
+                templateModel.configuration, templateModel.templateData,
+                coalesced.toArray(new IEngineTemplateEvent[coalesced.size()]));
+
+    }
+
+
+
+
+    private static boolean isMergeable(final IEngineTemplateEvent event, final boolean commentCoalescingAllowed) {
+        if (event instanceof Text) {
+            final Text text = (Text) event;
+            return text.length() > 0 && !containsOpeningBracket(text);
+        }
+        if (commentCoalescingAllowed && event instanceof Comment) {
+            return !containsOpeningBracket((Comment) event);
+        }
+        return false;
+    }
+
+
+    private static boolean containsOpeningBracket(final CharSequence content) {
+        int n = content.length();
+        while (n-- != 0) {
+            if (content.charAt(n) == '[') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /*
+     * Same criteria as for pre-processing inlined expressions at parsing time (see EngineConfiguration): if the
+     * Standard Dialect is present, only its own inlining text processor should be there.
+     */
+    private static boolean isTextCoalescingAllowed(final IEngineConfiguration configuration, final TemplateMode templateMode) {
+        final int textProcessorCount = configuration.getTextProcessors(templateMode).size();
+        return textProcessorCount == 0 || (configuration.isStandardDialectPresent() && textProcessorCount == 1);
+    }
+
+
+    /*
+     * If the Standard Dialect is present, there will also be the conditional comments processor in HTML mode
+     */
+    private static boolean isCommentCoalescingAllowed(final IEngineConfiguration configuration, final TemplateMode templateMode) {
+        if (!templateMode.isMarkup()) {
+            return false;
+        }
+        final int commentProcessorCount = configuration.getCommentProcessors(templateMode).size();
+        return commentProcessorCount == 0 ||
+                (configuration.isStandardDialectPresent() &&
+                        commentProcessorCount <= (templateMode == TemplateMode.HTML ? 2 : 1));
+    }
+
+
+
+    private TemplateTextCoalescer() {
+        super();
+    }
+
+
+}
@@ -0,0 +1,307 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.thymeleaf.model.IAttribute;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.ITemplateEvent;
+import org.thymeleaf.model.IText;
+
+
+/*
+ * Result of statically scanning a template model for the names of the context variables it might reference
+ * (roots of variable expressions, e.g. "user" in ${user.name}), as well as for the fragments it inserts by means
+ * of fragment expressions that do not need any evaluation (e.g. th:insert="~{footer :: copy}").
+ *
+ * This is an approximation, only meant for deciding which lazy variables should be prefetched: it might contain
+ * names that are never actually used (e.g. local variables, or expressions in non-executed branches), and will
+ * not contain names only referenced from non-static fragments.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class TemplateVariableReferences {
+
+    private static final String[] FRAGMENT_INSERTION_ATTR_NAMES = new String[] { "insert", "replace", "include" };
+
+    private static final Set<String> EXPRESSION_KEYWORDS =
+            new HashSet<String>(Arrays.asList(new String[] {
+                    "true", "false", "null", "and", "or", "not", "eq", "ne", "neq", "gt", "ge", "lt", "le",
+                    "div", "mod", "instanceof", "new", "matches", "between", "this", "root" }));
+
+    private final Set<String> variableNames;
+    private final List<FragmentReference> fragments;
+
+
+
+    private TemplateVariableReferences(final Set<String> variableNames, final List<FragmentReference> fragments) {
+        super();
+        this.variableNames = variableNames;
+        this.fragments = fragments;
+    }
+
+
+    Set<String> getVariableNames() {
+        return this.variableNames;
+    }
+
+
+    List<FragmentReference> getFragments() {
+        return this.fragments;
+    }
+
+
+
+
+    static TemplateVariableReferences compute(final TemplateModel templateModel) {
+
+        final Set<String> variableNames = new LinkedHashSet<String>(10);
+        final List<FragmentReference> fragments = new ArrayList<FragmentReference>(2);
+
+        final int modelSize = templateModel.size();
+        for (int i = 0; i < modelSize; i++) {
+
+            final ITemplateEvent event = templateModel.get(i);
+
+            if (event instanceof IProcessableElementTag) {
+                final IAttribute[] attributes = ((IProcessableElementTag) event).getAllAttributes();
+                for (int j = 0; j < attributes.length; j++) {
+                    final String value = attributes[j].getValue();
+                    if (value == null) {
+                        continue;
+                    }
+                    collectVariableNames(value, variableNames);
+                    if (isFragmentInsertionAttribute(attributes[j])) {
+                        final FragmentReference fragment = parseStaticFragmentReference(value);
+                        if (fragment != null) {
+                            fragments.add(fragment);
+                        }
+                    }
+                }
+            } else if (event instanceof IText) {
+                // Texts might contain inlined expressions
+                collectVariableNames(((IText) event).getText(), variableNames);
+            } else if (event instanceof IComment) {
+                collectVariableNames(((IComment) event).getComment(), variableNames);
+            } else if (event instanceof ICDATASection) {
+                collectVariableNames(((ICDATASection) event).getCDATASection(), variableNames);
+            }
+
+        }
+
+        return new TemplateVariableReferences(
+                Collections.unmodifiableSet(variableNames), Collections.unmodifiableList(fragments));
+
+    }
+
+
+
+
+    private static boolean isFragmentInsertionAttribute(final IAttribute attribute) {
+        if (!(attribute instanceof Attribute)) {
+            return false;
+        }
+        final AttributeName attributeName = ((Attribute) attribute).getAttributeDefinition().getAttributeName();
+        if (attributeName.getPrefix() == null) {
+            return false;
+        }
+        final String name = attributeName.getAttributeName();
+        for (int i = 0; i < FRAGMENT_INSERTION_ATTR_NAMES.length; i++) {
+            if (FRAGMENT_INSERTION_ATTR_NAMES[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+
+    /*
+     * Parses fragment specifications like "~{template :: selector}", "template :: selector(params)" or
+     * "~{template}", as long as neither the template name nor the selector need any evaluation.
+     */
+    static FragmentReference parseStaticFragmentReference(final String value) {
+
+        String spec = value.trim();
+        if (spec.startsWith("~{") && spec.endsWith("}")) {
+            spec = spec.substring(2, spec.length() - 1).trim();
+        }
+        if (spec.length() == 0) {
+            return null;
+        }
+
+        final int separatorPos = spec.indexOf("::");
+        final String template = (separatorPos < 0 ? spec : spec.substring(0, separatorPos)).trim();
+        if (template.length() == 0 || "this".equals(template) || !isStaticToken(template)) {
+            return null;
+        }
+
+        if (separatorPos < 0) {
+            return new FragmentReference(template, null);
+        }
+
+        String selector = spec.substring(separatorPos + 2).trim();
+        final int paramsPos = selector.indexOf('(');
+        if (paramsPos >= 0) {
+            // Parameters are evaluated in the context of the inserting template, so we don't need them
+            selector = selector.substring(0, paramsPos).trim();
+        }
+        if (selector.length() == 0 || selector.indexOf('{') >= 0 || selector.indexOf('$') >= 0) {
+            return null;
+        }
+
+        return new FragmentReference(template, selector);
+
+    }
+
+
+    private static boolean isStaticToken(final String token) {
+        final int tokenLen = token.length();
+        for (int i = 0; i < tokenLen; i++) {
+            final char c = token.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '/' || c == '.' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+
+
+    /*
+     * Collects the root names of the variable expressions (${...}) contained in the specified text.
+     */
+    static void collectVariableNames(final String text, final Set<String> variableNames) {
+
+        if (text == null) {
+            return;
+        }
+
+        int pos = 0;
+        while ((pos = text.indexOf("${", pos)) >= 0) {
+
+            final int start = pos + 2;
+            int end = start;
+            int braces = 1;
+            char literalDelimiter = 0;
+            final int textLen = text.length();
+            while (end < textLen && braces > 0) {
+                final char c = text.charAt(end);
+                if (literalDelimiter != 0) {
+                    if (c == literalDelimiter) {
+                        literalDelimiter = 0;
+                    }
+                } else if (c == '\'' || c == '"') {
+                    literalDelimiter = c;
+                } else if (c == '{') {
+                    braces++;
+                } else if (c == '}') {
+                    braces--;
+                }
+                end++;
+            }
+
+            collectRootNames(text, start, (braces == 0 ? end - 1 : end), variableNames);
+            pos = end;
+
+        }
+
+    }
+
+
+    private static void collectRootNames(final String text, final int start, final int end, final Set<String> variableNames) {
+
+        char previous = 0; // previous non-whitespace char
+        int i = start;
+        while (i < end) {
+
+            final char c = text.charAt(i);
+
+            if (c == '\'' || c == '"') {
+                // Skip literal
+                i++;
+                while (i < end && text.charAt(i) != c) {
+                    i++;
+                }
+                i++;
+                previous = c;
+                continue;
+            }
+
+            if (Character.isJavaIdentifierStart(c)) {
+                final int identifierStart = i;
+                while (i < end && Character.isJavaIdentifierPart(text.charAt(i))) {
+                    i++;
+                }
+                int next = i;
+                while (next < end && Character.isWhitespace(text.charAt(next))) {
+                    next++;
+                }
+                final boolean isCall = (next < end && text.charAt(next) == '(');
+                if (!isCall && previous != '.' && previous != '#' && previous != '@' && previous != '$') {
+                    final String name = text.substring(identifierStart, i);
+                    if (!EXPRESSION_KEYWORDS.contains(name)) {
+                        variableNames.add(name);
+                    }
+                }
+                previous = text.charAt(i - 1);
+                continue;
+            }
+
+            if (!Character.isWhitespace(c)) {
+                previous = c;
+            }
+            i++;
+
+        }
+
+    }
+
+
+
+
+    static final class FragmentReference {
+
+        final String template;
+        final String selector; // might be null
+
+        FragmentReference(final String template, final String selector) {
+            super();
+            this.template = template;
+            this.selector = selector;
+        }
+
+    }
+
+
+}
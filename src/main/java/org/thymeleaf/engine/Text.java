@@ -40,11 +40,21 @@ final class Text extends AbstractTextualTemplateEvent implements IText {
     }
 
 
+    Text(final CharSequence text, final boolean inlineable) {
+        super(text, inlineable);
+    }
+
+
     Text(final CharSequence text, final String templateName, final int line, final int col) {
         super(text, templateName, line, col);
     }
 
 
+    Text(final CharSequence text, final String templateName, final int line, final int col, final boolean inlineable) {
+        super(text, templateName, line, col, inlineable);
+    }
+
+
 
 
     public String getText() {
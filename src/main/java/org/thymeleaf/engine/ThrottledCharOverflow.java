@@ -0,0 +1,178 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+
+/*
+ * Chain of pooled char segments used by ThrottledTemplateWriterWriterAdapter for storing overflow. Writing the
+ * overflow to output never moves any chars: segments are simply given back to the pool once written, and no
+ * segments at all are retained once the overflow has been completely written.
+ *
+ * @author Daniel Fernandez
+ * @since 3.0.8
+ *
+ */
+final class ThrottledCharOverflow {
+
+    private final ThrottledOverflowBufferPool pool;
+    private final int segmentSize;
+
+    private final ArrayDeque<char[]> segments;
+    private char[] last;
+    private int headOffset; // read position in the first segment
+    private int lastSize;   // write position in the last segment
+    private int size;
+    private int growCount;
+
+
+
+    ThrottledCharOverflow(final ThrottledOverflowBufferPool pool, final int segmentSize) {
+        super();
+        this.pool = pool;
+        this.segmentSize = ThrottledOverflowBufferPool.computeSegmentSize(segmentSize);
+        this.segments = new ArrayDeque<char[]>(4);
+        this.last = null;
+        this.headOffset = 0;
+        this.lastSize = 0;
+        this.size = 0;
+        this.growCount = 0;
+    }
+
+
+    int size() {
+        return this.size;
+    }
+
+
+    int getGrowCount() {
+        return this.growCount;
+    }
+
+
+
+
+    void append(final char c) {
+        if (this.last == null || this.lastSize == this.last.length) {
+            addSegment();
+        }
+        this.last[this.lastSize++] = c;
+        this.size++;
+    }
+
+
+    void append(final String str, final int off, final int len) {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (this.last == null || this.lastSize == this.last.length) {
+                addSegment();
+            }
+            final int n = Math.min(remaining, this.last.length - this.lastSize);
+            str.getChars(offset, offset + n, this.last, this.lastSize);
+            this.lastSize += n;
+            offset += n;
+            remaining -= n;
+        }
+        this.size += len;
+    }
+
+
+    void append(final char[] cbuf, final int off, final int len) {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (this.last == null || this.lastSize == this.last.length) {
+                addSegment();
+            }
+            final int n = Math.min(remaining, this.last.length - this.lastSize);
+            System.arraycopy(cbuf, offset, this.last, this.lastSize, n);
+            this.lastSize += n;
+            offset += n;
+            remaining -= n;
+        }
+        this.size += len;
+    }
+
+
+    private void addSegment() {
+        if (!this.segments.isEmpty()) {
+            this.growCount++;
+        }
+        this.last = this.pool.acquireChars(this.segmentSize);
+        this.lastSize = 0;
+        this.segments.addLast(this.last);
+    }
+
+
+
+
+    /*
+     * Writes (at most) the specified amount of chars to the writer, releasing the segments that become empty.
+     */
+    void writeTo(final Writer writer, final int max) throws IOException {
+
+        int remaining = Math.min(max, this.size);
+        while (remaining > 0) {
+
+            final char[] head = this.segments.peekFirst();
+            final int headEnd = (head == this.last ? this.lastSize : head.length);
+            final int n = Math.min(remaining, headEnd - this.headOffset);
+
+            writer.write(head, this.headOffset, n);
+            this.headOffset += n;
+            this.size -= n;
+            remaining -= n;
+
+            if (this.headOffset == headEnd) {
+                this.segments.pollFirst();
+                if (head == this.last) {
+                    this.last = null;
+                    this.lastSize = 0;
+                }
+                this.headOffset = 0;
+                this.pool.releaseChars(head);
+            }
+
+        }
+
+    }
+
+
+
+
+
+    /*
+     * Discards all contents, giving all segments back to the pool.
+     */
+    void discard() {
+        char[] segment;
+        while ((segment = this.segments.pollFirst()) != null) {
+            this.pool.releaseChars(segment);
+        }
+        this.last = null;
+        this.headOffset = 0;
+        this.lastSize = 0;
+        this.size = 0;
+    }
+
+}
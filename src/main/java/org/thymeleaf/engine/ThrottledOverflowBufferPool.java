@@ -0,0 +1,277 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *   Pool of the segments used by throttled template processors for storing their <em>overflow</em>, i.e. the
+ *   output produced by the engine beyond the limit established for each execution of a throttled processor.
+ * </p>
+ * <p>
+ *   Overflow is stored as a chain of fixed-size segments (instead of a single, growing array) which are obtained
+ *   from this pool when needed and given back to it as soon as their contents have been written to the output.
+ *   This way, throttled processors that have been suspended without any pending overflow do not retain any
+ *   overflow memory at all, and memory for overflow is reused among all the throttled processors being executed.
+ * </p>
+ * <p>
+ *   Segments are organized in size classes (powers of two between {@link #MIN_SEGMENT_SIZE} and
+ *   {@link #MAX_SEGMENT_SIZE}), and the amount of idle segments kept for each of these classes is limited.
+ * </p>
+ * <p>
+ *   This class is for <strong>internal</strong> use only. There is usually no reason why user's code should
+ *   reference it other than for querying its metrics (by means of {@link #getInstance()}).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class ThrottledOverflowBufferPool {
+
+    static final int MIN_SEGMENT_SIZE = 16;
+    static final int MAX_SEGMENT_SIZE = 8192;
+
+    // Maximum amount of memory (approx.) to be kept idle for each size class, separately for chars and bytes
+    private static final int MAX_POOLED_BYTES_PER_CLASS = 512 * 1024;
+
+    private static final int SIZE_CLASS_COUNT =
+            Integer.numberOfTrailingZeros(MAX_SEGMENT_SIZE) - Integer.numberOfTrailingZeros(MIN_SEGMENT_SIZE) + 1;
+
+    private static final ThrottledOverflowBufferPool INSTANCE = new ThrottledOverflowBufferPool();
+
+
+    private final SizeClass[] charClasses;
+    private final SizeClass[] byteClasses;
+
+    private final AtomicInteger segmentsInUse;
+    private final AtomicInteger maxSegmentsInUse;
+    private final AtomicLong allocatedSegmentCount;
+
+
+
+    /**
+     * <p>
+     *   Returns the pool shared by all the throttled template processors.
+     * </p>
+     *
+     * @return the pool.
+     */
+    public static ThrottledOverflowBufferPool getInstance() {
+        return INSTANCE;
+    }
+
+
+    private ThrottledOverflowBufferPool() {
+        super();
+        this.charClasses = new SizeClass[SIZE_CLASS_COUNT];
+        this.byteClasses = new SizeClass[SIZE_CLASS_COUNT];
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            final int segmentSize = MIN_SEGMENT_SIZE << i;
+            this.charClasses[i] = new SizeClass(Math.max(1, MAX_POOLED_BYTES_PER_CLASS / (segmentSize * 2)));
+            this.byteClasses[i] = new SizeClass(Math.max(1, MAX_POOLED_BYTES_PER_CLASS / segmentSize));
+        }
+        this.segmentsInUse = new AtomicInteger(0);
+        this.maxSegmentsInUse = new AtomicInteger(0);
+        this.allocatedSegmentCount = new AtomicLong(0L);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the number of segments currently in use (i.e. storing overflow) by throttled processors.
+     * </p>
+     *
+     * @return the number of segments in use.
+     */
+    public int getSegmentsInUse() {
+        return this.segmentsInUse.get();
+    }
+
+
+    /**
+     * <p>
+     *   Returns the maximum number of segments that have been in use at the same time.
+     * </p>
+     *
+     * @return the maximum number of segments in use.
+     */
+    public int getMaxSegmentsInUse() {
+        return this.maxSegmentsInUse.get();
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of segments that have had to be allocated because no idle segments were available
+     *   in the pool.
+     * </p>
+     *
+     * @return the number of allocated segments.
+     */
+    public long getAllocatedSegmentCount() {
+        return this.allocatedSegmentCount.get();
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of idle segments currently kept in the pool.
+     * </p>
+     *
+     * @return the number of pooled segments.
+     */
+    public int getPooledSegmentCount() {
+        int count = 0;
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            count += this.charClasses[i].count.get();
+            count += this.byteClasses[i].count.get();
+        }
+        return count;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the (approximate) amount of memory, in bytes, retained by the idle segments kept in the pool.
+     * </p>
+     *
+     * @return the pooled size, in bytes.
+     */
+    public long getPooledSizeInBytes() {
+        long size = 0L;
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            final long segmentSize = MIN_SEGMENT_SIZE << i;
+            size += this.charClasses[i].count.get() * segmentSize * 2;
+            size += this.byteClasses[i].count.get() * segmentSize;
+        }
+        return size;
+    }
+
+
+
+
+    /*
+     * Returns the size of the segments that would be used for the specified (approximate) size.
+     */
+    static int computeSegmentSize(final int size) {
+        if (size <= MIN_SEGMENT_SIZE) {
+            return MIN_SEGMENT_SIZE;
+        }
+        if (size >= MAX_SEGMENT_SIZE) {
+            return MAX_SEGMENT_SIZE;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+
+    private static int sizeClassIndex(final int segmentSize) {
+        return Integer.numberOfTrailingZeros(segmentSize) - Integer.numberOfTrailingZeros(MIN_SEGMENT_SIZE);
+    }
+
+
+
+
+    char[] acquireChars(final int segmentSize) {
+        markAcquired();
+        final char[] segment = (char[]) this.charClasses[sizeClassIndex(segmentSize)].poll();
+        if (segment != null) {
+            return segment;
+        }
+        this.allocatedSegmentCount.incrementAndGet();
+        return new char[segmentSize];
+    }
+
+
+    void releaseChars(final char[] segment) {
+        this.segmentsInUse.decrementAndGet();
+        this.charClasses[sizeClassIndex(segment.length)].offer(segment);
+    }
+
+
+    byte[] acquireBytes(final int segmentSize) {
+        markAcquired();
+        final byte[] segment = (byte[]) this.byteClasses[sizeClassIndex(segmentSize)].poll();
+        if (segment != null) {
+            return segment;
+        }
+        this.allocatedSegmentCount.incrementAndGet();
+        return new byte[segmentSize];
+    }
+
+
+    void releaseBytes(final byte[] segment) {
+        this.segmentsInUse.decrementAndGet();
+        this.byteClasses[sizeClassIndex(segment.length)].offer(segment);
+    }
+
+
+    private void markAcquired() {
+        final int inUse = this.segmentsInUse.incrementAndGet();
+        int max;
+        while (inUse > (max = this.maxSegmentsInUse.get())) {
+            if (this.maxSegmentsInUse.compareAndSet(max, inUse)) {
+                break;
+            }
+        }
+    }
+
+
+
+
+    private static final class SizeClass {
+
+        private final int maxCount;
+        private final ConcurrentLinkedQueue<Object> segments;
+        private final AtomicInteger count;
+
+        SizeClass(final int maxCount) {
+            super();
+            this.maxCount = maxCount;
+            this.segments = new ConcurrentLinkedQueue<Object>();
+            this.count = new AtomicInteger(0);
+        }
+
+        Object poll() {
+            final Object segment = this.segments.poll();
+            if (segment != null) {
+                this.count.decrementAndGet();
+            }
+            return segment;
+        }
+
+        void offer(final Object segment) {
+            if (this.count.incrementAndGet() > this.maxCount) {
+                this.count.decrementAndGet();
+                return;
+            }
+            this.segments.offer(segment);
+        }
+
+    }
+
+
+}
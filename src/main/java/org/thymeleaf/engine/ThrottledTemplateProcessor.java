@@ -24,6 +24,7 @@
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -78,6 +79,7 @@ public final class ThrottledTemplateProcessor implements IThrottledTemplateProce
 
     private int offset;
     private boolean eventProcessingFinished;
+    private ByteBufferOutputStream bufferOutputStream;
 
     // This is signaled as volatile so that several threads can ask whether the processor has finished
     // avoiding visibility issues (concurrency should not be an issue because we should NEVER have more than
@@ -104,6 +106,7 @@ public final class ThrottledTemplateProcessor implements IThrottledTemplateProce
         this.offset = 0;
         this.eventProcessingFinished = false;
         this.allProcessingFinished = false;
+        this.bufferOutputStream = null;
     }
 
 
@@ -155,6 +158,36 @@ private void reportFinish(final String outputType) {
 
 
 
+    /*
+     * Stops processing (if not finished yet), disposing the engine context. Meant to be called when the consumer
+     * of the output is no longer interested in it, e.g. when the subscription of a ThrottledTemplatePublisher
+     * is cancelled. Must never be called while the processor is executing.
+     */
+    void dispose() {
+
+        // Any pending overflow will never be output, so its segments can go back to the pool
+        this.writer.discardOverflow();
+
+        if (this.eventProcessingFinished) {
+            this.allProcessingFinished = true;
+            return;
+        }
+
+        this.eventProcessingFinished = true;
+        this.allProcessingFinished = true;
+        EngineContextManager.disposeEngineContext(this.context);
+
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    "[THYMELEAF][{}] Disposed unfinished throttled processing of template \"{}\" with locale {}",
+                    new Object[]{TemplateEngine.threadIndex(), this.templateSpec, this.context.getLocale()});
+        }
+
+    }
+
+
+
+
     @Override
     public String getProcessorIdentifier() {
         return this.identifier;
@@ -201,6 +234,35 @@ public int process(final int maxOutputInBytes, final OutputStream outputStream,
     }
 
 
+    /**
+     * <p>
+     *   Process the template until the specified buffer is full (or processing finishes), writing output as bytes
+     *   encoded using the specified charset. At most <tt>buffer.remaining()</tt> bytes will be written, starting
+     *   at the buffer's current position.
+     * </p>
+     * <p>
+     *   This method is not a part of the {@link IThrottledTemplateProcessor} interface.
+     * </p>
+     *
+     * @param buffer the buffer output will be written to.
+     * @param charset the charset to be used for encoding output.
+     * @return the number of bytes written to the buffer.
+     *
+     * @since 3.0.8
+     */
+    public int process(final ByteBuffer buffer, final Charset charset) {
+        if (this.bufferOutputStream == null) {
+            this.bufferOutputStream = new ByteBufferOutputStream();
+        }
+        this.bufferOutputStream.setBuffer(buffer);
+        try {
+            return process(buffer.remaining(), this.bufferOutputStream, charset);
+        } finally {
+            this.bufferOutputStream.setBuffer(null);
+        }
+    }
+
+
     private int process(final int maxOutput, final String outputType) {
 
         int writtenCount = 0;
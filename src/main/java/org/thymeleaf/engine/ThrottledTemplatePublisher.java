@@ -0,0 +1,528 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.thymeleaf.IThrottledTemplateProcessor;
+import org.thymeleaf.util.ByteBufferPool;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Demand-driven publisher of the output of an {@link IThrottledTemplateProcessor} in the form of
+ *   {@link ByteBuffer} objects.
+ * </p>
+ * <p>
+ *   This class performs the <em>demand-to-bytes</em> loop that would otherwise have to be implemented by
+ *   every integration of the template engine in reactive architectures: each buffer requested by the
+ *   subscriber (see {@link IThrottledTemplateSubscription#request(long)}) is obtained from a
+ *   {@link ByteBufferPool} and allows the processor to produce at most as many bytes as the buffer's capacity.
+ *   Cancelling the subscription disposes the processor's engine context.
+ * </p>
+ * <p>
+ *   Its contracts ({@link IThrottledTemplateSubscriber} and {@link IThrottledTemplateSubscription}) mirror those
+ *   of <em>Reactive Streams</em> so that they can be trivially adapted to <tt>java.util.concurrent.Flow</tt> or
+ *   to any reactive library.
+ * </p>
+ * <p>
+ *   <strong>Data-driven</strong> processing is supported by specifying the {@link DataDrivenTemplateIterator}
+ *   set into the context as a variable before creating the throttled processor. In that case, the data to be
+ *   iterated should be fed by means of {@link #feed(List)} and, once there is no more data,
+ *   {@link #feedingComplete()}. Output will be paused while the iterator waits for data. Additional data-driven
+ *   iterators (independent or nested) created for that one can be fed by means of
+ *   {@link #feed(DataDrivenTemplateIterator, List)} and {@link #feedingComplete(DataDrivenTemplateIterator)} (plus
+ *   {@link #feedingSequenceComplete(DataDrivenTemplateIterator)} for nested ones). The output produced for
+ *   small chunks of data can be coalesced into fewer buffers by means of
+ *   {@link #setBatching(int, long, ScheduledExecutorService)}.
+ * </p>
+ * <p>
+ *   Publishers can only be subscribed once.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class ThrottledTemplatePublisher {
+
+    private final IThrottledTemplateProcessor processor;
+    private final Charset charset;
+    private final ByteBufferPool bufferPool;
+    private final DataDrivenTemplateIterator dataDrivenIterator;
+
+    private final AtomicBoolean subscribed;
+    private final AtomicLong demand;
+    private final AtomicInteger pendingDrains;
+    private final ConcurrentLinkedQueue<PendingFeed> pendingFeeds;
+    private volatile boolean cancelled;
+    private volatile Throwable cancellationError;
+
+    // Batching configuration (see #setBatching(...)), only modifiable before subscribing
+    private int minBatchBytes;
+    private long maxBatchDelay;
+    private ScheduledExecutorService batchScheduler;
+    private volatile long expiredBatchID;
+
+    // These are only accessed from the draining thread (see #drain())
+    private IThrottledTemplateSubscriber subscriber;
+    private boolean terminated;
+    private final ByteBufferOutputStream outputStream;
+    private ByteBuffer batchBuffer;
+    private long batchID;
+
+
+
+    public ThrottledTemplatePublisher(
+            final IThrottledTemplateProcessor processor, final Charset charset, final ByteBufferPool bufferPool) {
+        this(processor, charset, bufferPool, null);
+    }
+
+
+    public ThrottledTemplatePublisher(
+            final IThrottledTemplateProcessor processor, final Charset charset, final ByteBufferPool bufferPool,
+            final DataDrivenTemplateIterator dataDrivenIterator) {
+
+        super();
+
+        Validate.notNull(processor, "Throttled template processor cannot be null");
+        Validate.notNull(charset, "Charset cannot be null");
+        Validate.notNull(bufferPool, "Buffer pool cannot be null");
+        // Data-driven iterator CAN be null
+
+        this.processor = processor;
+        this.charset = charset;
+        this.bufferPool = bufferPool;
+        this.dataDrivenIterator = dataDrivenIterator;
+
+        if (this.dataDrivenIterator != null && processor instanceof ThrottledTemplateProcessor) {
+            this.dataDrivenIterator.setWriterControl(
+                    ((ThrottledTemplateProcessor) processor).getThrottledTemplateWriterControl());
+        }
+
+        this.subscribed = new AtomicBoolean(false);
+        this.demand = new AtomicLong(0L);
+        this.pendingDrains = new AtomicInteger(0);
+        this.pendingFeeds = new ConcurrentLinkedQueue<PendingFeed>();
+        this.cancelled = false;
+        this.cancellationError = null;
+
+        this.minBatchBytes = 0;
+        this.maxBatchDelay = 0L;
+        this.batchScheduler = null;
+        this.expiredBatchID = -1L;
+
+        this.subscriber = null;
+        this.terminated = false;
+        this.outputStream = new ByteBufferOutputStream();
+        this.batchBuffer = null;
+        this.batchID = 0L;
+
+    }
+
+
+
+    public ByteBufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+
+
+    /**
+     * <p>
+     *   Enables the batching of the output of data-driven processing.
+     * </p>
+     * <p>
+     *   Without batching, the output produced for each fed chunk of data is published as soon as the
+     *   data-driven iterator runs out of data, which can mean one (small) buffer for every element when data is
+     *   fed element by element (e.g. one per SSE event). With batching, such output is instead kept in the
+     *   current buffer, and output for subsequently fed data is appended to it, until the buffer contains at least
+     *   <tt>minBatchBytes</tt> bytes (or is full), processing finishes, or <tt>maxBatchDelay</tt> milliseconds
+     *   have passed since the batch was started.
+     * </p>
+     * <p>
+     *   This method can only be called before subscribing.
+     * </p>
+     *
+     * @param minBatchBytes the amount of bytes a batch should reach before being published (should not exceed
+     *                      the capacity of the pool's buffers).
+     * @param maxBatchDelay the maximum time (in milliseconds) output can be kept in a batch before being published.
+     * @param scheduler the scheduler to be used for publishing batches once their maximum delay expires.
+     */
+    public void setBatching(final int minBatchBytes, final long maxBatchDelay, final ScheduledExecutorService scheduler) {
+        Validate.isTrue(minBatchBytes > 0, "Minimum batch size must be greater than zero");
+        Validate.isTrue(maxBatchDelay > 0L, "Maximum batch delay must be greater than zero");
+        Validate.notNull(scheduler, "Scheduler cannot be null");
+        if (this.subscribed.get()) {
+            throw new IllegalStateException("Batching cannot be configured once the publisher has been subscribed");
+        }
+        this.minBatchBytes = minBatchBytes;
+        this.maxBatchDelay = maxBatchDelay;
+        this.batchScheduler = scheduler;
+    }
+
+
+
+    public void subscribe(final IThrottledTemplateSubscriber subscriber) {
+
+        Validate.notNull(subscriber, "Subscriber cannot be null");
+
+        if (!this.subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new IThrottledTemplateSubscription() {
+                public void request(final long n) { /* Nothing to do */ }
+                public void cancel() { /* Nothing to do */ }
+            });
+            subscriber.onError(new IllegalStateException("Throttled template publishers can only be subscribed once"));
+            return;
+        }
+
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Subscription());
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Feeds new data to the data-driven iterator. Can be called from any thread.
+     * </p>
+     *
+     * @param newElements the new elements to be iterated.
+     */
+    public void feed(final List<Object> newElements) {
+        feed(this.dataDrivenIterator, newElements);
+    }
+
+
+    /**
+     * <p>
+     *   Feeds new data to the specified data-driven iterator, which can be either the one specified at construction
+     *   or any other one created for it (see {@link DataDrivenTemplateIterator#DataDrivenTemplateIterator(DataDrivenTemplateIterator)}).
+     *   Can be called from any thread.
+     * </p>
+     *
+     * @param iterator the iterator data is being fed to.
+     * @param newElements the new elements to be iterated.
+     *
+     * @since 3.0.8
+     */
+    public void feed(final DataDrivenTemplateIterator iterator, final List<Object> newElements) {
+        checkDataDriven(iterator);
+        Validate.notNull(newElements, "New elements cannot be null");
+        this.pendingFeeds.offer(new PendingFeed(iterator, newElements, false));
+        drain();
+    }
+
+
+    /**
+     * <p>
+     *   Signals that no more data will be fed to the data-driven iterator. Can be called from any thread.
+     * </p>
+     */
+    public void feedingComplete() {
+        feedingComplete(this.dataDrivenIterator);
+    }
+
+
+    /**
+     * <p>
+     *   Signals that no more data will be fed to the specified data-driven iterator, which can be either the one
+     *   specified at construction or any other one created for it. Can be called from any thread.
+     * </p>
+     *
+     * @param iterator the iterator for which feeding is complete.
+     *
+     * @since 3.0.8
+     */
+    public void feedingComplete(final DataDrivenTemplateIterator iterator) {
+        checkDataDriven(iterator);
+        this.pendingFeeds.offer(new PendingFeed(iterator, null, false));
+        drain();
+    }
+
+
+    /**
+     * <p>
+     *   Signals that all the data for the current element of the enclosing iteration has been fed to the specified
+     *   nested data-driven iterator (see {@link DataDrivenTemplateIterator#feedingSequenceComplete()}). Can be called
+     *   from any thread.
+     * </p>
+     *
+     * @param iterator the nested iterator for which feeding of the current sequence is complete.
+     *
+     * @since 3.0.8
+     */
+    public void feedingSequenceComplete(final DataDrivenTemplateIterator iterator) {
+        checkDataDriven(iterator);
+        this.pendingFeeds.offer(new PendingFeed(iterator, null, true));
+        drain();
+    }
+
+
+    private void checkDataDriven(final DataDrivenTemplateIterator iterator) {
+        if (this.dataDrivenIterator == null) {
+            throw new IllegalStateException("Cannot feed data to a publisher not created with a data-driven iterator");
+        }
+        Validate.notNull(iterator, "Data-driven iterator cannot be null");
+        if (!iterator.isInGroupOf(this.dataDrivenIterator)) {
+            throw new IllegalArgumentException(
+                    "Cannot feed data to a data-driven iterator not created for the one specified for this publisher");
+        }
+    }
+
+
+
+
+    /*
+     * All interaction with the processor (and with the data-driven iterator) is serialized here. Whichever thread
+     * first increments the pending drain count becomes responsible for processing until no more work is pending,
+     * while other threads simply signal that there is new work (demand, data, cancellation) and leave.
+     */
+    private void drain() {
+
+        if (this.pendingDrains.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+
+            if (this.subscriber != null) {
+                drainLoop();
+            }
+            missed = this.pendingDrains.addAndGet(-missed);
+
+        } while (missed != 0);
+
+    }
+
+
+    private void drainLoop() {
+
+        while (!this.terminated) {
+
+            if (this.cancelled) {
+                this.terminated = true;
+                releaseBatch();
+                dispose();
+                if (this.cancellationError != null) {
+                    this.subscriber.onError(this.cancellationError);
+                }
+                return;
+            }
+
+            final boolean dataAvailable = applyPendingFeeds();
+
+            if (this.batchBuffer != null && this.expiredBatchID == this.batchID) {
+                // The batch has been kept for as long as allowed. Note a batch always has demand for it.
+                emit(takeBatch());
+                continue;
+            }
+
+            if (this.demand.get() == 0L) {
+                return;
+            }
+
+            // If there is a batch being built, output will be appended to it
+            final boolean continuingBatch = (this.batchBuffer != null);
+            final ByteBuffer buffer = (continuingBatch? takeBatch() : this.bufferPool.acquire());
+            final int written;
+            try {
+                this.outputStream.setBuffer(buffer);
+                written = this.processor.process(buffer.remaining(), this.outputStream, this.charset);
+            } catch (final Throwable t) {
+                this.bufferPool.release(buffer);
+                this.terminated = true;
+                dispose();
+                this.subscriber.onError(t);
+                return;
+            } finally {
+                this.outputStream.setBuffer(null);
+            }
+
+            final boolean finished = this.processor.isFinished();
+            final boolean waitingForData =
+                    this.dataDrivenIterator != null && this.dataDrivenIterator.isGroupWaitingForData();
+
+            if (buffer.position() == 0) {
+                this.bufferPool.release(buffer);
+            } else if (!finished && waitingForData && shouldBatch(buffer)) {
+                keepBatch(buffer, !continuingBatch);
+            } else {
+                emit(buffer);
+            }
+
+            if (finished) {
+                this.terminated = true;
+                this.subscriber.onComplete();
+                return;
+            }
+
+            if (written == 0 && waitingForData && !dataAvailable) {
+                // The data-driven iterator is waiting for data, so we will resume once some is fed
+                return;
+            }
+
+        }
+
+    }
+
+
+    private void emit(final ByteBuffer buffer) {
+        buffer.flip();
+        this.demand.decrementAndGet();
+        this.subscriber.onNext(buffer);
+    }
+
+
+
+
+    /*
+     * Output is batched only when data-driven processing is paused waiting for data, the batch still has room
+     * and it has not reached the configured minimum size.
+     */
+    private boolean shouldBatch(final ByteBuffer buffer) {
+        return this.minBatchBytes > 0 && buffer.hasRemaining() && buffer.position() < this.minBatchBytes;
+    }
+
+
+    private void keepBatch(final ByteBuffer buffer, final boolean newBatch) {
+        this.batchBuffer = buffer;
+        if (newBatch) {
+            // Batch IDs allow ignoring expirations of batches that were already emitted because of their size
+            final long id = ++this.batchID;
+            this.batchScheduler.schedule(
+                    new Runnable() {
+                        public void run() {
+                            expiredBatchID = id;
+                            drain();
+                        }
+                    }, this.maxBatchDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    private ByteBuffer takeBatch() {
+        final ByteBuffer buffer = this.batchBuffer;
+        this.batchBuffer = null;
+        return buffer;
+    }
+
+
+    private void releaseBatch() {
+        if (this.batchBuffer != null) {
+            this.bufferPool.release(this.batchBuffer);
+            this.batchBuffer = null;
+        }
+    }
+
+
+    private boolean applyPendingFeeds() {
+        if (this.dataDrivenIterator == null) {
+            return false;
+        }
+        boolean fed = false;
+        PendingFeed feed;
+        while ((feed = this.pendingFeeds.poll()) != null) {
+            if (feed.newElements != null) {
+                feed.iterator.feedBuffer(feed.newElements);
+            } else if (feed.sequenceComplete) {
+                feed.iterator.feedingSequenceComplete();
+            } else {
+                feed.iterator.feedingComplete();
+            }
+            fed = true;
+        }
+        return fed;
+    }
+
+
+    private void dispose() {
+        if (this.processor instanceof ThrottledTemplateProcessor) {
+            ((ThrottledTemplateProcessor) this.processor).dispose();
+        }
+    }
+
+
+
+
+    private static final class PendingFeed {
+
+        final DataDrivenTemplateIterator iterator;
+        final List<Object> newElements; // null means feeding is complete (for the sequence, or at all)
+        final boolean sequenceComplete;
+
+        PendingFeed(
+                final DataDrivenTemplateIterator iterator, final List<Object> newElements, final boolean sequenceComplete) {
+            super();
+            this.iterator = iterator;
+            this.newElements = newElements;
+            this.sequenceComplete = sequenceComplete;
+        }
+
+    }
+
+
+
+
+    private final class Subscription implements IThrottledTemplateSubscription {
+
+        Subscription() {
+            super();
+        }
+
+        public void request(final long n) {
+            if (n <= 0L) {
+                cancellationError = new IllegalArgumentException("Demand must be greater than zero, but was: " + n);
+                cancelled = true;
+                drain();
+                return;
+            }
+            long current, next;
+            do {
+                current = demand.get();
+                next = current + n;
+                if (next < 0L) { // overflow: demand is considered unbounded
+                    next = Long.MAX_VALUE;
+                }
+            } while (!demand.compareAndSet(current, next));
+            drain();
+        }
+
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+    }
+
+
+
+}
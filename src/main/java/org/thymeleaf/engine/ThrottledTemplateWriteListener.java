@@ -0,0 +1,188 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.thymeleaf.IThrottledTemplateProcessor;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Listener that drives an {@link IThrottledTemplateProcessor} from the write-readiness notifications of a
+ *   non-blocking output ({@link INonBlockingTemplateOutput}), so that no thread needs to be held while the
+ *   client is slow reading the output.
+ * </p>
+ * <p>
+ *   Its methods mirror those of the <em>Servlet 3.1</em> <tt>javax.servlet.WriteListener</tt> interface. Each time
+ *   writing becomes possible, output is produced in steps of at most the configured amount of bytes, each step
+ *   being written to the output stream in one single write operation, for as long as the output reports being
+ *   ready. When it is not, the listener simply returns, and processing is resumed at the next notification. In a
+ *   Servlet 3.1 container, this can be used as:
+ * </p>
+ * <pre><code>
+ * final AsyncContext asyncContext = request.startAsync();
+ * final ServletOutputStream servletOutputStream = response.getOutputStream();
+ * final ThrottledTemplateWriteListener listener =
+ *         new ThrottledTemplateWriteListener(processor, charset, new INonBlockingTemplateOutput() {
+ *             public boolean isReady() { return servletOutputStream.isReady(); }
+ *             public OutputStream getOutputStream() { return servletOutputStream; }
+ *             public void complete() { asyncContext.complete(); }
+ *             public void fail(final Throwable t) { asyncContext.complete(); }
+ *         }, 8192);
+ * servletOutputStream.setWriteListener(new WriteListener() {
+ *     public void onWritePossible() throws IOException { listener.onWritePossible(); }
+ *     public void onError(final Throwable t) { listener.onError(t); }
+ * });
+ * </code></pre>
+ * <p>
+ *   If the throttled processor is data-driven, {@link #onWritePossible()} will return without writing when
+ *   the data-driven iterator waits for data, so it should be called again after feeding new data. Calls to the
+ *   methods of this listener (and the feeding of data) should not be performed concurrently.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class ThrottledTemplateWriteListener {
+
+    private final IThrottledTemplateProcessor processor;
+    private final Charset charset;
+    private final INonBlockingTemplateOutput output;
+
+    // Output of each step is gathered here so that it can be written in one single (non-blocking) operation
+    private final ByteBuffer stepBuffer;
+    private final ByteBufferOutputStream stepOutputStream;
+
+    private boolean terminated;
+
+
+
+    public ThrottledTemplateWriteListener(
+            final IThrottledTemplateProcessor processor, final Charset charset,
+            final INonBlockingTemplateOutput output, final int maxBytesPerWrite) {
+
+        super();
+
+        Validate.notNull(processor, "Throttled template processor cannot be null");
+        Validate.notNull(charset, "Charset cannot be null");
+        Validate.notNull(output, "Output cannot be null");
+        Validate.isTrue(maxBytesPerWrite > 0, "Maximum bytes per write must be greater than zero");
+
+        this.processor = processor;
+        this.charset = charset;
+        this.output = output;
+        this.stepBuffer = ByteBuffer.allocate(maxBytesPerWrite);
+        this.stepOutputStream = new ByteBufferOutputStream();
+        this.stepOutputStream.setBuffer(this.stepBuffer);
+        this.terminated = false;
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns whether all output has been written (or processing has failed).
+     * </p>
+     *
+     * @return <tt>true</tt> if no more output will be written, <tt>false</tt> if not.
+     */
+    public boolean isTerminated() {
+        return this.terminated;
+    }
+
+
+
+    /**
+     * <p>
+     *   Writes output for as long as the output is ready. Equivalent to <tt>WriteListener#onWritePossible()</tt>.
+     * </p>
+     *
+     * @throws IOException if writing to the output stream fails.
+     */
+    public void onWritePossible() throws IOException {
+
+        while (!this.terminated && this.output.isReady()) {
+
+            if (this.processor.isFinished()) {
+                this.terminated = true;
+                this.output.complete();
+                return;
+            }
+
+            this.stepBuffer.clear();
+            try {
+                this.processor.process(this.stepBuffer.capacity(), this.stepOutputStream, this.charset);
+            } catch (final RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+
+            if (this.stepBuffer.position() == 0) {
+                if (!this.processor.isFinished()) {
+                    // Nothing was produced: a data-driven iterator must be waiting for data
+                    return;
+                }
+                continue;
+            }
+
+            try {
+                this.output.getOutputStream().write(this.stepBuffer.array(), 0, this.stepBuffer.position());
+            } catch (final IOException e) {
+                fail(e);
+                throw e;
+            }
+
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Signals that writing to the output failed, disposing the processor. Equivalent to
+     *   <tt>WriteListener#onError(Throwable)</tt>.
+     * </p>
+     *
+     * @param t the error.
+     */
+    public void onError(final Throwable t) {
+        fail(t);
+    }
+
+
+    private void fail(final Throwable t) {
+        if (this.terminated) {
+            return;
+        }
+        this.terminated = true;
+        if (this.processor instanceof ThrottledTemplateProcessor) {
+            ((ThrottledTemplateProcessor) this.processor).dispose();
+        }
+        this.output.fail(t);
+    }
+
+
+}
@@ -166,6 +166,13 @@ public int getOverflowGrowCount() {
     }
 
 
+    void discardOverflow() {
+        if (this.adapter != null) {
+            this.adapter.discardOverflow();
+        }
+    }
+
+
     void allow(final int limit) {
         this.adapter.allow(limit);
     }
@@ -228,6 +235,7 @@ interface IThrottledTemplateWriterAdapter {
         int getWrittenCount();
         int getMaxOverflowSize();
         int getOverflowGrowCount();
+        void discardOverflow();
         void allow(final int limit);
 
     }
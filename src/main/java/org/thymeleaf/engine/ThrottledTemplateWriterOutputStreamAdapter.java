@@ -21,7 +21,6 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Arrays;
 
 import org.thymeleaf.exceptions.TemplateOutputException;
 
@@ -43,17 +42,15 @@
     // client. This is a complex setup because this adapter will be fed by a byte array channel acting as a
     // Writer -> OutputStream bridge that will in fact have its own buffer, and due to this we will need at least
     // the same size as the buffer in this channel (in fact, a bit more) if we don't want to be continuously growing
-    // our overflow buffer. So if chunks are x in size, the channel's buffer will be x/4, and we will have an overflow
-    // of (x/8)*3, growing in chunks of x/8.
+    // our overflow buffer. So if chunks are x in size, the channel's buffer will be x/4, and our overflow will be
+    // stored in pooled segments of x/8 (rounded up to the nearest segment size class).
     // See the implementation of this mechanism at ThrottledTemplateWriter for more info.
     private final int overflowIncrementInBytes;
 
     private OutputStream os;
 
-    private byte[] overflow;
-    private int overflowSize;
+    private final ThrottledByteOverflow overflow;
     private int maxOverflowSize;
-    private int overflowGrowCount;
 
     private boolean unlimited;
     private int limit;
@@ -66,10 +63,8 @@
         this.templateName = templateName;
         this.flowController = flowController;
         this.overflowIncrementInBytes = overflowIncrementInBytes;
-        this.overflow = null;
-        this.overflowSize = 0;
+        this.overflow = new ThrottledByteOverflow(ThrottledOverflowBufferPool.getInstance(), overflowIncrementInBytes);
         this.maxOverflowSize = 0;
-        this.overflowGrowCount = 0;
         this.unlimited = false;
         this.limit = 0;
         this.writtenCount = 0;
@@ -83,7 +78,7 @@ void setOutputStream(final OutputStream os) {
 
 
     public boolean isOverflown() {
-        return this.overflowSize > 0;
+        return this.overflow.size() > 0;
     }
 
     public boolean isStopped() {
@@ -102,7 +97,12 @@ public int getMaxOverflowSize() {
 
 
     public int getOverflowGrowCount() {
-        return this.overflowGrowCount;
+        return this.overflow.getGrowCount();
+    }
+
+
+    public void discardOverflow() {
+        this.overflow.discard();
     }
 
 
@@ -120,27 +120,24 @@ public void allow(final int limit) {
 
         this.flowController.stopProcessing = (this.limit == 0);
 
-        if (this.overflowSize == 0 || this.limit == 0) {
+        final int overflowSize = this.overflow.size();
+        if (overflowSize == 0 || this.limit == 0) {
             return;
         }
 
         try {
 
-            if (this.unlimited || this.limit > this.overflowSize) {
-                this.os.write(this.overflow, 0, this.overflowSize);
+            if (this.unlimited || this.limit > overflowSize) {
+                this.overflow.writeTo(this.os, overflowSize);
                 if (!this.unlimited) {
-                    this.limit -= this.overflowSize;
+                    this.limit -= overflowSize;
                 }
-                this.writtenCount += this.overflowSize;
-                this.overflowSize = 0;
+                this.writtenCount += overflowSize;
                 return;
             }
 
-            this.os.write(this.overflow, 0, this.limit);
-            if (this.limit < this.overflowSize) {
-                System.arraycopy(this.overflow, this.limit, this.overflow, 0, this.overflowSize - this.limit);
-            }
-            this.overflowSize -= this.limit;
+            // No need to compact anything: segments already written are directly given back to the pool
+            this.overflow.writeTo(this.os, this.limit);
             this.writtenCount += this.limit;
             this.limit = 0;
             this.flowController.stopProcessing = true;
@@ -224,44 +221,21 @@ public void write(final byte[] bytes) throws IOException {
 
 
     private void overflow(final int c) {
-        ensureOverflowCapacity(1);
-        this.overflow[this.overflowSize] = (byte)c;
-        this.overflowSize++;
-        if (this.overflowSize > this.maxOverflowSize) {
-            this.maxOverflowSize = this.overflowSize;
-        }
+        this.overflow.append((byte)c);
+        updateMaxOverflowSize();
     }
 
 
     private void overflow(final byte[] bytes, final int off, final int len) {
-        ensureOverflowCapacity(len);
-        System.arraycopy(bytes, off, this.overflow, this.overflowSize, len);
-        this.overflowSize += len;
-        if (this.overflowSize > this.maxOverflowSize) {
-            this.maxOverflowSize = this.overflowSize;
-        }
+        this.overflow.append(bytes, off, len);
+        updateMaxOverflowSize();
     }
 
 
-
-
-    private void ensureOverflowCapacity(final int len) {
-        if (this.overflow == null) {
-            int bufferInitialSize = this.overflowIncrementInBytes * 3;
-            while (bufferInitialSize < len) {
-                bufferInitialSize += this.overflowIncrementInBytes;
-            }
-            this.overflow = new byte[bufferInitialSize];
-            return;
-        }
-        final int targetLen = this.overflowSize + len;
-        if (this.overflow.length < targetLen) {
-            int newLen = this.overflow.length;
-            do {
-                newLen += this.overflowIncrementInBytes;
-            } while (newLen < targetLen);
-            this.overflow = Arrays.copyOf(this.overflow, newLen);
-            this.overflowGrowCount++;
+    private void updateMaxOverflowSize() {
+        final int overflowSize = this.overflow.size();
+        if (overflowSize > this.maxOverflowSize) {
+            this.maxOverflowSize = overflowSize;
         }
     }
 
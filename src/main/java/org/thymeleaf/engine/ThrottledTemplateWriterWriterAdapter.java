@@ -21,7 +21,6 @@
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Arrays;
 
 import org.thymeleaf.exceptions.TemplateOutputException;
 
@@ -36,7 +35,7 @@
         extends Writer
         implements ThrottledTemplateWriter.IThrottledTemplateWriterAdapter {
 
-    // Given we will be directly writing chars we will use a 256-char buffer as a sensible, approximate
+    // Given we will be directly writing chars we will use 256-char overflow segments as a sensible, approximate
     // measure of the amount of overflow we will need, given the only influencing factor for us is
     // the size of the structures being written to this writer (elements, texts, etc.)
     private static int OVERFLOW_BUFFER_INCREMENT = 256;
@@ -46,10 +45,8 @@
 
     private Writer writer;
 
-    private char[] overflow;
-    private int overflowSize;
+    private final ThrottledCharOverflow overflow;
     private int maxOverflowSize;
-    private int overflowGrowCount;
 
     private boolean unlimited;
     private int limit;
@@ -60,10 +57,8 @@
         super();
         this.templateName = templateName;
         this.flowController = flowController;
-        this.overflow = null;
-        this.overflowSize = 0;
+        this.overflow = new ThrottledCharOverflow(ThrottledOverflowBufferPool.getInstance(), OVERFLOW_BUFFER_INCREMENT);
         this.maxOverflowSize = 0;
-        this.overflowGrowCount = 0;
         this.unlimited = false;
         this.limit = 0;
         this.writtenCount = 0;
@@ -77,7 +72,7 @@ void setWriter(final Writer writer) {
 
 
     public boolean isOverflown() {
-        return this.overflowSize > 0;
+        return this.overflow.size() > 0;
     }
 
     public boolean isStopped() {
@@ -96,7 +91,12 @@ public int getMaxOverflowSize() {
 
 
     public int getOverflowGrowCount() {
-        return this.overflowGrowCount;
+        return this.overflow.getGrowCount();
+    }
+
+
+    public void discardOverflow() {
+        this.overflow.discard();
     }
 
 
@@ -114,27 +114,24 @@ public void allow(final int limit) {
 
         this.flowController.stopProcessing = (this.limit == 0);
 
-        if (this.overflowSize == 0 || this.limit == 0) {
+        final int overflowSize = this.overflow.size();
+        if (overflowSize == 0 || this.limit == 0) {
             return;
         }
 
         try {
 
-            if (this.unlimited || this.limit > this.overflowSize) {
-                this.writer.write(this.overflow, 0, this.overflowSize);
+            if (this.unlimited || this.limit > overflowSize) {
+                this.overflow.writeTo(this.writer, overflowSize);
                 if (!this.unlimited) {
-                    this.limit -= this.overflowSize;
+                    this.limit -= overflowSize;
                 }
-                this.writtenCount += this.overflowSize;
-                this.overflowSize = 0;
+                this.writtenCount += overflowSize;
                 return;
             }
 
-            this.writer.write(this.overflow, 0, this.limit);
-            if (this.limit < this.overflowSize) {
-                System.arraycopy(this.overflow, this.limit, this.overflow, 0, this.overflowSize - this.limit);
-            }
-            this.overflowSize -= this.limit;
+            // No need to compact anything: segments already written are directly given back to the pool
+            this.overflow.writeTo(this.writer, this.limit);
             this.writtenCount += this.limit;
             this.limit = 0;
             this.flowController.stopProcessing = true;
@@ -266,46 +263,27 @@ public void write(final char[] cbuf, final int off, final int len) throws IOExce
 
 
     private void overflow(final int c) {
-        ensureOverflowCapacity(1);
-        this.overflow[this.overflowSize] = (char)c;
-        this.overflowSize++;
-        if (this.overflowSize > this.maxOverflowSize) {
-            this.maxOverflowSize = this.overflowSize;
-        }
+        this.overflow.append((char)c);
+        updateMaxOverflowSize();
     }
 
 
     private void overflow(final String str, final int off, final int len) {
-        ensureOverflowCapacity(len);
-        str.getChars(off, off + len, this.overflow, this.overflowSize);
-        this.overflowSize += len;
-        if (this.overflowSize > this.maxOverflowSize) {
-            this.maxOverflowSize = this.overflowSize;
-        }
+        this.overflow.append(str, off, len);
+        updateMaxOverflowSize();
     }
 
 
     private void overflow(final char[] cbuf, final int off, final int len) {
-        ensureOverflowCapacity(len);
-        System.arraycopy(cbuf, off, this.overflow, this.overflowSize, len);
-        this.overflowSize += len;
-        if (this.overflowSize > this.maxOverflowSize) {
-            this.maxOverflowSize = this.overflowSize;
-        }
+        this.overflow.append(cbuf, off, len);
+        updateMaxOverflowSize();
     }
 
 
-
-
-    private void ensureOverflowCapacity(final int len) {
-        if (this.overflow == null) {
-            this.overflow = new char[((len / OVERFLOW_BUFFER_INCREMENT) + 1) * OVERFLOW_BUFFER_INCREMENT];
-            return;
-        }
-        final int targetLen = this.overflowSize + len;
-        if (this.overflow.length < targetLen) {
-            this.overflow = Arrays.copyOf(this.overflow, ((targetLen / OVERFLOW_BUFFER_INCREMENT) + 1) * OVERFLOW_BUFFER_INCREMENT);
-            this.overflowGrowCount++;
+    private void updateMaxOverflowSize() {
+        final int overflowSize = this.overflow.size();
+        if (overflowSize > this.maxOverflowSize) {
+            this.maxOverflowSize = overflowSize;
         }
     }
 
@@ -0,0 +1,85 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.flushpolicy;
+
+import java.util.Arrays;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IElementTag;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.ITemplateEvent;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Flush policy that flushes output after closing any of the specified elements, e.g. after <tt>&lt;/head&gt;</tt>
+ *   so that browsers can start fetching stylesheets and scripts while the body of the page is still being
+ *   processed.
+ * </p>
+ * <p>
+ *   Element names are compared case-insensitively in HTML template mode.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class ElementFlushPolicy implements IFlushPolicy {
+
+    private final String[] elementNames;
+
+
+
+    public ElementFlushPolicy(final String... elementNames) {
+        super();
+        Validate.notEmpty(elementNames, "At least one element name must be specified");
+        Validate.containsNoEmpties(Arrays.asList(elementNames), "Element names cannot be empty");
+        this.elementNames = elementNames.clone();
+    }
+
+
+
+    public boolean shouldFlush(
+            final ITemplateContext context, final ITemplateEvent event, final long outputSinceLastFlush) {
+
+        if (!(event instanceof ICloseElementTag || event instanceof IStandaloneElementTag)) {
+            return false;
+        }
+
+        if (event instanceof ICloseElementTag && ((ICloseElementTag) event).isUnmatched()) {
+            return false;
+        }
+
+        final IElementTag tag = (IElementTag) event;
+        final String elementName = tag.getElementCompleteName();
+        final boolean caseSensitive = (tag.getTemplateMode() != TemplateMode.HTML);
+        for (int i = 0; i < this.elementNames.length; i++) {
+            if (caseSensitive? this.elementNames[i].equals(elementName) : this.elementNames[i].equalsIgnoreCase(elementName)) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.flushpolicy;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.model.ITemplateEvent;
+
+/**
+ * <p>
+ *   Interface to be implemented by all <em>flush policies</em>, which determine the points at which output
+ *   should be flushed during the execution of a template, instead of only once at the end.
+ * </p>
+ * <p>
+ *   Flushing early can help improve the time to first byte of pages that take long to render, by allowing browsers
+ *   to start receiving (and e.g. fetching the resources linked from) the first parts of the page while the rest
+ *   is still being processed.
+ * </p>
+ * <p>
+ *   Flush policies are set at {@link org.thymeleaf.TemplateEngine#setFlushPolicy(IFlushPolicy)}. They are not
+ *   applied to throttled executions, nor to template modes for which post-processors have been configured (as
+ *   post-processors might need to see the whole output before writing it).
+ * </p>
+ * <p>
+ *   Implementations of this interface should be <strong>thread-safe</strong>, as the same policy is used by all
+ *   executions of the template engine. Any state specific to an execution should be stored at the context.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public interface IFlushPolicy {
+
+    /**
+     * <p>
+     *   Determines whether output should be flushed right after writing the specified event.
+     * </p>
+     *
+     * @param context the template context.
+     * @param event the event that has just been written to output.
+     * @param outputSinceLastFlush the amount of chars written since output was last flushed (or since the
+     *                             execution started).
+     * @return <tt>true</tt> if output should be flushed, <tt>false</tt> if not.
+     */
+    public boolean shouldFlush(
+            final ITemplateContext context, final ITemplateEvent event, final long outputSinceLastFlush);
+
+}
@@ -0,0 +1,96 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.flushpolicy;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.ITemplateEvent;
+
+/**
+ * <p>
+ *   Flush policy that flushes output right after writing the open tag of the elements marked with the
+ *   <tt>th:flush</tt> attribute (the value of the attribute is ignored). Everything before the body of the
+ *   marked element will be therefore sent to the client before the body starts being processed.
+ * </p>
+ * <p>
+ *   Marking is performed by the {@link org.thymeleaf.standard.processor.StandardFlushTagProcessor} processor
+ *   from the Standard Dialect, which sets a local variable called {@link #FLUSH_MARKER_VARIABLE_NAME} for
+ *   the marked element.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class MarkedElementFlushPolicy implements IFlushPolicy {
+
+    public static final String FLUSH_MARKER_VARIABLE_NAME = "%%FLUSH_MARKER%%";
+
+
+
+    public MarkedElementFlushPolicy() {
+        super();
+    }
+
+
+
+    public boolean shouldFlush(
+            final ITemplateContext context, final ITemplateEvent event, final long outputSinceLastFlush) {
+
+        if (!(event instanceof IOpenElementTag || event instanceof IStandaloneElementTag)) {
+            return false;
+        }
+
+        // The marker variable will also be visible from the elements in the body of the marked one, so each
+        // marker is only allowed to provoke one flush.
+        final Object marker = context.getVariable(FLUSH_MARKER_VARIABLE_NAME);
+        return marker instanceof FlushMarker && ((FlushMarker) marker).markFlushed();
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Value of the {@link #FLUSH_MARKER_VARIABLE_NAME} local variable set for each marked element.
+     * </p>
+     */
+    public static final class FlushMarker {
+
+        private boolean flushed = false;
+
+        public FlushMarker() {
+            super();
+        }
+
+        boolean markFlushed() {
+            if (this.flushed) {
+                return false;
+            }
+            this.flushed = true;
+            return true;
+        }
+
+    }
+
+}
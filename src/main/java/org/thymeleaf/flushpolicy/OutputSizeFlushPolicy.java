@@ -0,0 +1,56 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.flushpolicy;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.model.ITemplateEvent;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Flush policy that flushes output every time at least the specified amount of chars has been written
+ *   since the last flush.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class OutputSizeFlushPolicy implements IFlushPolicy {
+
+    private final long outputSize;
+
+
+
+    public OutputSizeFlushPolicy(final long outputSize) {
+        super();
+        Validate.isTrue(outputSize > 0, "Output size must be greater than zero");
+        this.outputSize = outputSize;
+    }
+
+
+
+    public boolean shouldFlush(
+            final ITemplateContext context, final ITemplateEvent event, final long outputSinceLastFlush) {
+        return outputSinceLastFlush >= this.outputSize;
+    }
+
+}
@@ -51,6 +51,7 @@
 import org.thymeleaf.standard.processor.StandardDOMEventAttributeTagProcessor;
 import org.thymeleaf.standard.processor.StandardDefaultAttributesTagProcessor;
 import org.thymeleaf.standard.processor.StandardEachTagProcessor;
+import org.thymeleaf.standard.processor.StandardFlushTagProcessor;
 import org.thymeleaf.standard.processor.StandardFragmentTagProcessor;
 import org.thymeleaf.standard.processor.StandardHrefTagProcessor;
 import org.thymeleaf.standard.processor.StandardIfTagProcessor;
@@ -67,6 +68,7 @@
 import org.thymeleaf.standard.processor.StandardMethodTagProcessor;
 import org.thymeleaf.standard.processor.StandardNonRemovableAttributeTagProcessor;
 import org.thymeleaf.standard.processor.StandardObjectTagProcessor;
+import org.thymeleaf.standard.processor.StandardParallelTagProcessor;
 import org.thymeleaf.standard.processor.StandardRefAttributeTagProcessor;
 import org.thymeleaf.standard.processor.StandardRemovableAttributeTagProcessor;
 import org.thymeleaf.standard.processor.StandardRemoveTagProcessor;
@@ -472,6 +474,7 @@ public static Set<IProcessor> createStandardProcessorsSet(final String dialectPr
             processors.add(new StandardRemovableAttributeTagProcessor(dialectPrefix, attrName));
         }
         processors.add(new StandardEachTagProcessor(TemplateMode.HTML, dialectPrefix));
+        processors.add(new StandardFlushTagProcessor(TemplateMode.HTML, dialectPrefix));
         processors.add(new StandardFragmentTagProcessor(TemplateMode.HTML, dialectPrefix));
         processors.add(new StandardHrefTagProcessor(dialectPrefix));
         processors.add(new StandardIfTagProcessor(TemplateMode.HTML, dialectPrefix));
@@ -484,6 +487,7 @@ public static Set<IProcessor> createStandardProcessorsSet(final String dialectPr
             processors.add(new StandardNonRemovableAttributeTagProcessor(dialectPrefix, attrName));
         }
         processors.add(new StandardObjectTagProcessor(TemplateMode.HTML, dialectPrefix));
+        processors.add(new StandardParallelTagProcessor(TemplateMode.HTML, dialectPrefix));
         for (final String attrName : StandardRemovableAttributeTagProcessor.ATTR_NAMES) {
             processors.add(new StandardRemovableAttributeTagProcessor(dialectPrefix, attrName));
         }
@@ -568,12 +572,14 @@ public static Set<IProcessor> createStandardProcessorsSet(final String dialectPr
         processors.add(new StandardAttrprependTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardCaseTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardEachTagProcessor(TemplateMode.XML, dialectPrefix));
+        processors.add(new StandardFlushTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardFragmentTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardIfTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardIncludeTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardInlineXMLTagProcessor(dialectPrefix));
         processors.add(new StandardInsertTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardObjectTagProcessor(TemplateMode.XML, dialectPrefix));
+        processors.add(new StandardParallelTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardRemoveTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardReplaceTagProcessor(TemplateMode.XML, dialectPrefix));
         processors.add(new StandardSubstituteByTagProcessor(TemplateMode.XML, dialectPrefix));
@@ -21,12 +21,16 @@
 
 import java.io.Writer;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.EngineContextForkUtils;
 import org.thymeleaf.context.IEngineContext;
 import org.thymeleaf.context.ITemplateContext;
 import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.engine.ParallelRenderingUtils;
 import org.thymeleaf.engine.TemplateData;
+import org.thymeleaf.engine.TemplateManager;
 import org.thymeleaf.engine.TemplateModel;
 import org.thymeleaf.exceptions.TemplateInputException;
 import org.thymeleaf.exceptions.TemplateProcessingException;
@@ -47,6 +51,7 @@
 import org.thymeleaf.standard.expression.StandardExpressionExecutionContext;
 import org.thymeleaf.standard.expression.StandardExpressions;
 import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.DeferredCharSequence;
 import org.thymeleaf.util.EscapedAttributeUtils;
 import org.thymeleaf.util.FastStringWriter;
 import org.thymeleaf.util.StringUtils;
@@ -105,76 +110,96 @@ protected void doProcess(
 
         final IEngineConfiguration configuration = context.getConfiguration();
 
+        final TemplateManager templateManager = configuration.getTemplateManager();
+
         /*
-         * PARSE AND PROCESS THE FRAGMENT
+         * CHECK WHETHER THE FRAGMENT HAS ALREADY BEEN LINKED to the (cached) template being executed, which can
+         * only happen for static fragment specifications without parameters. In such case, neither the fragment
+         * expression nor the fragment signature need to be processed again.
          */
-        final Object fragmentObj = computeFragment(context, attributeValue);
-        if (fragmentObj == null) {
+        final TemplateModel fragmentModel;
+        Map<String, Object> fragmentParameters;
 
-            // If the Fragment result is null, this is an error. Note a NULL result is not the same as the
-            // result being the empty fragment (~{})
+        final TemplateModel linkedFragmentModel = templateManager.getLinkedFragment(context.getTemplateData(), attributeValue);
+        if (linkedFragmentModel != null) {
 
-            throw new TemplateInputException(
-                    "Error resolving fragment: \"" + attributeValue + "\": " +
-                    "template or fragment could not be resolved");
+            fragmentModel = linkedFragmentModel;
+            fragmentParameters = null;
 
-        } else if (fragmentObj == NoOpToken.VALUE) {
+        } else {
 
-            // If the Fragment result is NO-OP, we will just do nothing (apart from deleting the th:* attribute)
-            return;
+            /*
+             * PARSE AND PROCESS THE FRAGMENT
+             */
+            final Object fragmentObj = computeFragment(context, attributeValue);
+            if (fragmentObj == null) {
 
-        } else if (fragmentObj == Fragment.EMPTY_FRAGMENT) {
+                // If the Fragment result is null, this is an error. Note a NULL result is not the same as the
+                // result being the empty fragment (~{})
+
+                throw new TemplateInputException(
+                        "Error resolving fragment: \"" + attributeValue + "\": " +
+                        "template or fragment could not be resolved");
+
+            } else if (fragmentObj == NoOpToken.VALUE) {
+
+                // If the Fragment result is NO-OP, we will just do nothing (apart from deleting the th:* attribute)
+                return;
+
+            } else if (fragmentObj == Fragment.EMPTY_FRAGMENT) {
+
+                // The result is the empty fragment, which means we simply have to either remove the body of this
+                // tag (th:insert) or remove it completely, tag included (th:replace)
+                if (this.replaceHost) {
+                    structureHandler.removeElement();
+                } else {
+                    structureHandler.removeBody();
+                }
+                return;
 
-            // The result is the empty fragment, which means we simply have to either remove the body of this
-            // tag (th:insert) or remove it completely, tag included (th:replace)
-            if (this.replaceHost) {
-                structureHandler.removeElement();
-            } else {
-                structureHandler.removeBody();
             }
-            return;
 
-        }
 
+            final Fragment fragment = (Fragment) fragmentObj;
 
-        final Fragment fragment = (Fragment) fragmentObj;
 
+            fragmentModel = fragment.getTemplateModel();
+            fragmentParameters = fragment.getParameters();
 
-        final TemplateModel fragmentModel = fragment.getTemplateModel();
-        Map<String, Object> fragmentParameters = fragment.getParameters();
+            /*
+             * ONCE WE HAVE THE FRAGMENT MODEL (its events, in fact), CHECK THE FRAGMENT SIGNATURE
+             * Fragment signature is important because it might affect the way we apply the parameters to the fragment.
+             *
+             * Note this works whatever the template mode of the inserted fragment, given we are looking for an
+             * element containing a "th:fragment/data-th-fragment" in a generic, non-template-dependent way.
+             */
 
-        /*
-         * ONCE WE HAVE THE FRAGMENT MODEL (its events, in fact), CHECK THE FRAGMENT SIGNATURE
-         * Fragment signature is important because it might affect the way we apply the parameters to the fragment.
-         *
-         * Note this works whatever the template mode of the inserted fragment, given we are looking for an
-         * element containing a "th:fragment/data-th-fragment" in a generic, non-template-dependent way.
-         */
+            // We will check types first instead of events in order to (many times) avoid creating an immutably-wrapped
+            // event object when calling "model.get(pos)"
 
-        // We will check types first instead of events in order to (many times) avoid creating an immutably-wrapped
-        // event object when calling "model.get(pos)"
+            boolean signatureApplied = false;
+            final ITemplateEvent firstEvent = (fragmentModel.size() > 2 ? fragmentModel.get(1) : null);
+            if (firstEvent != null && IProcessableElementTag.class.isAssignableFrom(firstEvent.getClass())) {
 
-        boolean signatureApplied = false;
-        final ITemplateEvent firstEvent = (fragmentModel.size() > 2 ? fragmentModel.get(1) : null);
-        if (firstEvent != null && IProcessableElementTag.class.isAssignableFrom(firstEvent.getClass())) {
+                final String dialectPrefix = attributeName.getPrefix();
+                final IProcessableElementTag fragmentHolderEvent = (IProcessableElementTag) firstEvent;
 
-            final String dialectPrefix = attributeName.getPrefix();
-            final IProcessableElementTag fragmentHolderEvent = (IProcessableElementTag) firstEvent;
+                if (fragmentHolderEvent.hasAttribute(dialectPrefix, FRAGMENT_ATTR_NAME)) {
+                    // The selected fragment actually has a "th:fragment" attribute, so we should process its signature
 
-            if (fragmentHolderEvent.hasAttribute(dialectPrefix, FRAGMENT_ATTR_NAME)) {
-                // The selected fragment actually has a "th:fragment" attribute, so we should process its signature
+                    final String fragmentSignatureSpec =
+                            EscapedAttributeUtils.unescapeAttribute(fragmentModel.getTemplateMode(), fragmentHolderEvent.getAttributeValue(dialectPrefix, FRAGMENT_ATTR_NAME));
+                    if (!StringUtils.isEmptyOrWhitespace(fragmentSignatureSpec)) {
 
-                final String fragmentSignatureSpec =
-                        EscapedAttributeUtils.unescapeAttribute(fragmentModel.getTemplateMode(), fragmentHolderEvent.getAttributeValue(dialectPrefix, FRAGMENT_ATTR_NAME));
-                if (!StringUtils.isEmptyOrWhitespace(fragmentSignatureSpec)) {
+                        final FragmentSignature fragmentSignature =
+                                FragmentSignatureUtils.parseFragmentSignature(configuration, fragmentSignatureSpec);
+                        if (fragmentSignature != null) {
 
-                    final FragmentSignature fragmentSignature =
-                            FragmentSignatureUtils.parseFragmentSignature(configuration, fragmentSignatureSpec);
-                    if (fragmentSignature != null) {
+                            // Reshape the fragment parameters into the ones that we will actually use, according to the signature
+                            fragmentParameters = FragmentSignatureUtils.processParameters(fragmentSignature, fragmentParameters, fragment.hasSyntheticParameters());
+                            signatureApplied = true;
 
-                        // Reshape the fragment parameters into the ones that we will actually use, according to the signature
-                        fragmentParameters = FragmentSignatureUtils.processParameters(fragmentSignature, fragmentParameters, fragment.hasSyntheticParameters());
-                        signatureApplied = true;
+                        }
 
                     }
 
@@ -182,16 +207,22 @@ protected void doProcess(
 
             }
 
-        }
+            // If no signature applied, we must check if the parameters map contains synthetic parameters. If so,
+            // we should raise an exception because not doing so could provoke confusion in users who would see parameters
+            // not being applied, maybe not realising there was no signature assignation involved.
+            if (!signatureApplied && fragment.hasSyntheticParameters()) {
+                throw new TemplateProcessingException(
+                        "Fragment '" + attributeValue + "' specifies synthetic (unnamed) parameters, but the resolved fragment " +
+                        "does not match a fragment signature (th:fragment,data-th-fragment) which could apply names to " +
+                        "the specified parameters.");
+            }
+
+            // Static fragment specifications resolve to the same fragment every time they are executed in the same
+            // template, so the resolved fragment can be linked to it (if enabled and it is cacheable)
+            if ((fragmentParameters == null || fragmentParameters.isEmpty()) && isStaticFragmentSpec(attributeValue)) {
+                templateManager.linkFragment(context.getTemplateData(), attributeValue, fragmentModel);
+            }
 
-        // If no signature applied, we must check if the parameters map contains synthetic parameters. If so,
-        // we should raise an exception because not doing so could provoke confusion in users who would see parameters
-        // not being applied, maybe not realising there was no signature assignation involved.
-        if (!signatureApplied && fragment.hasSyntheticParameters()) {
-            throw new TemplateProcessingException(
-                    "Fragment '" + attributeValue + "' specifies synthetic (unnamed) parameters, but the resolved fragment " +
-                    "does not match a fragment signature (th:fragment,data-th-fragment) which could apply names to " +
-                    "the specified parameters.");
         }
 
 
@@ -254,6 +285,39 @@ protected void doProcess(
 
         }
 
+        /*
+         * CHECK WHETHER THE FRAGMENT SHOULD BE RENDERED IN PARALLEL. If the host element is marked with th:parallel
+         * and the engine has been configured an executor for this, the fragment will be processed aside on a fork
+         * of the current context, and its (deferred) result inserted as already-processed text. Output writers will
+         * take care of writing it in the right order once it is available.
+         */
+        if (!this.insertOnlyContents && tag.hasAttribute(attributeName.getPrefix(), StandardParallelTagProcessor.ATTR_NAME)) {
+
+            final Executor executor = ParallelRenderingUtils.getParallelRenderingExecutor(context);
+            if (executor != null) {
+
+                // NOTE this IEngineContext interface is internal and should not be used in users' code
+                final IEngineContext forkedContext =
+                        EngineContextForkUtils.forkEngineContext((IEngineContext) context, fragmentModel.getTemplateData());
+                if (fragmentParameters != null && fragmentParameters.size() > 0) {
+                    forkedContext.setVariables(fragmentParameters);
+                }
+
+                final DeferredCharSequence deferredResult =
+                        ParallelRenderingUtils.processInParallel(executor, fragmentModel, forkedContext);
+
+                if (this.replaceHost) {
+                    structureHandler.replaceWith(deferredResult, false);
+                } else {
+                    structureHandler.setBody(deferredResult, false);
+                }
+
+                return;
+
+            }
+
+        }
+
         /*
          * APPLY THE FRAGMENT'S TEMPLATE RESOLUTION so that all code inside the fragment is executed with its own
          * template resolution info (working as if it were a local variable)
@@ -337,6 +401,46 @@ protected void doProcess(
 
 
 
+    /*
+     * Static fragment specifications are those made only of a (non-empty, non-"this") template name and, optionally,
+     * simple fragment selectors, e.g. "footer", "footer :: copy" or "~{footer :: copy}". Their resolution does not
+     * depend on the context in which they are executed.
+     */
+    private static boolean isStaticFragmentSpec(final String input) {
+
+        String spec = input.trim();
+        if (spec.startsWith("~{") && spec.endsWith("}")) {
+            spec = spec.substring(2, spec.length() - 1);
+        }
+
+        final int len = spec.length();
+        for (int i = 0; i < len; i++) {
+            final char c = spec.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                    c == '/' || c == '.' || c == '-' || c == '_' || c == ':' || c == ' ')) {
+                return false;
+            }
+        }
+
+        final int selectorSeparator = spec.indexOf("::");
+        final String templateName = (selectorSeparator < 0? spec : spec.substring(0, selectorSeparator)).trim();
+        if (templateName.length() == 0 || templateName.equals("this") || templateName.indexOf(':') >= 0) {
+            return false;
+        }
+        if (selectorSeparator >= 0) {
+            final String selector = spec.substring(selectorSeparator + 2).trim();
+            if (selector.length() == 0 || selector.indexOf(':') >= 0 || selector.indexOf(' ') >= 0) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+
+
+
     /*
      * This can return a Fragment, NoOpToken (if nothing should be done) or null
      */
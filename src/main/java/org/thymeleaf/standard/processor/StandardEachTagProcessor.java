@@ -21,6 +21,7 @@
 
 import org.thymeleaf.context.ITemplateContext;
 import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.engine.ElementTagStructureHandler;
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.model.IProcessableElementTag;
 import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
@@ -84,7 +85,13 @@ protected void doProcess(
                     "Status variable name expression evaluated as null or empty: \"" + statusVarExpr + "\"");
         }
 
-        structureHandler.iterateElement(iterVarName, statusVarName, iteratedValue);
+        // Iterations can be processed in parallel if the element is marked with th:parallel (and the engine allows it)
+        if (structureHandler instanceof ElementTagStructureHandler &&
+                tag.hasAttribute(attributeName.getPrefix(), StandardParallelTagProcessor.ATTR_NAME)) {
+            ((ElementTagStructureHandler) structureHandler).iterateElementInParallel(iterVarName, statusVarName, iteratedValue);
+        } else {
+            structureHandler.iterateElement(iterVarName, statusVarName, iteratedValue);
+        }
 
     }
 
@@ -0,0 +1,72 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.processor;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.flushpolicy.MarkedElementFlushPolicy;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractElementTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * <p>
+ *   Marker processor for <tt>th:flush</tt>, which signals that output should be flushed right after writing
+ *   the open tag of the element (if the template engine has been configured a
+ *   {@link MarkedElementFlushPolicy}). The value of the attribute is ignored.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class StandardFlushTagProcessor extends AbstractElementTagProcessor {
+
+    public static final int PRECEDENCE = 1575;
+    public static final String ATTR_NAME = "flush";
+
+
+
+
+
+    public StandardFlushTagProcessor(final TemplateMode templateMode, final String dialectPrefix) {
+        super(templateMode, dialectPrefix, null, false, ATTR_NAME, true, PRECEDENCE);
+    }
+
+
+    @Override
+    protected void doProcess(
+            final ITemplateContext context,
+            final IProcessableElementTag tag,
+            final IElementTagStructureHandler structureHandler) {
+
+        // A new marker is created for each element, as the flush policy will only flush once per marker
+        structureHandler.setLocalVariable(
+                MarkedElementFlushPolicy.FLUSH_MARKER_VARIABLE_NAME, new MarkedElementFlushPolicy.FlushMarker());
+
+        final AttributeName attributeName = getMatchingAttributeName().getMatchingAttributeName();
+        structureHandler.removeAttribute(attributeName);
+
+    }
+
+
+}
@@ -0,0 +1,75 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.processor;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractElementTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * <p>
+ *   Marker processor for <tt>th:parallel</tt>, which signals that the fragment inserted by a <tt>th:insert</tt>
+ *   or <tt>th:replace</tt> in the same element, or the iterations of a <tt>th:each</tt> in the same element,
+ *   can be rendered in parallel (if a parallel rendering executor has been configured at the template engine).
+ *   The value of the attribute is ignored.
+ * </p>
+ * <p>
+ *   Iterations will only be processed in parallel if every processor applying to them is a Standard Dialect
+ *   processor known to be parallel-safe (fragment insertions, for example, are not), so processors from other
+ *   dialects will make them be processed sequentially. Note expressions executed in parallel should not
+ *   have side effects on shared objects (e.g. beans called from them).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class StandardParallelTagProcessor extends AbstractElementTagProcessor {
+
+    public static final int PRECEDENCE = 1525;
+    public static final String ATTR_NAME = "parallel";
+
+
+
+
+
+    public StandardParallelTagProcessor(final TemplateMode templateMode, final String dialectPrefix) {
+        super(templateMode, dialectPrefix, null, false, ATTR_NAME, true, PRECEDENCE);
+    }
+
+
+    @Override
+    protected void doProcess(
+            final ITemplateContext context,
+            final IProcessableElementTag tag,
+            final IElementTagStructureHandler structureHandler) {
+
+        // Nothing to do, this processor is just a marker. Simply remove the attribute
+        final AttributeName attributeName = getMatchingAttributeName().getMatchingAttributeName();
+        structureHandler.removeAttribute(attributeName);
+
+    }
+
+
+}
@@ -19,9 +19,11 @@
  */
 package org.thymeleaf.templateparser.markup;
 
+import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.CharBuffer;
 import java.util.Set;
 
 import org.attoparser.IMarkupHandler;
@@ -39,11 +41,14 @@
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateparser.ITemplateParser;
 import org.thymeleaf.templateparser.markup.decoupled.DecoupledTemplateLogic;
+import org.thymeleaf.templateparser.markup.decoupled.DecoupledTemplateLogicCache;
 import org.thymeleaf.templateparser.markup.decoupled.DecoupledTemplateLogicMarkupHandler;
 import org.thymeleaf.templateparser.markup.decoupled.DecoupledTemplateLogicUtils;
 import org.thymeleaf.templateparser.reader.ParserLevelCommentMarkupReader;
 import org.thymeleaf.templateparser.reader.PrototypeOnlyCommentMarkupReader;
+import org.thymeleaf.templateresource.IContentBufferTemplateResource;
 import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.util.TextUtils;
 import org.thymeleaf.util.Validate;
 
 /**
@@ -55,9 +60,15 @@
 public abstract class AbstractMarkupTemplateParser implements ITemplateParser {
 
 
+    // Common prefix of both parser-level (<!--/* ... */-->) and prototype-only (<!--/*/ ... /*/-->) comment blocks
+    private static final char[] COMMENT_BLOCK_PREFIX = "<!--/*".toCharArray();
+
     private final IMarkupParser parser;
     private final boolean html;
 
+    // Decoupled logic will be cached per parser (i.e. per engine), re-validated by its resource version
+    private final DecoupledTemplateLogicCache decoupledTemplateLogicCache = new DecoupledTemplateLogicCache();
+
 
 
     protected AbstractMarkupTemplateParser(final ParseConfiguration parseConfiguration, final int bufferPoolSize, final int bufferSize) {
@@ -70,6 +81,20 @@ protected AbstractMarkupTemplateParser(final ParseConfiguration parseConfigurati
 
 
 
+    /**
+     * <p>
+     *   Clears the decoupled template logic cached by this parser.
+     * </p>
+     *
+     * @since 3.0.8
+     */
+    public void clearDecoupledTemplateLogicCache() {
+        this.decoupledTemplateLogicCache.clear();
+    }
+
+
+
+
     /*
      * -------------------
      * PARSE METHODS
@@ -152,7 +177,8 @@ private void parse(
             final DecoupledTemplateLogic decoupledTemplateLogic =
                     (useDecoupledLogic && resource != null ?
                             DecoupledTemplateLogicUtils.computeDecoupledTemplateLogic(
-                                    configuration, ownerTemplate, template, templateSelectors, resource, templateMode, this.parser) :
+                                    configuration, ownerTemplate, template, templateSelectors, resource, templateMode,
+                                    this.parser, this.decoupledTemplateLogicCache) :
                             null);
 
 
@@ -214,13 +240,39 @@ private void parse(
                 // NOTE it is important that THIS IS THE FIRST NODE- OR BLOCK-SELECTION HANDLER TO BE APPLIED because
                 // structures in the DecoupledTemplateLogicMarkupHandler will consider 0 (zero) as their injection
                 // level of interest
-                final Set<String> nodeSelectors = decoupledTemplateLogic.getAllInjectedAttributeSelectors();
-                handler = new NodeSelectorMarkupHandler(handler, handler, nodeSelectors.toArray(new String[nodeSelectors.size()]), referenceResolver);
+                final String[] nodeSelectors = decoupledTemplateLogic.getAllInjectedAttributeSelectorsArray();
+                handler = new NodeSelectorMarkupHandler(handler, handler, nodeSelectors, referenceResolver);
             }
 
 
-            // Obtain the resource reader
-            Reader templateReader = (resource != null? resource.reader() : new StringReader(template));
+            // If the resource is able to give us its whole contents in one bulk operation, we will try to parse
+            // directly from them, avoiding the reader chain and the refills of the parser's own buffers.
+            final CharBuffer contentBuffer =
+                    (resource instanceof IContentBufferTemplateResource ?
+                            ((IContentBufferTemplateResource) resource).contentBuffer() : null);
+
+            Reader templateReader;
+            if (contentBuffer != null && contentBuffer.hasArray()) {
+
+                final char[] content = contentBuffer.array();
+                final int contentOffset = contentBuffer.arrayOffset() + contentBuffer.position();
+                final int contentLen = contentBuffer.remaining();
+
+                // Parser-level and prototype-only comment blocks both start with the same prefix, so if it does
+                // not appear in the template the comment block readers would have nothing to do at all
+                if (!TextUtils.contains(true, content, contentOffset, contentLen, COMMENT_BLOCK_PREFIX, 0, COMMENT_BLOCK_PREFIX.length)) {
+                    this.parser.parse(content, contentOffset, contentLen, handler);
+                    return;
+                }
+
+                templateReader = new CharArrayReader(content, contentOffset, contentLen);
+
+            } else {
+
+                // Obtain the resource reader
+                templateReader = (resource != null? resource.reader() : new StringReader(template));
+
+            }
 
 
             // Add the required reader wrappers in order to process parser-level and prototype-only comment blocks
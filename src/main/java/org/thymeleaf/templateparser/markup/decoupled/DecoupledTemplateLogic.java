@@ -46,7 +46,9 @@
  *   itself, so that overhead is minimal (and zero once the template is cached).
  * </p>
  * <p>
- *   Instances of this class are <strong>not thread-safe</strong>.
+ *   Instances of this class are <strong>not thread-safe</strong>. Note however that, once built, instances
+ *   might be cached and shared among several parsing operations (see {@link DecoupledTemplateLogicCache}),
+ *   in which case they will only be read.
  * </p>
  *
  * @author Daniel Fern&aacute;ndez
@@ -59,6 +61,10 @@ public final class DecoupledTemplateLogic {
     private final Map<String, List<DecoupledInjectedAttribute>> injectedAttributes =
             new HashMap<String, List<DecoupledInjectedAttribute>>(20);
 
+    // Computed only once (until new attributes are added), so that instances shared by several parsing
+    // operations do not need to recompute the selectors to be given to node selectors each time
+    private volatile String[] injectedAttributeSelectors = null;
+
 
     public DecoupledTemplateLogic() {
         super();
@@ -75,6 +81,25 @@ public Set<String> getAllInjectedAttributeSelectors() {
         return this.injectedAttributes.keySet();
     }
 
+
+    /**
+     * <p>
+     *   Returns the selectors for all injected attributes, as an array that can be directly used for
+     *   configuring node selectors. This array is computed only once, and should not be modified.
+     * </p>
+     *
+     * @return the array of selectors.
+     * @since 3.0.8
+     */
+    public String[] getAllInjectedAttributeSelectorsArray() {
+        String[] selectors = this.injectedAttributeSelectors;
+        if (selectors == null) {
+            selectors = this.injectedAttributes.keySet().toArray(new String[this.injectedAttributes.size()]);
+            this.injectedAttributeSelectors = selectors;
+        }
+        return selectors;
+    }
+
     public List<DecoupledInjectedAttribute> getInjectedAttributesForSelector(final String selector) {
         return this.injectedAttributes.get(selector);
     }
@@ -93,6 +118,8 @@ public void addInjectedAttribute(final String selector, final DecoupledInjectedA
 
         injectedAttributesForSelector.add(injectedAttribute);
 
+        this.injectedAttributeSelectors = null;
+
     }
 
 
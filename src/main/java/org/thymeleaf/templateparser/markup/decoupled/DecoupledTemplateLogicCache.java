@@ -0,0 +1,121 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateparser.markup.decoupled;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.IVersionedTemplateResource;
+
+/**
+ * <p>
+ *   Cache for {@link DecoupledTemplateLogic} objects, keyed by the resource they were built from
+ *   (normally a <tt>.th.xml</tt> file).
+ * </p>
+ * <p>
+ *   Entries are re-validated by means of the version of their resources
+ *   (see {@link IVersionedTemplateResource}) so that decoupled logic is only parsed again when its resource
+ *   changes, independently of whether the template it is applied to is cacheable or not. Resources whose
+ *   version cannot be determined are never cached. The non-existence of a decoupled logic resource is cached
+ *   too, as it is by far the most common case.
+ * </p>
+ * <p>
+ *   Instances of this class are <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.8
+ *
+ */
+public final class DecoupledTemplateLogicCache {
+
+
+    private final ConcurrentHashMap<String,Entry> entries = new ConcurrentHashMap<String,Entry>(20, 0.9f, 2);
+
+
+
+    public DecoupledTemplateLogicCache() {
+        super();
+    }
+
+
+
+
+    static long computeVersion(final ITemplateResource decoupledResource) {
+        if (decoupledResource instanceof IVersionedTemplateResource) {
+            return ((IVersionedTemplateResource) decoupledResource).version();
+        }
+        return IVersionedTemplateResource.UNKNOWN_VERSION;
+    }
+
+
+    /*
+     * Returns the cached entry for the resource, only if it is still valid for the specified version
+     */
+    Entry get(final ITemplateResource decoupledResource, final long version) {
+        if (version == IVersionedTemplateResource.UNKNOWN_VERSION) {
+            return null;
+        }
+        final Entry entry = this.entries.get(computeKey(decoupledResource));
+        return (entry != null && entry.version == version ? entry : null);
+    }
+
+
+    /*
+     * Note version should have been computed BEFORE reading the resource, so that changes made during parsing
+     * will at most produce an unnecessary re-parse the next time, but never a stale entry.
+     */
+    void put(final ITemplateResource decoupledResource, final long version, final DecoupledTemplateLogic logic) {
+        if (version == IVersionedTemplateResource.UNKNOWN_VERSION) {
+            return;
+        }
+        this.entries.put(computeKey(decoupledResource), new Entry(version, logic));
+    }
+
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+
+    private static String computeKey(final ITemplateResource decoupledResource) {
+        // Resource descriptions might not be unique among different kinds of resources (e.g. class loader paths)
+        return decoupledResource.getClass().getName() + ':' + decoupledResource.getDescription();
+    }
+
+
+
+
+    static final class Entry {
+
+        final long version;
+        // Will be null if the decoupled logic resource did not exist
+        final DecoupledTemplateLogic logic;
+
+        Entry(final long version, final DecoupledTemplateLogic logic) {
+            super();
+            this.version = version;
+            this.logic = logic;
+        }
+
+    }
+
+
+}
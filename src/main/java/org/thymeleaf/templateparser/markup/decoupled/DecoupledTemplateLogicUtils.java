@@ -30,6 +30,7 @@
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.IVersionedTemplateResource;
 import org.thymeleaf.util.LoggingUtils;
 import org.thymeleaf.util.Validate;
 
@@ -59,6 +60,38 @@ public static DecoupledTemplateLogic computeDecoupledTemplateLogic(
             final String ownerTemplate, final String template, final Set<String> templateSelectors,
             final ITemplateResource resource, final TemplateMode templateMode,
             final IMarkupParser parser) throws IOException, ParseException {
+        return computeDecoupledTemplateLogic(
+                configuration, ownerTemplate, template, templateSelectors, resource, templateMode, parser, null);
+    }
+
+
+    /**
+     * <p>
+     *   Computes the decoupled template logic for a template, reusing the logic already built and cached at the
+     *   specified {@link DecoupledTemplateLogicCache} if its resource has not changed since then.
+     * </p>
+     * <p>
+     *   Note the returned object might be shared with other parsing operations, so it should only be read.
+     * </p>
+     *
+     * @param configuration the engine configuration.
+     * @param ownerTemplate the owner template, if any.
+     * @param template the template.
+     * @param templateSelectors the template selectors, if any.
+     * @param resource the template resource.
+     * @param templateMode the template mode.
+     * @param parser the parser to be used for parsing decoupled logic resources.
+     * @param cache the decoupled logic cache, can be null (no caching will be performed).
+     * @return the decoupled template logic, or null if none exists.
+     * @throws IOException if decoupled logic cannot be read.
+     * @throws ParseException if decoupled logic cannot be parsed.
+     * @since 3.0.8
+     */
+    public static DecoupledTemplateLogic computeDecoupledTemplateLogic(
+            final IEngineConfiguration configuration,
+            final String ownerTemplate, final String template, final Set<String> templateSelectors,
+            final ITemplateResource resource, final TemplateMode templateMode,
+            final IMarkupParser parser, final DecoupledTemplateLogicCache cache) throws IOException, ParseException {
 
         Validate.notNull(configuration, "Engine Configuration cannot be null");
         Validate.notNull(template, "Template cannot be null");
@@ -71,8 +104,30 @@ public static DecoupledTemplateLogic computeDecoupledTemplateLogic(
                 decoupledTemplateLogicResolver.resolveDecoupledTemplateLogic(
                         configuration, ownerTemplate, template, templateSelectors, resource, templateMode);
 
+        // Version must be computed before accessing the resource (see DecoupledTemplateLogicCache)
+        final long version =
+                (cache != null ?
+                        DecoupledTemplateLogicCache.computeVersion(decoupledResource) : IVersionedTemplateResource.UNKNOWN_VERSION);
+
+        final DecoupledTemplateLogicCache.Entry cached = (cache != null ? cache.get(decoupledResource, version) : null);
+        if (cached != null) {
+
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "[THYMELEAF][{}] Decoupled logic for template \"{}\" ({}) has been retrieved from cache",
+                        new Object[] {TemplateEngine.threadIndex(), LoggingUtils.loggifyTemplateName(template), decoupledResource.getDescription()});
+            }
+
+            return cached.logic;
+
+        }
+
         if (!decoupledResource.exists()) {
 
+            if (cache != null) {
+                cache.put(decoupledResource, version, null);
+            }
+
             if (logger.isTraceEnabled()) {
                 logger.trace(
                         "[THYMELEAF][{}] Decoupled logic for template \"{}\" could not be resolved as relative resource \"{}\". " +
@@ -101,7 +156,13 @@ public static DecoupledTemplateLogic computeDecoupledTemplateLogic(
 
         parser.parse(decoupledResource.reader(), decoupledMarkupHandler);
 
-        return decoupledMarkupHandler.getDecoupledTemplateLogic();
+        final DecoupledTemplateLogic decoupledTemplateLogic = decoupledMarkupHandler.getDecoupledTemplateLogic();
+
+        if (cache != null) {
+            cache.put(decoupledResource, version, decoupledTemplateLogic);
+        }
+
+        return decoupledTemplateLogic;
 
     }
 
@@ -86,6 +86,51 @@ public void parse(
 
 
 
+    /*
+     * Parses a document whose contents are already completely available in memory (e.g. because they were decoded
+     * in a single bulk operation from the template resource), without copying them into any pooled buffers.
+     */
+    public void parse(
+            final char[] document, final int offset, final int len, final IRawHandler handler)
+            throws RawParseException {
+
+        if (document == null) {
+            throw new IllegalArgumentException("Document cannot be null");
+        }
+
+        if (offset < 0 || len < 0 || offset + len > document.length) {
+            throw new IllegalArgumentException(
+                    "Invalid offset/len specification for document of length " + document.length + ": " + offset + "/" + len);
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+
+        final long parsingStartTimeNanos = System.nanoTime();
+
+        try {
+
+            handler.handleDocumentStart(parsingStartTimeNanos, 1, 1);
+
+            handler.handleText(document, offset, len, 1, 1);
+
+            final int[] lastLineCol = computeLastLineCol(document, offset, len);
+
+            final long parsingEndTimeNanos = System.nanoTime();
+            handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLineCol[0], lastLineCol[1]);
+
+        } catch (final RawParseException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RawParseException(e);
+        }
+
+    }
+
+
+
+
     /*
      * This method receiving the buffer size with package visibility allows
      * testing different buffer sizes.
@@ -145,9 +190,14 @@ void parseDocument(final Reader reader, final int suggestedBufferSize, final IRa
 
             }
 
+            if (bufferContentSize < 0) {
+                // The document was empty, so its first read returned -1
+                bufferContentSize = 0;
+            }
+
             handler.handleText(buffer, 0, bufferContentSize, 1, 1);
 
-            final int[] lastLineCol = computeLastLineCol(buffer, bufferContentSize);
+            final int[] lastLineCol = computeLastLineCol(buffer, 0, bufferContentSize);
 
             final long parsingEndTimeNanos = System.nanoTime();
             handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLineCol[0], lastLineCol[1]);
@@ -169,7 +219,7 @@ void parseDocument(final Reader reader, final int suggestedBufferSize, final IRa
 
 
 
-    private static int[] computeLastLineCol(final char[] buffer, final int bufferContentSize) {
+    private static int[] computeLastLineCol(final char[] buffer, final int offset, final int bufferContentSize) {
 
         if (bufferContentSize == 0) {
             return new int[] {1, 1};
@@ -186,7 +236,7 @@ private static int[] computeLastLineCol(final char[] buffer, final int bufferCon
         int i = 0;
 
         while (n-- != 0) {
-            c = buffer[i];
+            c = buffer[offset + i];
             if (c == '\n') {
                 line++;
                 lastLineFeed = i;
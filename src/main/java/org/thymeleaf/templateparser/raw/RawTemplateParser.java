@@ -22,6 +22,7 @@
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.CharBuffer;
 import java.util.Set;
 
 import org.thymeleaf.IEngineConfiguration;
@@ -30,6 +31,7 @@
 import org.thymeleaf.exceptions.TemplateInputException;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateparser.ITemplateParser;
+import org.thymeleaf.templateresource.IContentBufferTemplateResource;
 import org.thymeleaf.templateresource.ITemplateResource;
 import org.thymeleaf.util.Validate;
 
@@ -132,6 +134,18 @@ private void parse(
                                 templateHandler,
                                 lineOffset, colOffset);
 
+            // If the resource is able to give us its whole contents in one bulk operation, we can parse them directly
+            final CharBuffer contentBuffer =
+                    (resource instanceof IContentBufferTemplateResource ?
+                            ((IContentBufferTemplateResource) resource).contentBuffer() : null);
+
+            if (contentBuffer != null && contentBuffer.hasArray()) {
+                this.parser.parse(
+                        contentBuffer.array(), contentBuffer.arrayOffset() + contentBuffer.position(), contentBuffer.remaining(),
+                        handler);
+                return;
+            }
+
             // Obtain the resource reader
             final Reader templateReader = (resource != null? resource.reader() : new StringReader(template));
 
@@ -19,9 +19,11 @@
  */
 package org.thymeleaf.templateparser.text;
 
+import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.CharBuffer;
 import java.util.Set;
 
 import org.thymeleaf.EngineConfiguration;
@@ -33,7 +35,9 @@
 import org.thymeleaf.templateparser.ITemplateParser;
 import org.thymeleaf.templateparser.reader.ParserLevelCommentTextReader;
 import org.thymeleaf.templateparser.reader.PrototypeOnlyCommentTextReader;
+import org.thymeleaf.templateresource.IContentBufferTemplateResource;
 import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.util.TextUtils;
 import org.thymeleaf.util.Validate;
 
 /**
@@ -45,6 +49,10 @@
 public abstract class AbstractTextTemplateParser implements ITemplateParser {
 
 
+    // Prefixes of parser-level (/*[- ... -]*/) and prototype-only (/*[+ ... +]*/) comment blocks
+    private static final char[] PARSER_LEVEL_COMMENT_PREFIX = "/*[-".toCharArray();
+    private static final char[] PROTOTYPE_ONLY_COMMENT_PREFIX = "/*[+".toCharArray();
+
     private final TextParser parser;
 
 
@@ -152,8 +160,35 @@ private void parse(
                                 handler);
             }
 
-            // Obtain the resource reader
-            Reader templateReader = (resource != null? resource.reader() : new StringReader(template));
+            // If the resource is able to give us its whole contents in one bulk operation, we will try to parse
+            // directly from them, avoiding the reader chain and the refills of the parser's own buffers.
+            final CharBuffer contentBuffer =
+                    (resource instanceof IContentBufferTemplateResource ?
+                            ((IContentBufferTemplateResource) resource).contentBuffer() : null);
+
+            Reader templateReader;
+            if (contentBuffer != null && contentBuffer.hasArray()) {
+
+                final char[] content = contentBuffer.array();
+                final int contentOffset = contentBuffer.arrayOffset() + contentBuffer.position();
+                final int contentLen = contentBuffer.remaining();
+
+                // If no comment blocks appear in the template the comment block readers would have nothing to do
+                if (!TextUtils.contains(true, content, contentOffset, contentLen, PARSER_LEVEL_COMMENT_PREFIX, 0, PARSER_LEVEL_COMMENT_PREFIX.length) &&
+                        (templateMode == TemplateMode.TEXT ||
+                            !TextUtils.contains(true, content, contentOffset, contentLen, PROTOTYPE_ONLY_COMMENT_PREFIX, 0, PROTOTYPE_ONLY_COMMENT_PREFIX.length))) {
+                    this.parser.parse(content, contentOffset, contentLen, handler);
+                    return;
+                }
+
+                templateReader = new CharArrayReader(content, contentOffset, contentLen);
+
+            } else {
+
+                // Obtain the resource reader
+                templateReader = (resource != null? resource.reader() : new StringReader(template));
+
+            }
 
 
             // Add the required reader wrappers in order to process parser-level and prototype-only comment blocks
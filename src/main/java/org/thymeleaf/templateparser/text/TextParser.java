@@ -85,6 +85,44 @@ public void parse(
             throw new IllegalArgumentException("Handler cannot be null");
         }
 
+        parseDocument(reader, this.pool.poolBufferSize, buildHandlerChain(handler));
+
+    }
+
+
+
+
+    /*
+     * Parses a document whose contents are already completely available in memory (e.g. because they were decoded
+     * in a single bulk operation from the template resource). No reader-based buffer refills will be needed, and
+     * the document array will be used directly as parsing buffer (without being modified).
+     */
+    public void parse(
+            final char[] document, final int offset, final int len, final ITextHandler handler)
+            throws TextParseException {
+
+        if (document == null) {
+            throw new IllegalArgumentException("Document cannot be null");
+        }
+
+        if (offset < 0 || len < 0 || offset + len > document.length) {
+            throw new IllegalArgumentException(
+                    "Invalid offset/len specification for document of length " + document.length + ": " + offset + "/" + len);
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+
+        parseDocument(document, offset, len, buildHandlerChain(handler));
+
+    }
+
+
+
+
+    private ITextHandler buildHandlerChain(final ITextHandler handler) {
+
         ITextHandler handlerChain = handler;
 
         // The TextEventProcessorHandler will basically be in charge of controlling the stack of elements (the correct
@@ -97,7 +135,7 @@ public void parse(
             handlerChain = new CommentProcessorTextHandler(this.standardDialectPresent, handlerChain);
         }
 
-        parseDocument(reader, this.pool.poolBufferSize, handlerChain);
+        return handlerChain;
 
     }
 
@@ -194,53 +232,61 @@ void parseDocument(final Reader reader, final int suggestedBufferSize, final ITe
             }
 
             // Iteration done, now it's time to clean up in case we still have some text to be notified
+            finishDocument(buffer, bufferContentSize, handler, status, parsingStartTimeNanos);
 
-            int lastLine = status.line;
-            int lastCol = status.col;
+        } catch (final TextParseException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new TextParseException(e);
+        } finally {
+            this.pool.releaseBuffer(buffer);
+            try {
+                reader.close();
+            } catch (final Throwable ignored) {
+                // This exception can be safely ignored
+            }
+        }
 
-            final int lastStart = status.offset;
-            final int lastLen = bufferContentSize - lastStart;
+    }
 
-            if (lastLen > 0) {
 
-                // Note that comment lines will not be parsed in a special way, only as mere texts, because they
-                // cannot contain 'natural' inlined expressions (though they may contain normal inlined expressions)
-                if (status.inStructure && !status.inCommentLine) {
-                    throw new TextParseException(
-                            "Incomplete structure: \"" + new String(buffer, lastStart, lastLen) + "\"", status.line, status.col);
-                }
 
-                handler.handleText(buffer, lastStart, lastLen, status.line, status.col);
 
-                // As we have produced an additional text event, we need to fast-forward the
-                // lastLine and lastCol position to include the last text structure.
-                for (int i = lastStart; i < (lastStart + lastLen); i++) {
-                    final char c = buffer[i];
-                    if (c == '\n') {
-                        lastLine++;
-                        lastCol = 1;
-                    } else {
-                        lastCol++;
-                    }
 
-                }
 
+
+    /*
+     * Parses a document completely contained in the specified array. As there will be no more content to be read,
+     * a single pass of the buffer parser is enough before cleaning up any remaining text.
+     */
+    private void parseDocument(final char[] document, final int offset, final int len, final ITextHandler handler)
+            throws TextParseException {
+
+        final long parsingStartTimeNanos = System.nanoTime();
+
+        try {
+
+            final TextParseStatus status = new TextParseStatus();
+
+            handler.handleDocumentStart(parsingStartTimeNanos, 1, 1);
+
+            status.offset = offset;
+            status.line = 1;
+            status.col = 1;
+            status.inStructure = false;
+            status.inCommentLine = false;
+            status.literalMarker = (char)0;
+
+            if (len > 0) {
+                parseBuffer(document, offset, len, handler, status);
             }
 
-            final long parsingEndTimeNanos = System.nanoTime();
-            handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLine, lastCol);
+            finishDocument(document, offset + len, handler, status, parsingStartTimeNanos);
 
         } catch (final TextParseException e) {
             throw e;
         } catch (final Exception e) {
             throw new TextParseException(e);
-        } finally {
-            this.pool.releaseBuffer(buffer);
-            try {
-                reader.close();
-            } catch (final Throwable ignored) {
-                // This exception can be safely ignored
-            }
         }
 
     }
@@ -248,6 +294,48 @@ void parseDocument(final Reader reader, final int suggestedBufferSize, final ITe
 
 
 
+    private static void finishDocument(
+            final char[] buffer, final int bufferContentSize, final ITextHandler handler,
+            final TextParseStatus status, final long parsingStartTimeNanos)
+            throws TextParseException {
+
+        int lastLine = status.line;
+        int lastCol = status.col;
+
+        final int lastStart = status.offset;
+        final int lastLen = bufferContentSize - lastStart;
+
+        if (lastLen > 0) {
+
+            // Note that comment lines will not be parsed in a special way, only as mere texts, because they
+            // cannot contain 'natural' inlined expressions (though they may contain normal inlined expressions)
+            if (status.inStructure && !status.inCommentLine) {
+                throw new TextParseException(
+                        "Incomplete structure: \"" + new String(buffer, lastStart, lastLen) + "\"", status.line, status.col);
+            }
+
+            handler.handleText(buffer, lastStart, lastLen, status.line, status.col);
+
+            // As we have produced an additional text event, we need to fast-forward the
+            // lastLine and lastCol position to include the last text structure.
+            for (int i = lastStart; i < (lastStart + lastLen); i++) {
+                final char c = buffer[i];
+                if (c == '\n') {
+                    lastLine++;
+                    lastCol = 1;
+                } else {
+                    lastCol++;
+                }
+
+            }
+
+        }
+
+        final long parsingEndTimeNanos = System.nanoTime();
+        handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLine, lastCol);
+
+    }
+
 
 
 
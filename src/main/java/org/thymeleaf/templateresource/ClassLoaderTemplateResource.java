@@ -26,6 +26,8 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URL;
+import java.nio.CharBuffer;
 
 import org.thymeleaf.util.ClassLoaderUtils;
 import org.thymeleaf.util.StringUtils;
@@ -44,7 +46,7 @@
  * @since 3.0.0
  * 
  */
-public final class ClassLoaderTemplateResource implements ITemplateResource {
+public final class ClassLoaderTemplateResource implements IContentBufferTemplateResource, IVersionedTemplateResource {
 
 
     private final ClassLoader optionalClassLoader;
@@ -119,6 +121,38 @@ public String getBaseName() {
 
     public Reader reader() throws IOException {
 
+        final InputStream inputStream = openStream();
+
+        if (!StringUtils.isEmptyOrWhitespace(this.characterEncoding)) {
+            return new BufferedReader(new InputStreamReader(new BufferedInputStream(inputStream), this.characterEncoding));
+        }
+
+        return new BufferedReader(new InputStreamReader(new BufferedInputStream(inputStream)));
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the whole contents of the resource, read into a single <tt>byte[]</tt> and then
+     *   decoded in one bulk operation.
+     * </p>
+     *
+     * @return the decoded contents of the resource.
+     * @throws IOException if an input/output exception happens or if the resource does not exist.
+     * @since 3.0.8
+     */
+    public CharBuffer contentBuffer() throws IOException {
+        return TemplateResourceUtils.decode(TemplateResourceUtils.readFully(openStream()), this.characterEncoding);
+    }
+
+
+
+
+    private InputStream openStream() throws IOException {
+
         final InputStream inputStream;
         if (this.optionalClassLoader != null) {
             inputStream = this.optionalClassLoader.getResourceAsStream(this.path);
@@ -130,12 +164,28 @@ public Reader reader() throws IOException {
             throw new FileNotFoundException(String.format("ClassLoader resource \"%s\" could not be resolved", this.path));
         }
 
-        if (!StringUtils.isEmptyOrWhitespace(this.characterEncoding)) {
-            return new BufferedReader(new InputStreamReader(new BufferedInputStream(inputStream), this.characterEncoding));
-        }
+        return inputStream;
+
+    }
+
 
-        return new BufferedReader(new InputStreamReader(new BufferedInputStream(inputStream)));
 
+
+    /**
+     * <p>
+     *   Computes the version of the resource from the last modification timestamp and size of the file it
+     *   is loaded from (either the resource file itself or the JAR file containing it). Resources loaded
+     *   from any other kind of location will have an unknown version.
+     * </p>
+     *
+     * @return the current version of the resource, or {@link #UNKNOWN_VERSION}.
+     * @since 3.0.8
+     */
+    public long version() {
+        final URL url =
+                (this.optionalClassLoader != null ?
+                        this.optionalClassLoader.getResource(this.path) : ClassLoaderUtils.findResource(this.path));
+        return TemplateResourceUtils.computeVersion(url);
     }
 
 
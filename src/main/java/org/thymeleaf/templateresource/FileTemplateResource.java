@@ -28,7 +28,12 @@
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
+import org.thymeleaf.util.ByteChannelWriter;
 import org.thymeleaf.util.StringUtils;
 import org.thymeleaf.util.Validate;
 
@@ -44,7 +49,16 @@
  * @since 3.0.0
  * 
  */
-public final class FileTemplateResource implements ITemplateResource, Serializable {
+public final class FileTemplateResource implements IContentBufferTemplateResource, IVersionedTemplateResource, Serializable {
+
+
+    /*
+     * Files bigger than this will be memory-mapped instead of bulk-read into a heap buffer. Mapping small files
+     * is more expensive than simply reading them, and mapped files might stay locked on some operating systems
+     * until the mapped buffer is garbage collected, which is something we should avoid for the typical (small)
+     * template files that might be edited during development.
+     */
+    private static final long MAPPING_THRESHOLD = 256 * 1024;
 
 
     private final String path;
@@ -112,6 +126,114 @@ public Reader reader() throws IOException {
 
 
 
+    /**
+     * <p>
+     *   Returns the whole contents of the file, decoded in a single bulk operation. Big files will be
+     *   memory-mapped for reading.
+     * </p>
+     *
+     * @return the decoded contents of the file, or <tt>null</tt> if the file is too big to be decoded into
+     *         a single buffer.
+     * @throws IOException if an input/output exception happens or if the file does not exist.
+     * @since 3.0.8
+     */
+    public CharBuffer contentBuffer() throws IOException {
+
+        final FileInputStream inputStream = new FileInputStream(this.file);
+
+        try {
+
+            final FileChannel channel = inputStream.getChannel();
+            final long size = channel.size();
+
+            if (size > Integer.MAX_VALUE / 2) {
+                // Too big to be decoded into a single char buffer
+                return null;
+            }
+
+            final ByteBuffer content;
+            if (size > MAPPING_THRESHOLD) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                    // Keep reading until the whole file is in the buffer
+                }
+                buffer.flip();
+                content = buffer;
+            }
+
+            return TemplateResourceUtils.decode(content, this.characterEncoding);
+
+        } finally {
+            try {
+                inputStream.close();
+            } catch (final Throwable ignored) {
+                // This exception can be safely ignored
+            }
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Computes the version of the file from its last modification timestamp and its size.
+     * </p>
+     *
+     * @return the current version of the file.
+     * @since 3.0.8
+     */
+    public long version() {
+        return TemplateResourceUtils.computeVersion(this.file);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes the contents of the file directly to the channel of the specified writer, without decoding
+     *   them, if possible (see {@link ByteChannelWriter#transferFrom(FileChannel, Charset)}).
+     * </p>
+     *
+     * @param writer the writer whose channel the file contents should be transferred to.
+     * @return <tt>true</tt> if contents were transferred, <tt>false</tt> if not possible.
+     * @throws IOException if an input/output exception happens or if the file does not exist.
+     * @since 3.0.8
+     */
+    public boolean transferTo(final ByteChannelWriter writer) throws IOException {
+
+        final Charset charset;
+        if (!StringUtils.isEmptyOrWhitespace(this.characterEncoding)) {
+            try {
+                charset = Charset.forName(this.characterEncoding);
+            } catch (final IllegalArgumentException e) {
+                // Unknown charset: let the usual reader-based mechanism report the problem
+                return false;
+            }
+        } else {
+            charset = Charset.defaultCharset();
+        }
+
+        final FileInputStream inputStream = new FileInputStream(this.file);
+        try {
+            return writer.transferFrom(inputStream.getChannel(), charset);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (final Throwable ignored) {
+                // This exception can be safely ignored
+            }
+        }
+
+    }
+
+
+
+
     public ITemplateResource relative(final String relativeLocation) {
 
         Validate.notEmpty(relativeLocation, "Relative Path cannot be null or empty");
@@ -0,0 +1,68 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateresource;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * <p>
+ *   Optional capability of {@link ITemplateResource} implementations that are able to provide the
+ *   complete (already decoded) contents of the resource in a single bulk operation, instead of offering
+ *   them only through a {@link java.io.Reader}.
+ * </p>
+ * <p>
+ *   Template parsers will check whether the resources they are given implement this interface, and if they
+ *   do they will parse directly from the returned buffer, avoiding the chain of stream/reader buffers and the
+ *   reader-based refills of their own parsing buffers.
+ * </p>
+ * <p>
+ *   Implementations of this interface should be <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.8
+ *
+ */
+public interface IContentBufferTemplateResource extends ITemplateResource {
+
+
+    /**
+     * <p>
+     *   Returns a {@link CharBuffer} containing the whole, decoded contents of the template resource.
+     * </p>
+     * <p>
+     *   The returned buffer <strong>must be backed by an accessible array</strong> (i.e.
+     *   {@link CharBuffer#hasArray()} must return <tt>true</tt>), and its contents must be considered
+     *   read-only by callers. Its contents are the ones between its <em>position</em> and its <em>limit</em>.
+     * </p>
+     * <p>
+     *   Implementations can return <tt>null</tt> if, for any reason, they are not able to provide the
+     *   contents this way for a specific resource (e.g. because of its size), in which case callers will
+     *   fall back to {@link #reader()}.
+     * </p>
+     *
+     * @return the buffer containing the resource contents, or <tt>null</tt> if not available.
+     * @throws IOException if an input/output exception happens or if the resource does not exist (e.g.
+     *                     {@link java.io.FileNotFoundException}).
+     */
+    public CharBuffer contentBuffer() throws IOException;
+
+}
@@ -0,0 +1,69 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateresource;
+
+/**
+ * <p>
+ *   Optional capability of {@link ITemplateResource} implementations that are able to cheaply compute a
+ *   <em>version</em> of their contents, i.e. a value that changes whenever the contents of the resource change
+ *   (usually computed from file modification timestamps and sizes).
+ * </p>
+ * <p>
+ *   Versions allow the engine to keep structures computed from a resource (e.g. the decoupled template logic
+ *   built from it) and re-validate them without reading or parsing the resource again.
+ * </p>
+ * <p>
+ *   Implementations of this interface should be <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.8
+ *
+ */
+public interface IVersionedTemplateResource extends ITemplateResource {
+
+
+    /**
+     * <p>
+     *   Value returned by {@link #version()} when the version of a specific resource cannot be determined.
+     *   Structures computed from such resources cannot be re-validated, and should therefore not be kept.
+     * </p>
+     */
+    public static final long UNKNOWN_VERSION = Long.MIN_VALUE;
+
+
+    /**
+     * <p>
+     *   Computes the current version of the resource contents.
+     * </p>
+     * <p>
+     *   Two calls on the same resource should return the same value only if its contents have not changed
+     *   between them. Resources that do not exist should return a version too (so that their appearance can be
+     *   detected), which must be different from the version of any existing contents.
+     * </p>
+     * <p>
+     *   This operation should be much cheaper than actually reading the resource.
+     * </p>
+     *
+     * @return the current version, or {@link #UNKNOWN_VERSION} if it cannot be determined.
+     */
+    public long version();
+
+}
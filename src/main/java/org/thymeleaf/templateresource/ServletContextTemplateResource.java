@@ -47,7 +47,7 @@
  * @since 3.0.0
  * 
  */
-public final class ServletContextTemplateResource implements ITemplateResource {
+public final class ServletContextTemplateResource implements IVersionedTemplateResource {
 
 
     private final ServletContext servletContext;
@@ -106,6 +106,27 @@ public Reader reader() throws IOException {
 
 
 
+    /**
+     * <p>
+     *   Computes the version of the resource from the last modification timestamp and size of the file it
+     *   is served from, if the servlet container makes it available as a file (or as an entry in a JAR file).
+     *   Resources served from any other kind of location will have an unknown version.
+     * </p>
+     *
+     * @return the current version of the resource, or {@link #UNKNOWN_VERSION}.
+     * @since 3.0.8
+     */
+    public long version() {
+        try {
+            return TemplateResourceUtils.computeVersion(this.servletContext.getResource(this.path));
+        } catch (final MalformedURLException e) {
+            return UNKNOWN_VERSION;
+        }
+    }
+
+
+
+
     public ITemplateResource relative(final String relativeLocation) {
 
         Validate.notEmpty(relativeLocation, "Relative Path cannot be null or empty");
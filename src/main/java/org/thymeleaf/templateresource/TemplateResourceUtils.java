@@ -19,6 +19,19 @@
  */
 package org.thymeleaf.templateresource;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
 import org.thymeleaf.util.StringUtils;
 
 /**
@@ -148,6 +161,113 @@ static String computeBaseName(final String path) {
 
 
 
+    static CharBuffer decode(final ByteBuffer content, final String characterEncoding) throws IOException {
+
+        final Charset charset;
+        if (!StringUtils.isEmptyOrWhitespace(characterEncoding)) {
+            try {
+                charset = Charset.forName(characterEncoding);
+            } catch (final IllegalArgumentException e) {
+                // Same exception InputStreamReader would raise for an unknown charset name
+                throw new UnsupportedEncodingException(characterEncoding);
+            }
+        } else {
+            charset = Charset.defaultCharset();
+        }
+
+        // Malformed or unmappable input is replaced, in the same way an InputStreamReader would do
+        final CharBuffer decoded =
+                charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(content);
+
+        return (decoded.hasArray()? decoded : CharBuffer.wrap(decoded.toString()));
+
+    }
+
+
+
+
+    static ByteBuffer readFully(final InputStream inputStream) throws IOException {
+
+        try {
+
+            byte[] buffer = new byte[Math.max(inputStream.available(), 4096)];
+            int size = 0;
+            int read;
+            while ((read = inputStream.read(buffer, size, buffer.length - size)) != -1) {
+                size += read;
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+
+            return ByteBuffer.wrap(buffer, 0, size);
+
+        } finally {
+            try {
+                inputStream.close();
+            } catch (final Throwable ignored) {
+                // This exception can be safely ignored
+            }
+        }
+
+    }
+
+
+
+
+    static long computeVersion(final File file) {
+        // File#lastModified() returns 0 for non-existing files, so they will always have version 0
+        final long lastModified = file.lastModified();
+        return (lastModified == 0L ? 0L : ((lastModified * 31L) + file.length() + 1L));
+    }
+
+
+
+
+    static long computeVersion(final URL url) {
+
+        if (url == null) {
+            // Non-existing resource
+            return 0L;
+        }
+
+        final String protocol = url.getProtocol();
+
+        final File file;
+        if ("file".equals(protocol)) {
+            file = toFile(url.toString());
+        } else if ("jar".equals(protocol)) {
+            // Entries in a JAR file will be versioned by the JAR file itself (URL path is "file:/...jar!/entry")
+            final String path = url.getPath();
+            final int separatorPos = path.indexOf("!/");
+            file = (separatorPos != -1 && path.startsWith("file:") ? toFile(path.substring(0, separatorPos)) : null);
+        } else {
+            file = null;
+        }
+
+        return (file != null ? computeVersion(file) : IVersionedTemplateResource.UNKNOWN_VERSION);
+
+    }
+
+
+    private static File toFile(final String fileURL) {
+        try {
+            return new File(new URI(fileURL));
+        } catch (final URISyntaxException e) {
+            return null;
+        } catch (final IllegalArgumentException e) {
+            // URI is not a valid hierarchical file URI (e.g. it contains an authority component)
+            return null;
+        }
+    }
+
+
+
+
+
     private TemplateResourceUtils() {
         super();
     }
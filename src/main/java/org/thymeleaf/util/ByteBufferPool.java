@@ -0,0 +1,152 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>
+ *   Thread-safe, bounded pool of {@link ByteBuffer} objects of a fixed capacity.
+ * </p>
+ * <p>
+ *   Buffers are obtained by means of {@link #acquire()} and can be given back to the pool once their
+ *   contents have been consumed by means of {@link #release(ByteBuffer)}. Buffers that are never released
+ *   are simply garbage collected, and buffers released when the pool is already full (or which were not
+ *   created by this pool) are discarded.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class ByteBufferPool {
+
+    /**
+     * <p>
+     *   Default capacity of the buffers created by pools built with the default constructor: {@value}
+     * </p>
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * <p>
+     *   Default maximum number of idle buffers kept by pools built with the default constructor: {@value}
+     * </p>
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final boolean direct;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final AtomicInteger pooledCount;
+
+
+
+    public ByteBufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS, false);
+    }
+
+
+    public ByteBufferPool(final int bufferSize, final int maxPooledBuffers, final boolean direct) {
+        super();
+        Validate.isTrue(bufferSize > 0, "Buffer size must be greater than zero");
+        Validate.isTrue(maxPooledBuffers >= 0, "Maximum number of pooled buffers cannot be negative");
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.direct = direct;
+        this.buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+        this.pooledCount = new AtomicInteger(0);
+    }
+
+
+
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+
+    public int getMaxPooledBuffers() {
+        return this.maxPooledBuffers;
+    }
+
+
+    public boolean isDirect() {
+        return this.direct;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of idle buffers currently kept in the pool.
+     * </p>
+     *
+     * @return the number of pooled buffers.
+     */
+    public int getPooledCount() {
+        return this.pooledCount.get();
+    }
+
+
+
+    /**
+     * <p>
+     *   Obtains a cleared buffer from the pool, creating a new one if the pool is empty.
+     * </p>
+     *
+     * @return the buffer, ready for writing.
+     */
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = this.buffers.poll();
+        if (buffer != null) {
+            this.pooledCount.decrementAndGet();
+            return buffer;
+        }
+        return (this.direct? ByteBuffer.allocateDirect(this.bufferSize) : ByteBuffer.allocate(this.bufferSize));
+    }
+
+
+    /**
+     * <p>
+     *   Gives a buffer back to the pool. The buffer should not be used by the caller after calling this method.
+     * </p>
+     *
+     * @param buffer the buffer to be released (can be null, in which case nothing will be done).
+     */
+    public void release(final ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != this.bufferSize || buffer.isDirect() != this.direct || buffer.isReadOnly()) {
+            return;
+        }
+        if (this.pooledCount.incrementAndGet() > this.maxPooledBuffers) {
+            this.pooledCount.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        this.buffers.offer(buffer);
+    }
+
+
+}
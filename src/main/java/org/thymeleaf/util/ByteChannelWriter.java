@@ -0,0 +1,383 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * <p>
+ *   Implementation of {@link Writer} that encodes chars directly into a {@link ByteBuffer} obtained from a
+ *   {@link ByteBufferPool}, and writes this buffer to a {@link WritableByteChannel} each time it becomes full.
+ * </p>
+ * <p>
+ *   {@link CharsetEncoder} instances are reused among the writers created by the same thread. Malformed input
+ *   and unmappable characters are replaced (same as {@link java.io.OutputStreamWriter} does).
+ * </p>
+ * <p>
+ *   The channel is expected to be in <em>blocking mode</em>. Once all output has been written, {@link #finish()}
+ *   should be called in order to finish encoding, write all pending output and give the buffer back to the pool.
+ *   Neither {@link #finish()} nor {@link #close()} will close the channel.
+ * </p>
+ * <p>
+ *   Objects of this class are not thread-safe.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class ByteChannelWriter extends Writer {
+
+    // A plain ThreadLocal (not a subclass) is used so that the threads it is set on (e.g. container threads) do not
+    // keep a reference to a class of this library, which would prevent its class loader from being collected.
+    private static final ThreadLocal<Map<Charset,CharsetEncoder>> ENCODERS =
+            new ThreadLocal<Map<Charset,CharsetEncoder>>();
+
+
+    private final WritableByteChannel channel;
+    private final Charset charset;
+    private final ByteBufferPool bufferPool;
+
+    private CharsetEncoder encoder;
+    private ByteBuffer buffer;
+
+    // A high surrogate at the end of a write operation must wait for its low surrogate in the next one
+    private char pendingHighSurrogate;
+    private boolean hasPendingHighSurrogate;
+
+
+
+    public ByteChannelWriter(final WritableByteChannel channel, final Charset charset, final ByteBufferPool bufferPool) {
+        super();
+        Validate.notNull(channel, "Channel cannot be null");
+        Validate.notNull(charset, "Charset cannot be null");
+        Validate.notNull(bufferPool, "Buffer pool cannot be null");
+        this.channel = channel;
+        this.charset = charset;
+        this.bufferPool = bufferPool;
+        this.encoder = null;
+        this.buffer = null;
+        this.hasPendingHighSurrogate = false;
+    }
+
+
+
+
+    @Override
+    public void write(final int c) throws IOException {
+        encode(CharBuffer.wrap(new char[] { (char)c }));
+    }
+
+
+    @Override
+    public void write(final String str) throws IOException {
+        encode(CharBuffer.wrap(str));
+    }
+
+
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        encode(CharBuffer.wrap(str, off, off + len));
+    }
+
+
+    @Override
+    public void write(final char[] cbuf) throws IOException {
+        encode(CharBuffer.wrap(cbuf));
+    }
+
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        encode(CharBuffer.wrap(cbuf, off, len));
+    }
+
+
+    @Override
+    public Writer append(final CharSequence csq) throws IOException {
+        encode(CharBuffer.wrap(csq == null? "null" : csq));
+        return this;
+    }
+
+
+    @Override
+    public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+        encode(CharBuffer.wrap(csq == null? "null" : csq, start, end));
+        return this;
+    }
+
+
+
+
+    private void encode(final CharBuffer in) throws IOException {
+
+        if (!in.hasRemaining()) {
+            return;
+        }
+
+        ensureOpen();
+
+        if (this.hasPendingHighSurrogate) {
+            this.hasPendingHighSurrogate = false;
+            encodeFully(CharBuffer.wrap(new char[] { this.pendingHighSurrogate, in.get() }), false);
+        }
+
+        encodeFully(in, false);
+
+        if (in.hasRemaining()) {
+            // The encoder only leaves input unconsumed when it needs more chars (i.e. a trailing high surrogate)
+            this.pendingHighSurrogate = in.get();
+            this.hasPendingHighSurrogate = true;
+        }
+
+    }
+
+
+    private void encodeFully(final CharBuffer in, final boolean endOfInput) throws IOException {
+        while (true) {
+            final CoderResult result = this.encoder.encode(in, this.buffer, endOfInput);
+            if (result.isUnderflow()) {
+                return;
+            }
+            if (result.isOverflow()) {
+                writeBuffer();
+                continue;
+            }
+            result.throwException();
+        }
+    }
+
+
+    private void writeBuffer() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            if (this.channel.write(this.buffer) <= 0) {
+                // Non-blocking channels might accept no bytes, and we cannot wait for them
+                throw new IOException("Channel accepted no bytes while writing output");
+            }
+        }
+        this.buffer.clear();
+    }
+
+
+    private void ensureOpen() {
+        if (this.encoder != null) {
+            return;
+        }
+        // Encoders are removed from the thread's cache while in use, so that writers created during the
+        // processing of another one in the same thread (e.g. nested template executions) never share them.
+        final CharsetEncoder cachedEncoder = getEncoders().remove(this.charset);
+        if (cachedEncoder != null) {
+            this.encoder = cachedEncoder.reset();
+        } else {
+            this.encoder =
+                    this.charset.newEncoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        this.buffer = this.bufferPool.acquire();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes the whole contents of a file channel directly to the output channel, without decoding or encoding
+     *   them, if they are already encoded in the charset of this writer. Output written to this writer before
+     *   is written to the channel first, so that order is kept.
+     * </p>
+     * <p>
+     *   This is only possible for charsets in which a sequence of bytes can be directly appended to another
+     *   without any encoder state being involved (<tt>UTF-8</tt>, <tt>US-ASCII</tt> and <tt>ISO-8859-1</tt>),
+     *   and only if this writer is not waiting for the low surrogate of a character. Note contents are transferred
+     *   verbatim, so malformed input would not be replaced as it would when decoding and encoding it.
+     * </p>
+     * <p>
+     *   If the file is truncated during the transfer, only its remaining contents are written. If the output
+     *   channel stops accepting bytes (e.g. a non-blocking channel), an exception is thrown.
+     * </p>
+     *
+     * @param source the channel to read from. Will not be closed.
+     * @param sourceCharset the charset the source contents are encoded in.
+     * @return <tt>true</tt> if contents were transferred, <tt>false</tt> if not possible (nothing is written then).
+     * @throws IOException if contents cannot be transferred.
+     * @since 3.0.8
+     */
+    public boolean transferFrom(final FileChannel source, final Charset sourceCharset) throws IOException {
+
+        if (!this.charset.equals(sourceCharset) || !isStatelessCharset(this.charset) || this.hasPendingHighSurrogate) {
+            return false;
+        }
+
+        writePending();
+
+        final long size = source.size();
+        long position = 0L;
+        while (position < size) {
+            final long transferred = source.transferTo(position, size - position, this.channel);
+            if (transferred <= 0L) {
+                // No progress: either the file has been truncated after computing its size (and we are done), or
+                // the channel is not accepting bytes (e.g. a non-blocking one), which we cannot wait for.
+                if (position >= source.size()) {
+                    break;
+                }
+                throw new IOException("Channel accepted no bytes while transferring file contents");
+            }
+            position += transferred;
+        }
+
+        return true;
+
+    }
+
+
+    private static boolean isStatelessCharset(final Charset charset) {
+        final String name = charset.name();
+        return "UTF-8".equals(name) || "US-ASCII".equals(name) || "ISO-8859-1".equals(name);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes to the channel all the output encoded so far, and flushes the channel if it is {@link Flushable}.
+     *   Encoding is not finished.
+     * </p>
+     */
+    @Override
+    public void flush() throws IOException {
+        writePending();
+        if (this.channel instanceof Flushable) {
+            ((Flushable) this.channel).flush();
+        }
+    }
+
+
+    private void writePending() throws IOException {
+        if (this.buffer != null && this.buffer.position() > 0) {
+            writeBuffer();
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Finishes encoding, writes all pending output to the channel and gives the buffer back to the pool. After
+     *   calling this method, this writer can be used again.
+     * </p>
+     *
+     * @throws IOException if output cannot be written to the channel.
+     */
+    public void finish() throws IOException {
+
+        if (this.encoder == null) {
+            return;
+        }
+
+        try {
+
+            final CharBuffer in =
+                    (this.hasPendingHighSurrogate?
+                            CharBuffer.wrap(new char[] { this.pendingHighSurrogate }) : CharBuffer.allocate(0));
+            this.hasPendingHighSurrogate = false;
+            encodeFully(in, true);
+
+            CoderResult result;
+            while ((result = this.encoder.flush(this.buffer)).isOverflow()) {
+                writeBuffer();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            writePending();
+
+        } finally {
+            release();
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Gives the buffer back to the pool (and the encoder back to the per-thread cache) without writing any
+     *   pending output to the channel. This is meant to be called when output generation fails, so that these
+     *   are not lost. It can be safely called after {@link #finish()}, in which case it will do nothing. After
+     *   calling this method, this writer can be used again.
+     * </p>
+     *
+     * @since 3.0.8
+     */
+    public void discard() {
+        if (this.encoder == null) {
+            return;
+        }
+        this.hasPendingHighSurrogate = false;
+        release();
+    }
+
+
+    private static Map<Charset,CharsetEncoder> getEncoders() {
+        Map<Charset,CharsetEncoder> encoders = ENCODERS.get();
+        if (encoders == null) {
+            encoders = new HashMap<Charset, CharsetEncoder>(4);
+            ENCODERS.set(encoders);
+        }
+        return encoders;
+    }
+
+
+    private void release() {
+        getEncoders().put(this.charset, this.encoder);
+        this.bufferPool.release(this.buffer);
+        this.encoder = null;
+        this.buffer = null;
+    }
+
+
+    /**
+     * <p>
+     *   Equivalent to {@link #finish()}. The channel will not be closed.
+     * </p>
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+
+}
@@ -0,0 +1,137 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.thymeleaf.exceptions.TemplateProcessingException;
+
+
+/**
+ * <p>
+ *   Character sequence whose contents are being computed asynchronously (e.g. a fragment being rendered
+ *   in parallel) and will be available from a {@link Future}.
+ * </p>
+ * <p>
+ *   When written to a {@link DeferredContentWriter}, these sequences do not block: the writer will keep
+ *   track of them and write their contents in order as soon as they are available. When written to any
+ *   other writer (or when their contents are accessed as a <tt>CharSequence</tt>), they will block until
+ *   their contents have been computed.
+ * </p>
+ * <p>
+ *   This is mostly an <strong>internal class</strong>, and its use is not recommended from user's code.
+ * </p>
+ * <p>
+ *   This class is <strong>not</strong> thread-safe.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class DeferredCharSequence extends AbstractLazyCharSequence {
+
+    private final Future<String> future;
+
+
+
+    public DeferredCharSequence(final Future<String> future) {
+        super();
+        if (future == null) {
+            throw new IllegalArgumentException("Future is null, which is forbidden");
+        }
+        this.future = future;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns whether the contents of this sequence have been successfully computed, and therefore
+     *   can be written without blocking and without raising any exceptions.
+     * </p>
+     *
+     * @return true if contents are available, false if not.
+     */
+    public boolean isResolvable() {
+        if (!this.future.isDone() || this.future.isCancelled()) {
+            return false;
+        }
+        try {
+            this.future.get();
+            return true;
+        } catch (final Exception e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Cancels the computation of the contents of this sequence, if it has not finished yet.
+     * </p>
+     */
+    public void cancel() {
+        this.future.cancel(true);
+    }
+
+
+
+
+    @Override
+    protected String resolveText() {
+        try {
+            return this.future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TemplateProcessingException("Interrupted while waiting for deferred content to be computed", e);
+        } catch (final CancellationException e) {
+            throw new TemplateProcessingException("Computation of deferred content was cancelled", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                // This will include TemplateProcessingExceptions, which we want to propagate unchanged
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new TemplateProcessingException("Exception computing deferred content", cause);
+        }
+    }
+
+
+    @Override
+    protected void writeUnresolved(final Writer writer) throws IOException {
+        if (writer instanceof DeferredContentWriter) {
+            ((DeferredContentWriter) writer).writeDeferred(this);
+            return;
+        }
+        writer.write(resolveText());
+    }
+
+
+}
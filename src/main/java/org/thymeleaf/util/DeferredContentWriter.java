@@ -0,0 +1,247 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedList;
+
+
+/**
+ * <p>
+ *   {@link Writer} wrapper able to receive {@link DeferredCharSequence} objects whose contents might not be
+ *   available yet, and which makes sure all output reaches the wrapped writer in the same order it was written.
+ * </p>
+ * <p>
+ *   While no deferred contents are pending, output is directly written to the wrapped writer. Once a deferred
+ *   sequence that is not yet available is written, all subsequent output is buffered until the pending deferred
+ *   sequences before it become available.
+ * </p>
+ * <p>
+ *   Errors happening during the computation of deferred contents are never raised by the <tt>write(...)</tt>
+ *   or {@link #flush()} methods. They will be raised by {@link #finish()}, always in the order in which the
+ *   failing sequences were written, so that the reported error does not depend on the timing of the
+ *   asynchronous computations.
+ * </p>
+ * <p>
+ *   This is mostly an <strong>internal class</strong>, and its use is not recommended from user's code.
+ * </p>
+ * <p>
+ *   This class is <strong>not</strong> thread-safe.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class DeferredContentWriter extends Writer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 512;
+
+    private final Writer writer;
+
+    // Contains, in order, the pending DeferredCharSequences and the buffers for the output written after them
+    private final LinkedList<Object> pending;
+    private FastStringWriter buffer;
+
+
+
+    public DeferredContentWriter(final Writer writer) {
+        super();
+        Validate.notNull(writer, "Writer cannot be null");
+        this.writer = writer;
+        this.pending = new LinkedList<Object>();
+        this.buffer = null;
+    }
+
+
+
+
+    @Override
+    public void write(final int c) throws IOException {
+        if (this.buffer == null) {
+            this.writer.write(c);
+        } else {
+            this.buffer.write(c);
+        }
+    }
+
+
+    @Override
+    public void write(final String str) throws IOException {
+        if (this.buffer == null) {
+            this.writer.write(str);
+        } else {
+            this.buffer.write(str);
+        }
+    }
+
+
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        if (this.buffer == null) {
+            this.writer.write(str, off, len);
+        } else {
+            this.buffer.write(str, off, len);
+        }
+    }
+
+
+    @Override
+    public void write(final char[] cbuf) throws IOException {
+        if (this.buffer == null) {
+            this.writer.write(cbuf);
+        } else {
+            this.buffer.write(cbuf);
+        }
+    }
+
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        if (this.buffer == null) {
+            this.writer.write(cbuf, off, len);
+        } else {
+            this.buffer.write(cbuf, off, len);
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes a deferred character sequence. If its contents are already available and there is no other
+     *   pending content before it, it will be directly written to the wrapped writer. Otherwise, it will be
+     *   queued and written as soon as possible, without blocking.
+     * </p>
+     *
+     * @param deferred the deferred sequence to be written.
+     * @throws IOException if an input/output exception happens when writing to the wrapped writer.
+     */
+    public void writeDeferred(final DeferredCharSequence deferred) throws IOException {
+        if (this.buffer == null && deferred.isResolvable()) {
+            deferred.write(this.writer);
+            return;
+        }
+        this.pending.add(deferred);
+        this.buffer = new FastStringWriter(DEFAULT_BUFFER_SIZE);
+        this.pending.add(this.buffer);
+        drainAvailable();
+    }
+
+
+
+
+    /*
+     * Writes to the wrapped writer all pending content that can be written without blocking and without raising
+     * errors, in order. Once all pending content has been drained, output will be written directly again.
+     */
+    private void drainAvailable() throws IOException {
+        while (!this.pending.isEmpty()) {
+            final Object head = this.pending.getFirst();
+            if (head instanceof DeferredCharSequence) {
+                final DeferredCharSequence deferred = (DeferredCharSequence) head;
+                if (!deferred.isResolvable()) {
+                    // Not finished yet (or failed, in which case the error will be raised by finish())
+                    return;
+                }
+                deferred.write(this.writer);
+            } else {
+                final FastStringWriter headBuffer = (FastStringWriter) head;
+                this.writer.write(headBuffer.toString());
+                if (headBuffer == this.buffer) {
+                    // This was the buffer currently receiving output, so from now on we can write directly
+                    this.buffer = null;
+                }
+            }
+            this.pending.removeFirst();
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes all the pending content to the wrapped writer, blocking until every pending deferred sequence
+     *   is available. If the computation of any of these sequences failed, its exception will be raised
+     *   once all content before it has been written.
+     * </p>
+     *
+     * @throws IOException if an input/output exception happens when writing to the wrapped writer.
+     */
+    public void finish() throws IOException {
+        while (!this.pending.isEmpty()) {
+            final Object head = this.pending.removeFirst();
+            if (head instanceof DeferredCharSequence) {
+                // This might block, and might raise the exception thrown during computation
+                ((DeferredCharSequence) head).write(this.writer);
+            } else {
+                this.writer.write(head.toString());
+            }
+        }
+        this.buffer = null;
+    }
+
+
+    /**
+     * <p>
+     *   Cancels the computation of all deferred sequences still pending and discards any buffered output.
+     *   Meant to be called if template processing fails.
+     * </p>
+     */
+    public void cancel() {
+        for (final Object pendingObj : this.pending) {
+            if (pendingObj instanceof DeferredCharSequence) {
+                ((DeferredCharSequence) pendingObj).cancel();
+            }
+        }
+        this.pending.clear();
+        this.buffer = null;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes all pending content that is already available and flushes the wrapped writer. Note this will
+     *   not block waiting for any pending deferred content.
+     * </p>
+     *
+     * @throws IOException if an input/output exception happens.
+     */
+    @Override
+    public void flush() throws IOException {
+        drainAvailable();
+        this.writer.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        this.writer.close();
+    }
+
+
+}
@@ -0,0 +1,144 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+
+/**
+ * <p>
+ *   Thread-safe, bounded pool of {@link Deflater} objects, all of them producing raw deflate data
+ *   (i.e. <tt>nowrap</tt>) with the same compression level.
+ * </p>
+ * <p>
+ *   Creating a {@link Deflater} is expensive (it allocates a significant amount of native memory), so reusing
+ *   them among executions considerably reduces the cost of compressing output.
+ *   Deflaters are obtained by means of {@link #acquire()} and given back to the pool by means of
+ *   {@link #release(Deflater)}. Deflaters released when the pool is already full are ended and discarded.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class DeflaterPool {
+
+    /**
+     * <p>
+     *   Default maximum number of idle deflaters kept by pools built with the default constructor: {@value}
+     * </p>
+     */
+    public static final int DEFAULT_MAX_POOLED_DEFLATERS = 32;
+
+
+    private final int level;
+    private final int maxPooledDeflaters;
+
+    private final ConcurrentLinkedQueue<Deflater> deflaters;
+    private final AtomicInteger pooledCount;
+
+
+
+    public DeflaterPool() {
+        this(Deflater.DEFAULT_COMPRESSION, DEFAULT_MAX_POOLED_DEFLATERS);
+    }
+
+
+    public DeflaterPool(final int level, final int maxPooledDeflaters) {
+        super();
+        Validate.isTrue(
+                level == Deflater.DEFAULT_COMPRESSION || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+                "Invalid compression level: " + level);
+        Validate.isTrue(maxPooledDeflaters >= 0, "Maximum number of pooled deflaters cannot be negative");
+        this.level = level;
+        this.maxPooledDeflaters = maxPooledDeflaters;
+        this.deflaters = new ConcurrentLinkedQueue<Deflater>();
+        this.pooledCount = new AtomicInteger(0);
+    }
+
+
+
+    public int getLevel() {
+        return this.level;
+    }
+
+
+    public int getMaxPooledDeflaters() {
+        return this.maxPooledDeflaters;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of idle deflaters currently kept in the pool.
+     * </p>
+     *
+     * @return the number of pooled deflaters.
+     */
+    public int getPooledCount() {
+        return this.pooledCount.get();
+    }
+
+
+
+    /**
+     * <p>
+     *   Obtains a deflater from the pool, ready for compressing a new stream, creating a new one if the pool
+     *   is empty.
+     * </p>
+     *
+     * @return the deflater.
+     */
+    public Deflater acquire() {
+        final Deflater deflater = this.deflaters.poll();
+        if (deflater != null) {
+            this.pooledCount.decrementAndGet();
+            return deflater;
+        }
+        return new Deflater(this.level, true);
+    }
+
+
+    /**
+     * <p>
+     *   Gives a deflater back to the pool, resetting it. The deflater should not be used by the caller after
+     *   calling this method.
+     * </p>
+     *
+     * @param deflater the deflater to be released (can be null, in which case nothing will be done).
+     */
+    public void release(final Deflater deflater) {
+        if (deflater == null) {
+            return;
+        }
+        if (this.pooledCount.incrementAndGet() > this.maxPooledDeflaters) {
+            this.pooledCount.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        this.deflaters.offer(deflater);
+    }
+
+
+}
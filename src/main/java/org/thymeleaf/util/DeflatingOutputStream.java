@@ -0,0 +1,331 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2016, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+
+/**
+ * <p>
+ *   Output stream (and {@link WritableByteChannel}) that compresses all data written to it in <tt>gzip</tt>
+ *   (RFC 1952) or <tt>zlib</tt> (RFC 1950, i.e. HTTP's <tt>deflate</tt> content coding) format, using a
+ *   {@link Deflater} obtained from a {@link DeflaterPool}.
+ * </p>
+ * <p>
+ *   Calling {@link #flush()} performs a <em>sync flush</em> of the deflater, so that all data written so far can
+ *   be decompressed by the receiving end (e.g. a browser) before the stream is finished. This allows template
+ *   output compressed by means of this class to be flushed at the points established by a flush policy. Note
+ *   sync flushes require Java 7 or newer: on older JVMs, {@link #flush()} will only flush the data the deflater
+ *   has already produced.
+ * </p>
+ * <p>
+ *   Once all data has been written, {@link #finish()} should be called in order to write the remaining compressed
+ *   data and give the deflater back to the pool. {@link #finish()} does not close the underlying stream, whereas
+ *   {@link #close()} does.
+ * </p>
+ * <p>
+ *   Objects of this class are not thread-safe.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.8
+ *
+ */
+public final class DeflatingOutputStream extends OutputStream implements WritableByteChannel {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] GZIP_HEADER =
+            new byte[] { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final byte[] ZLIB_HEADER = new byte[] { (byte) 0x78, (byte) 0x9c };
+
+    // Deflater#deflate(byte[],int,int,int) and Deflater.SYNC_FLUSH only exist since Java 7
+    private static final int SYNC_FLUSH = 2;
+    private static final Method SYNC_FLUSH_METHOD;
+
+
+    static {
+        Method syncFlushMethod = null;
+        try {
+            syncFlushMethod = Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+        } catch (final NoSuchMethodException ignored) {
+            // Java 6: output will only be flushed when the deflater decides to
+        }
+        SYNC_FLUSH_METHOD = syncFlushMethod;
+    }
+
+
+    private final OutputStream outputStream;
+    private final DeflaterPool deflaterPool;
+    private final boolean gzip;
+
+    private final Checksum checksum;
+    private final byte[] buffer;
+    private byte[] singleByte = null;
+    private byte[] directInput = null; // Only needed for copying data from direct buffers
+
+    private Deflater deflater = null;
+    private boolean headerWritten = false;
+    private boolean finished = false;
+
+
+
+    public DeflatingOutputStream(final OutputStream outputStream, final DeflaterPool deflaterPool, final boolean gzip) {
+        super();
+        Validate.notNull(outputStream, "Output stream cannot be null");
+        Validate.notNull(deflaterPool, "Deflater pool cannot be null");
+        this.outputStream = outputStream;
+        this.deflaterPool = deflaterPool;
+        this.gzip = gzip;
+        this.checksum = (gzip? new CRC32() : new Adler32());
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+
+
+    public boolean isGzip() {
+        return this.gzip;
+    }
+
+
+
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (this.singleByte == null) {
+            this.singleByte = new byte[1];
+        }
+        this.singleByte[0] = (byte) b;
+        write(this.singleByte, 0, 1);
+    }
+
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return;
+        }
+        ensureStarted();
+        this.checksum.update(b, off, len);
+        this.deflater.setInput(b, off, len);
+        while (!this.deflater.needsInput()) {
+            final int count = this.deflater.deflate(this.buffer, 0, this.buffer.length);
+            if (count > 0) {
+                this.outputStream.write(this.buffer, 0, count);
+            }
+        }
+    }
+
+
+    public int write(final ByteBuffer src) throws IOException {
+        final int len = src.remaining();
+        if (len == 0) {
+            return 0;
+        }
+        if (this.finished) {
+            throw new ClosedChannelException();
+        }
+        if (src.hasArray()) {
+            // No need to copy the data: the deflater can directly read from the buffer's array
+            write(src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.limit());
+            return len;
+        }
+        if (this.directInput == null) {
+            this.directInput = new byte[BUFFER_SIZE];
+        }
+        int remaining = len;
+        while (remaining > 0) {
+            final int chunk = Math.min(remaining, this.directInput.length);
+            src.get(this.directInput, 0, chunk);
+            write(this.directInput, 0, chunk);
+            remaining -= chunk;
+        }
+        return len;
+    }
+
+
+    public boolean isOpen() {
+        return !this.finished;
+    }
+
+
+
+
+    private void ensureStarted() throws IOException {
+        if (this.finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        if (this.deflater == null) {
+            this.deflater = this.deflaterPool.acquire();
+        }
+        if (!this.headerWritten) {
+            this.outputStream.write(this.gzip? GZIP_HEADER : ZLIB_HEADER);
+            this.headerWritten = true;
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Performs a sync flush of the deflater (if supported by the JVM), writing all data compressed so far
+     *   to the underlying stream, and then flushes the underlying stream.
+     * </p>
+     */
+    @Override
+    public void flush() throws IOException {
+        if (this.deflater != null && SYNC_FLUSH_METHOD != null) {
+            int count;
+            do {
+                count = syncFlush();
+                if (count > 0) {
+                    this.outputStream.write(this.buffer, 0, count);
+                }
+            } while (count == this.buffer.length);
+        }
+        this.outputStream.flush();
+    }
+
+
+    private int syncFlush() throws IOException {
+        try {
+            return ((Integer) SYNC_FLUSH_METHOD.invoke(
+                    this.deflater, this.buffer, Integer.valueOf(0), Integer.valueOf(this.buffer.length),
+                    Integer.valueOf(SYNC_FLUSH))).intValue();
+        } catch (final IllegalAccessException e) {
+            throw new IOException("Could not flush deflater: " + e.getMessage());
+        } catch (final InvocationTargetException e) {
+            throw new IOException("Could not flush deflater: " + e.getTargetException().getMessage());
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Writes all remaining compressed data and the format's trailer to the underlying stream (without closing
+     *   it) and gives the deflater back to the pool. Calling this method more than once has no effect.
+     * </p>
+     *
+     * @throws IOException if output cannot be written to the underlying stream.
+     */
+    public void finish() throws IOException {
+
+        if (this.finished) {
+            return;
+        }
+
+        try {
+
+            ensureStarted();
+
+            this.deflater.finish();
+            while (!this.deflater.finished()) {
+                final int count = this.deflater.deflate(this.buffer, 0, this.buffer.length);
+                if (count > 0) {
+                    this.outputStream.write(this.buffer, 0, count);
+                }
+            }
+
+            final int checksumValue = (int) this.checksum.getValue();
+            if (this.gzip) {
+                writeIntLittleEndian(checksumValue);
+                writeIntLittleEndian((int) this.deflater.getBytesRead());
+            } else {
+                writeIntBigEndian(checksumValue);
+            }
+
+            this.outputStream.flush();
+
+        } finally {
+            this.finished = true;
+            this.deflaterPool.release(this.deflater);
+            this.deflater = null;
+        }
+
+    }
+
+
+    private void writeIntLittleEndian(final int value) throws IOException {
+        this.buffer[0] = (byte) value;
+        this.buffer[1] = (byte) (value >>> 8);
+        this.buffer[2] = (byte) (value >>> 16);
+        this.buffer[3] = (byte) (value >>> 24);
+        this.outputStream.write(this.buffer, 0, 4);
+    }
+
+
+    private void writeIntBigEndian(final int value) throws IOException {
+        this.buffer[0] = (byte) (value >>> 24);
+        this.buffer[1] = (byte) (value >>> 16);
+        this.buffer[2] = (byte) (value >>> 8);
+        this.buffer[3] = (byte) value;
+        this.outputStream.write(this.buffer, 0, 4);
+    }
+
+
+    /**
+     * <p>
+     *   Gives the deflater back to the pool without writing any further data to the underlying stream. This is
+     *   meant to be called when output generation fails, so that the deflater is not lost. After calling this
+     *   method, no more data can be written to this stream.
+     * </p>
+     */
+    public void discard() {
+        if (this.finished) {
+            return;
+        }
+        this.finished = true;
+        this.deflaterPool.release(this.deflater);
+        this.deflater = null;
+    }
+
+
+    /**
+     * <p>
+     *   Finishes the compressed data (see {@link #finish()}) and closes the underlying stream.
+     * </p>
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            this.outputStream.close();
+        }
+    }
+
+
+}
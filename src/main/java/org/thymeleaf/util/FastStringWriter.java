@@ -28,13 +28,17 @@
  *   Fast implementation of {@link Writer} that avoids the need to use a thread-safe
  *   {@link StringBuffer}.
  * </p>
+ * <p>
+ *   Since 3.0.8, this class also implements {@link CharSequence}, so that the written contents can be read
+ *   without creating a copy of them by means of {@link #toString()}.
+ * </p>
  * 
  * @author Daniel Fern&aacute;ndez
  * 
  * @since 3.0.0
  *
  */
-public final class FastStringWriter extends Writer {
+public final class FastStringWriter extends Writer implements CharSequence {
 
     private final StringBuilder builder;
 
@@ -94,6 +98,63 @@ public void write(final char[] cbuf, final int off, final int len) {
 
 
 
+    /**
+     * <p>
+     *   Makes sure the capacity of the underlying buffer is at least equal to the specified minimum, so that
+     *   no buffer growth is needed while writing up to that amount of chars.
+     * </p>
+     *
+     * @param minimumCapacity the desired minimum capacity.
+     *
+     * @since 3.0.8
+     */
+    public void ensureCapacity(final int minimumCapacity) {
+        this.builder.ensureCapacity(minimumCapacity);
+    }
+
+
+
+    /**
+     * @since 3.0.8
+     */
+    public int length() {
+        return this.builder.length();
+    }
+
+
+    /**
+     * @since 3.0.8
+     */
+    public char charAt(final int index) {
+        return this.builder.charAt(index);
+    }
+
+
+    /**
+     * @since 3.0.8
+     */
+    public CharSequence subSequence(final int start, final int end) {
+        return this.builder.subSequence(start, end);
+    }
+
+
+    /**
+     * <p>
+     *   Returns a read-only view of the contents written so far, without creating a copy of them. Unlike this
+     *   writer itself, the returned {@link CharSequence} cannot be used for writing, so it can be safely handed
+     *   out once nothing else is going to be written.
+     * </p>
+     *
+     * @return a read-only view of the written contents.
+     *
+     * @since 3.0.8
+     */
+    public CharSequence toCharSequence() {
+        return new ReadOnlyCharSequence(this.builder);
+    }
+
+
+
     @Override
     public void flush() throws IOException {
         // Nothing to be flushed
@@ -111,4 +172,35 @@ public String toString() {
         return this.builder.toString();
     }
 
+
+
+
+    private static final class ReadOnlyCharSequence implements CharSequence {
+
+        private final StringBuilder builder;
+
+        ReadOnlyCharSequence(final StringBuilder builder) {
+            super();
+            this.builder = builder;
+        }
+
+        public int length() {
+            return this.builder.length();
+        }
+
+        public char charAt(final int index) {
+            return this.builder.charAt(index);
+        }
+
+        public CharSequence subSequence(final int start, final int end) {
+            return this.builder.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return this.builder.toString();
+        }
+
+    }
+
 }